@@ -204,6 +204,13 @@ abstract class AbstractTestGenerator implements CancellableTask<WorkingCopy>{
 
     private List<String>processedClassNames;
 
+    private Map<String, SourceFingerprint> srcFingerprints;
+
+    /** cache of type names, bound to {@link #typeNameCacheOwner} */
+    private TypeNameCache typeNameCache;
+    /** working copy the {@link #typeNameCache} was created for */
+    private WorkingCopy typeNameCacheOwner;
+
     /**
      * cached value of <code>JUnitSettings.getGenerateMainMethodBody()</code>
      */
@@ -280,6 +287,9 @@ abstract class AbstractTestGenerator implements CancellableTask<WorkingCopy>{
 
             /* Create/update a test class for each testable source class: */
             for (TypeElement srcTopClass : srcTopClassElems) {
+                if (cancelled) {
+                    break;
+                }
                 createOrUpdateTestClass(srcTopClass,
                                         tstTopClasses,
                                         className,
@@ -317,8 +327,12 @@ abstract class AbstractTestGenerator implements CancellableTask<WorkingCopy>{
                 }
             }
         }
+
+        /* do not hold the working copy longer than necessary: */
+        typeNameCache = null;
+        typeNameCacheOwner = null;
     }
-    
+
     /**
      * Creates or updates a test class for a given source class.
      * 
@@ -345,6 +359,23 @@ abstract class AbstractTestGenerator implements CancellableTask<WorkingCopy>{
         final String testClassSimpleName = TestUtil.getSimpleName(testClassName);
 
         ClassTree tstTopClass = findClass(testClassSimpleName, tstTopClasses);
+
+        SourceFingerprint oldFingerprint = null;
+        if (setup.isIncrementalUpdate()) {
+            String srcClassName = srcTopClass.getQualifiedName().toString();
+            SourceFingerprint fingerprint
+                    = SourceFingerprint.compute(srcMethods,
+                                                workingCopy.getTypes());
+            if ((tstTopClass != null) && !isNewTestClass) {
+                oldFingerprint = SourceFingerprint.read(
+                                                workingCopy.getFileObject(),
+                                                srcClassName);
+                if (fingerprint.equals(oldFingerprint)) {
+                    return;     //testable methods did not change
+                }
+            }
+            fingerprintComputed(srcClassName, fingerprint);
+        }
         
         if (tstTopClass != null) {      //if the test class already exists
             TreePath tstTopClassTreePath = new TreePath(compUnitPath,
@@ -355,6 +386,7 @@ abstract class AbstractTestGenerator implements CancellableTask<WorkingCopy>{
                 tstTopClass = generateMissingTestMethods(
                                        srcTopClass,
                                        srcMethods,
+                                       oldFingerprint,
                                        tstTopClass,
                                        tstTopClassTreePath,
                                        true,
@@ -932,6 +964,32 @@ abstract class AbstractTestGenerator implements CancellableTask<WorkingCopy>{
                                     TreePath tstClassTreePath,
                                     boolean generateMissingInitMembers,
                                     WorkingCopy workingCopy) {
+        return generateMissingTestMethods(srcClass,
+                                          srcMethods,
+                                          null,
+                                          tstClass,
+                                          tstClassTreePath,
+                                          generateMissingInitMembers,
+                                          workingCopy);
+    }
+
+    /**
+     * 
+     * @param  srcMethods  methods to create/update tests for
+     * @param  coveredMethods  fingerprint of source methods whose tests
+     *                         were generated by a previous run and should
+     *                         not be generated again, or {@literal null}
+     *                         if tests for all source methods should be
+     *                         generated if missing
+     */
+    private ClassTree generateMissingTestMethods(
+                                    TypeElement srcClass,
+                                    List<ExecutableElement> srcMethods,
+                                    SourceFingerprint coveredMethods,
+                                    ClassTree tstClass,
+                                    TreePath tstClassTreePath,
+                                    boolean generateMissingInitMembers,
+                                    WorkingCopy workingCopy) {
         if (srcMethods.isEmpty()) {
             return tstClass;
         }
@@ -963,7 +1021,7 @@ abstract class AbstractTestGenerator implements CancellableTask<WorkingCopy>{
                 = TestMethodNameGenerator.getTestMethodNames(srcMethods,
 // passing null's to get the names as for newly created class to avoid creating all test methods every time we generating the tests
                                                              null, null,
-                                                             workingCopy);
+                                                             getTypeNameCache(workingCopy));
 
         Iterator<ExecutableElement> srcMethodsIt = srcMethods.iterator();
         Iterator<String> tstMethodNamesIt = testMethodNames.iterator();
@@ -994,6 +1052,12 @@ abstract class AbstractTestGenerator implements CancellableTask<WorkingCopy>{
 
             ExecutableElement srcMethod = srcMethodsIt.next();
             String testMethodName = tstMethodNamesIt.next();
+            if ((coveredMethods != null)
+                    && coveredMethods.contains(SourceFingerprint.getSignature(
+                                                   srcMethod,
+                                                   workingCopy.getTypes()))) {
+                continue;       //test method generated by a previous run
+            }
             int testMethodIndex = clsMap.findNoArgMethod(testMethodName);
             if (testMethodIndex != -1) {
                 continue;       //corresponding test method already exists
@@ -1061,7 +1125,7 @@ abstract class AbstractTestGenerator implements CancellableTask<WorkingCopy>{
                 = TestMethodNameGenerator.getTestMethodNames(srcMethods,
                                                              null,
                                                              null,   //reserved
-                                                             workingCopy);
+                                                             getTypeNameCache(workingCopy));
 
         Iterator<ExecutableElement> srcMethodsIt = srcMethods.iterator();
         Iterator<String> tstMethodNamesIt = testMethodNames.iterator();
@@ -2046,6 +2110,19 @@ abstract class AbstractTestGenerator implements CancellableTask<WorkingCopy>{
         return elements;
     }
 
+    /**
+     * Returns a cache of type names for the given working copy.
+     * The cache is shared by all source classes processed within the same
+     * working copy.
+     */
+    private TypeNameCache getTypeNameCache(WorkingCopy workingCopy) {
+        if ((typeNameCache == null) || (typeNameCacheOwner != workingCopy)) {
+            typeNameCache = TypeNameCache.forCompilationInfo(workingCopy);
+            typeNameCacheOwner = workingCopy;
+        }
+        return typeNameCache;
+    }
+
     /**
      * Stops this creator - cancels creation of a test class.
      */
@@ -2070,6 +2147,30 @@ abstract class AbstractTestGenerator implements CancellableTask<WorkingCopy>{
                : Collections.<String>emptyList();
     }
 
+    /**
+     */
+    private void fingerprintComputed(String srcClassName,
+                                     SourceFingerprint fingerprint) {
+        if (srcFingerprints == null) {
+            srcFingerprints = new HashMap<String, SourceFingerprint>(4);
+        }
+        srcFingerprints.put(srcClassName, fingerprint);
+    }
+
+    /**
+     * Returns fingerprints of source classes whose test classes were created
+     * or updated. Fingerprints are only computed in the incremental mode.
+     *
+     * @return  map of fully qualified source class names to fingerprints
+     *          of their testable methods
+     * @see  TestGeneratorSetup#isIncrementalUpdate()
+     */
+    Map<String, SourceFingerprint> getSourceFingerprints() {
+        return srcFingerprints != null
+               ? srcFingerprints
+               : Collections.<String, SourceFingerprint>emptyMap();
+    }
+
     /* private methods */
     
 //XXX: retouche
@@ -53,6 +53,7 @@ import java.io.IOException;
 import java.net.URI;
 import java.net.URL;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
@@ -61,6 +62,7 @@ import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.TreeSet;
 import java.util.concurrent.Callable;
 import java.util.logging.Logger;
 import java.util.regex.Matcher;
@@ -115,6 +117,7 @@ import org.openide.util.Lookup;
 import org.openide.util.Mutex;
 import org.openide.util.NbBundle;
 import org.openide.util.NbBundle.Messages;
+import org.openide.util.RequestProcessor;
 import static org.netbeans.modules.junit.Bundle.*;
 import static java.util.logging.Level.FINER;
 import static java.util.logging.Level.FINEST;
@@ -142,10 +145,10 @@ public final class DefaultPlugin extends JUnitPlugin {
                                + "_JUnit_version_handling");            //NOI18N
 
     /** full name of a file specific for the JUnit 3.8.x library */
-    private static final String JUNIT3_SPECIFIC
+    static final String JUNIT3_SPECIFIC
                                 = "junit/awtui/TestRunner.class";       //NOI18N
     /** full name of a file specific for the JUnit 4.x library */
-    private static final String JUNIT4_SPECIFIC
+    static final String JUNIT4_SPECIFIC
                                 = "org/junit/Test.class";               //NOI18N
     
     /** */
@@ -172,29 +175,54 @@ public final class DefaultPlugin extends JUnitPlugin {
      * each with a suffix <code>&quot;.class&quot;</code>
      */
     private static final String templatePropClasses = "classes";        //NOI18N
+    /**
+     * name of a suite file attribute holding a sorted, comma-separated list
+     * of members the suite was last generated for
+     */
+    private static final String ATTR_SUITE_MEMBERS = "junit-suite-members";   //NOI18N
+    /**
+     * name of a suite file attribute holding a comma-separated list of names
+     * of suite classes found in the suite file when it was last generated
+     */
+    private static final String ATTR_SUITE_CLASSES = "junit-suite-classes";   //NOI18N
     
     /** */
     private static java.util.ResourceBundle bundle = org.openide.util.NbBundle.getBundle(
             DefaultPlugin.class);
     
     private static boolean generatingIntegrationTest = false;
+
+    /** logs usage of JUnit */
+    private static final RequestProcessor USAGE_LOGGER_RP
+            = new RequestProcessor(DefaultPlugin.class.getName() + "_usage", 1);//NOI18N
     
-    public static void logJUnitUsage(URI projectURI) {
-        String version = "";
-        if (junitVer == null) {
-            Project project = FileOwnerQuery.getOwner(projectURI);
-            final ClassPath classPath = getTestClassPath(project);
-            if (classPath != null) {
-                if (classPath.findResource(JUNIT4_SPECIFIC) != null) {
-                    version = JUnitVersion.JUNIT4.toString();
-                } else if (classPath.findResource(JUNIT3_SPECIFIC) != null) {
-                    version = JUnitVersion.JUNIT3.toString();
+    /**
+     * Logs usage of JUnit in the given project.
+     * The JUnit version is determined and logged asynchronously so that
+     * the caller is not blocked by scanning the project's test classpath.
+     */
+    public static void logJUnitUsage(final URI projectURI) {
+        final JUnitVersion knownVer = junitVer;
+        USAGE_LOGGER_RP.post(new Runnable() {
+            public void run() {
+                String version = "";
+                if (knownVer == null) {
+                    Project project = FileOwnerQuery.getOwner(projectURI);
+                    if (project != null) {
+                        JUnitVersionCache.Libraries libraries
+                                = JUnitVersionCache.getLibraries(project);
+                        if (libraries.hasJUnit4()) {
+                            version = JUnitVersion.JUNIT4.toString();
+                        } else if (libraries.hasJUnit3()) {
+                            version = JUnitVersion.JUNIT3.toString();
+                        }
+                    }
+                } else {
+                    version = knownVer.toString();
                 }
+                UnitTestsUsage.getInstance().logUnitTestUsage(projectURI, version);
             }
-        } else {
-            version = junitVer.toString();
-        }
-        UnitTestsUsage.getInstance().logUnitTestUsage(projectURI, version);
+        });
     }
 
     /**
@@ -858,6 +886,7 @@ public final class DefaultPlugin extends JUnitPlugin {
         generatingIntegrationTest = Boolean.TRUE.equals(params.get(CreateTestParam.INC_GENERATE_INTEGRATION_TEST));
 
         final TestCreator testCreator = new TestCreator(params, junitVer);
+        progress.setCancelTask(testCreator);
         
         CreationResults results;
         try {
@@ -952,6 +981,8 @@ public final class DefaultPlugin extends JUnitPlugin {
                     }
                 } else {
                     results = new CreationResults();
+                    List<PendingSuite> pendingSuites
+                            = new ArrayList<PendingSuite>();
 
                     // go through all nodes
                     for (FileObject fileToTest : filesToTest) {
@@ -960,19 +991,31 @@ public final class DefaultPlugin extends JUnitPlugin {
                                                         testCreator,
                                                         templateParams,
                                                         doTestTempl,
-                                                        doSuiteTempl,
                                                         testClassPath,
                                                         null,
+                                                        pendingSuites,
                                                         progress));
                         } catch (CreationError e) {
                             ErrorManager.getDefault().notify(e);
                         }
                     }
+
+                    // create suites once all test classes are known
+                    if (!results.isAbborted()) {
+                        createSuiteTests(pendingSuites,
+                                         testCreator,
+                                         templateParams,
+                                         doSuiteTempl,
+                                         testClassPath,
+                                         progress);
+                    }
                 }
             }
         } finally {
+            progress.setCancelTask(null);
             progress.hide();
         }
+        progress.displayStatusText(progress.getSummary());
 
         final Set<SkippedClass> skipped = results.getSkipped();
         final Set<DataObject> created = results.getCreated();
@@ -1392,16 +1435,10 @@ public final class DefaultPlugin extends JUnitPlugin {
 
         junitVer = null;
 
-        final boolean hasJUnit3;
-        final boolean hasJUnit4;
-        final ClassPath classPath = getTestClassPath(project); //may throw ISE
-        if (classPath != null) {
-            hasJUnit3 = (classPath.findResource(JUNIT3_SPECIFIC) != null);
-            hasJUnit4 = (classPath.findResource(JUNIT4_SPECIFIC) != null);
-        } else {
-            hasJUnit3 = false;
-            hasJUnit4 = false;
-        }
+        final JUnitVersionCache.Libraries libraries
+                = JUnitVersionCache.getLibraries(project);  //may throw ISE
+        final boolean hasJUnit3 = libraries.hasJUnit3();
+        final boolean hasJUnit4 = libraries.hasJUnit4();
 
         if (hasJUnit3 != hasJUnit4) {
             junitVer = hasJUnit3 ? JUnitVersion.JUNIT3
@@ -1412,7 +1449,7 @@ public final class DefaultPlugin extends JUnitPlugin {
         } else {
             LOG_JUNIT_VER.finest(" - no version detected");             //NOI18N
         }
-        return (classPath != null);
+        return libraries.isClassPathFound();
     }
 
     /**
@@ -1423,7 +1460,7 @@ public final class DefaultPlugin extends JUnitPlugin {
      *          not be determined
      * @throws java.lang.IllegalStateException if no test folders were found in the project
      */
-    private static ClassPath getTestClassPath(final Project project)
+    static ClassPath getTestClassPath(final Project project)
                                                   throws IllegalStateException {
         assert project != null;
         if (LOG_JUNIT_VER.isLoggable(FINER)) {
@@ -1780,6 +1817,9 @@ public final class DefaultPlugin extends JUnitPlugin {
                 List<String> parentSuite,
                 ProgressIndicator progress) throws CreationError {
         
+        final long startTime = System.currentTimeMillis();
+        progress.setMessage(getCreatingMsg(sourceFile.getName()));
+
         List<SkippedClass> nonTestable;
         List<ElementHandle<TypeElement>> testable;
         try {
@@ -1811,6 +1851,10 @@ public final class DefaultPlugin extends JUnitPlugin {
 
             try {
                 for (ElementHandle<TypeElement> clsToTest : testable) {
+                    if (progress.isCanceled()) {
+                        result.setAbborted();
+                        break;
+                    }
                     String testClassName;
                     String srcClassNameFull = clsToTest.getQualifiedName();
                     if ((requestedTestClassName != null)
@@ -1858,27 +1902,37 @@ public final class DefaultPlugin extends JUnitPlugin {
             }
         }
         
+        progress.fileProcessed(sourceFile,
+                               result,
+                               System.currentTimeMillis() - startTime);
         return result;
     }
     
     /**
+     * Creates tests for the given file or folder.
+     * Test suites are not created by this method. Instead, if suites are to
+     * be generated, an entry for each processed folder is appended
+     * to the given list of pending suites, children before their parents.
      *
+     * @param  pendingSuites  list to which suites to be created
+     *                        should be added
+     * @see  #createSuiteTests
      */
     private static CreationResults createTests(
                 final FileObject srcFileObj,
                 final TestCreator testCreator,
                 final Map<String, ? extends Object> templateParams,
                 DataObject doTestT,
-                DataObject doSuiteT,
                 final ClassPath testClassPath,
                 List<String> parentSuite,
+                List<PendingSuite> pendingSuites,
                 ProgressIndicator progress) throws CreationError {
 
         CreationResults results;
         if (srcFileObj.isFolder()) {
             results = new CreationResults();
 
-            List<String> mySuite = new LinkedList<String>();
+            List<String> mySuite = new ArrayList<String>();
             
             progress.setMessage(getScanningMsg(srcFileObj.getName()));
 
@@ -1894,9 +1948,9 @@ public final class DefaultPlugin extends JUnitPlugin {
                                             testCreator,
                                             templateParams,
                                             doTestT,
-                                            doSuiteT,
                                             testClassPath,
                                             mySuite,
+                                            pendingSuites,
                                             progress));
                 if (results.isAbborted()) {
                     break;
@@ -1904,19 +1958,13 @@ public final class DefaultPlugin extends JUnitPlugin {
             }
 
             // if everything went ok, and the option is enabled,
-            // create a suite for the folder .
+            // schedule creation of a suite for the folder
             if (!results.isAbborted()
 //                    && !mySuite.isEmpty()
                     && JUnitSettings.getDefault().isGenerateSuiteClasses()) {
-                createSuiteTest(srcFileObj,
-                                (String) null,
-                                testCreator,
-                                templateParams,
-                                doSuiteT,
-                                testClassPath,
-                                mySuite,
-                                parentSuite,
-                                progress);
+                pendingSuites.add(new PendingSuite(srcFileObj,
+                                                   mySuite,
+                                                   parentSuite));
             }
         } else if (srcFileObj.isData() && TestUtil.isJavaFile(srcFileObj)) {
             results = createSingleTest(srcFileObj,
@@ -1934,6 +1982,45 @@ public final class DefaultPlugin extends JUnitPlugin {
         return results;
     }
 
+    /**
+     * Creates or updates test suites collected during creation of tests.
+     * The suites are processed in the order they were collected,
+     * i.e. each suite is processed before the suite of its parent folder,
+     * so that names of the nested suites are known when the parent suite
+     * is being created. Suites whose set of members did not change since
+     * they were last generated are not modified.
+     *
+     * @param  pendingSuites  suites to be created, children before parents
+     */
+    private static void createSuiteTests(
+            List<PendingSuite> pendingSuites,
+            final TestCreator testCreator,
+            final Map<String, ? extends Object> templateParams,
+            DataObject templateDataObj,
+            ClassPath testClassPath,
+            ProgressIndicator progress) {
+        for (PendingSuite pendingSuite : pendingSuites) {
+            if (progress.isCanceled()) {
+                break;
+            }
+            progress.setMessage(getCreatingMsg(pendingSuite.folder.getName()));
+            try {
+                createSuiteTest(pendingSuite.folder,
+                                (String) null,
+                                testCreator,
+                                templateParams,
+                                templateDataObj,
+                                testClassPath,
+                                pendingSuite.members,
+                                pendingSuite.parentSuite,
+                                true,
+                                progress);
+            } catch (CreationError ex) {
+                ErrorManager.getDefault().notify(ex);
+            }
+        }
+    }
+
     /**
      *
      */
@@ -1946,6 +2033,7 @@ public final class DefaultPlugin extends JUnitPlugin {
             ClassPath testClassPath,
             List<String> classesToInclude,
             List<String> parentSuite,
+            boolean skipUnchanged,
             ProgressIndicator progress) throws CreationError {
 
         // find correct package name
@@ -1993,18 +2081,39 @@ public final class DefaultPlugin extends JUnitPlugin {
             }
             
             List<String> processedClasses;
-            //JavaSource testSrc = JavaSource.forFileObject(testFile);
-            try {
-                processedClasses = testCreator.createTestSuite(classesToInclude,
-                                                               testFile,
-                                                               isNew);
-                if (testDataObj == null) {
-                    testDataObj = DataObject.find(testFile);
+            String membersAttr = makeListOfClasses(
+                                    new ArrayList<String>(
+                                          new TreeSet<String>(classesToInclude)),
+                                    null);
+            Object processedAttr = isNew
+                                   ? null
+                                   : testFile.getAttribute(ATTR_SUITE_CLASSES);
+            if (skipUnchanged
+                    && (processedAttr instanceof String)
+                    && membersAttr.equals(
+                            testFile.getAttribute(ATTR_SUITE_MEMBERS))) {
+                /* the set of members did not change - keep the suite as is */
+                processedClasses = splitListOfClasses((String) processedAttr);
+                testDataObj = DataObject.find(testFile);
+            } else {
+                //JavaSource testSrc = JavaSource.forFileObject(testFile);
+                try {
+                    processedClasses = testCreator.createTestSuite(
+                                                            classesToInclude,
+                                                            testFile,
+                                                            isNew);
+                    if (testDataObj == null) {
+                        testDataObj = DataObject.find(testFile);
+                    }
+                    save(testDataObj);
+                    testFile.setAttribute(ATTR_SUITE_MEMBERS, membersAttr);
+                    testFile.setAttribute(ATTR_SUITE_CLASSES,
+                                          makeListOfClasses(processedClasses,
+                                                            null));
+                } catch (Exception ex) {
+                    ErrorManager.getDefault().notify(ErrorManager.ERROR, ex);
+                    return null;
                 }
-                save(testDataObj);
-            } catch (Exception ex) {
-                ErrorManager.getDefault().notify(ErrorManager.ERROR, ex);
-                return null;
             }
 
             // add the suite class to the list of members of the parent
@@ -2060,6 +2169,17 @@ public final class DefaultPlugin extends JUnitPlugin {
         return buf.toString();
     }
 
+    /**
+     * Splits a comma-separated list of names, as made by method
+     * {@link #makeListOfClasses makeListOfClasses(..., null)}.
+     */
+    private static List<String> splitListOfClasses(final String clsNames) {
+        if (clsNames.length() == 0) {
+            return Collections.<String>emptyList();
+        }
+        return Arrays.asList(clsNames.split(","));                      //NOI18N
+    }
+
     /**
      *
      */
@@ -2104,6 +2224,7 @@ public final class DefaultPlugin extends JUnitPlugin {
                                    cpInfo.getClassPath(PathKind.SOURCE),
                                    new LinkedList<String>(testClassNames),
                                    null,            //parent suite
+                                   false,           //skip unchanged
                                    null);           //progress indicator
         } catch (CreationError ex) {
             return null;
@@ -2312,6 +2433,28 @@ public final class DefaultPlugin extends JUnitPlugin {
         }
     }
     
+    /**
+     * Suite to be created in the final pass of test creation.
+     *
+     * @see  #createSuiteTests
+     */
+    private static final class PendingSuite {
+        /** source folder the suite is to be created for */
+        final FileObject folder;
+        /** names of test classes and nested suites to be included */
+        final List<String> members;
+        /** list of members of the parent suite, or {@literal null} */
+        final List<String> parentSuite;
+
+        PendingSuite(FileObject folder,
+                     List<String> members,
+                     List<String> parentSuite) {
+            this.folder = folder;
+            this.members = members;
+            this.parentSuite = parentSuite;
+        }
+    }
+
     /**
      * Utility class representing the results of a test creation
      * process. It gatheres all tests (as DataObject) created and all
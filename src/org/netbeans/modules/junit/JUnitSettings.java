@@ -66,6 +66,8 @@ public class JUnitSettings extends CommonSettings {
     static final String JUNIT_GENERATOR_ASK_USER = "ask";               //NOI18N
     /** */
     static final String DEFAULT_GENERATOR = JUNIT_GENERATOR_ASK_USER;
+    /** */
+    static final String PROP_INCREMENTAL_UPDATE = "incrementalUpdate"; //NOI18N
 
     private  static Preferences getPreferences() {
         return NbPreferences.forModule(JUnitSettings.class);
@@ -79,5 +81,19 @@ public class JUnitSettings extends CommonSettings {
     public String getGenerator() {
         return getPreferences().get(PROP_GENERATOR, DEFAULT_GENERATOR);
     }
+
+    /**
+     * Should existing test classes be updated incrementally?
+     * In the incremental mode, test classes whose source classes did not
+     * change their set of testable methods since the last run are skipped
+     * and only test methods for newly added source methods are generated.
+     */
+    public boolean isIncrementalUpdate() {
+        return getPreferences().getBoolean(PROP_INCREMENTAL_UPDATE, false);
+    }
+
+    public void setIncrementalUpdate(boolean newVal) {
+        getPreferences().putBoolean(PROP_INCREMENTAL_UPDATE, newVal);
+    }
     
 }
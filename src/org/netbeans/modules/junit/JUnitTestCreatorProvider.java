@@ -43,7 +43,7 @@ package org.netbeans.modules.junit;
 
 import java.awt.EventQueue;
 import java.util.ArrayList;
-import java.util.Collection;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
 import org.netbeans.api.java.classpath.ClassPath;
@@ -106,8 +106,14 @@ public class JUnitTestCreatorProvider extends TestCreatorProvider {
             }
         }
 
-        final Collection<FileObject> fileObjs
-                = new ArrayList<FileObject>(activatedNodes.length);
+        /*
+         * Owners and source groups are looked up through a per-selection
+         * cache so that large selections do not repeat the same queries
+         * for every file of a folder.
+         */
+        final SelectionAnalysis analysis = new SelectionAnalysis();
+        final FileObject[] fileObjs = new FileObject[activatedNodes.length];
+        int fileObjsCount = 0;
         Project theProject = null;
         boolean result = false;
         for (Node node : activatedNodes) {
@@ -118,9 +124,9 @@ public class JUnitTestCreatorProvider extends TestCreatorProvider {
                     continue;
                 }
 
-                fileObjs.add(fileObj);
+                fileObjs[fileObjsCount++] = fileObj;
                 
-                Project prj = FileOwnerQuery.getOwner(fileObj);
+                Project prj = analysis.getOwner(fileObj);
                 if (prj != null) {
                     if (theProject == null) {
                         theProject = prj;
@@ -129,7 +135,8 @@ public class JUnitTestCreatorProvider extends TestCreatorProvider {
                         return false;        /* files from different projects */
                     }
 
-                    if ((getSourceGroup(fileObj, prj) != null)
+                    if (!result
+                        && (analysis.getSourceGroup(fileObj, prj) != null)
                         && (TestUtil.isJavaFile(fileObj)
                             || (node.getLookup().lookup(DataFolder.class) != null))) {
                         result = true;
@@ -138,11 +145,13 @@ public class JUnitTestCreatorProvider extends TestCreatorProvider {
             }
         }
 
-        if (theProject != null) {
+        if (result && (theProject != null)) {
             JUnitPlugin plugin = TestUtil.getPluginForProject(theProject);
-            result &= JUnitPluginTrampoline.DEFAULT.canCreateTests(
+            result = JUnitPluginTrampoline.DEFAULT.canCreateTests(
                             plugin,
-                            fileObjs.toArray(new FileObject[fileObjs.size()]));
+                            (fileObjsCount == fileObjs.length)
+                                    ? fileObjs
+                                    : Arrays.copyOf(fileObjs, fileObjsCount));
         }
 
         return result;
@@ -261,11 +270,12 @@ public class JUnitTestCreatorProvider extends TestCreatorProvider {
     private static FileObject[] getFileObjectsFromNodes(final Node[] nodes){
         FileObject[] fileObjects = new FileObject[nodes.length];
         List<FileObject> fileObjectsList = null;
+        final boolean[] nested = SelectionAnalysis.findNestedNodes(nodes);
 
         for (int i = 0; i < nodes.length; i++) {
             final Node node = nodes[i];
             final FileObject fo;
-            if (!hasParentAmongNodes(nodes, i)
+            if (!nested[i]
                     && ((fo = getTestFileObject(node)) != null)) {
                 if (fileObjects != null) {
                     fileObjects[i] = fo;
@@ -385,23 +395,4 @@ public class JUnitTestCreatorProvider extends TestCreatorProvider {
         return fo;
     }
 
-    private static boolean hasParentAmongNodes(final Node[] nodes,
-                                               final int idx) {
-        Node node;
-
-        node = nodes[idx].getParentNode();
-        while (null != node) {
-            for (int i = 0; i < nodes.length; i++) {
-                if (i == idx) {
-                    continue;
-                }
-                if (node == nodes[i]) {
-                    return true;
-                }
-            }
-            node = node.getParentNode();
-        }
-        return false;
-    }
-    
 }
@@ -0,0 +1,150 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright 1997-2010 Oracle and/or its affiliates. All rights reserved.
+ *
+ * Oracle and Java are registered trademarks of Oracle and/or its affiliates.
+ * Other names may be trademarks of their respective owners.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common
+ * Development and Distribution License("CDDL") (collectively, the
+ * "License"). You may not use this file except in compliance with the
+ * License. You can obtain a copy of the License at
+ * http://www.netbeans.org/cddl-gplv2.html
+ * or nbbuild/licenses/CDDL-GPL-2-CP. See the License for the
+ * specific language governing permissions and limitations under the
+ * License.  When distributing the software, include this License Header
+ * Notice in each file and include the License file at
+ * nbbuild/licenses/CDDL-GPL-2-CP.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the GPL Version 2 section of the License file that
+ * accompanied this code. If applicable, add the following below the
+ * License Header, with the fields enclosed by brackets [] replaced by
+ * your own identifying information:
+ * "Portions Copyrighted [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ *
+ * The Original Software is NetBeans. The Initial Developer of the Original
+ * Software is Sun Microsystems, Inc. Portions Copyright 1997-2008 Sun
+ * Microsystems, Inc. All Rights Reserved.
+ *
+ * If you wish your version of this file to be governed by only the CDDL
+ * or only the GPL Version 2, indicate your decision by adding
+ * "[Contributor] elects to include this software in this distribution
+ * under the [CDDL or GPL Version 2] license." If you do not indicate a
+ * single choice of license, a recipient has the option to distribute
+ * your version of this file under either the CDDL, the GPL Version 2 or
+ * to extend the choice of license to its licensees as provided above.
+ * However, if you add GPL Version 2 code and therefore, elected the GPL
+ * Version 2 license, then the option applies only if the new code is
+ * made subject to such option by the copyright holder.
+ */
+
+package org.netbeans.modules.junit;
+
+import java.beans.PropertyChangeEvent;
+import java.beans.PropertyChangeListener;
+import java.util.Map;
+import java.util.WeakHashMap;
+import org.netbeans.api.java.classpath.ClassPath;
+import org.netbeans.api.project.Project;
+import org.openide.util.WeakListeners;
+
+/**
+ * Caches information about JUnit libraries present on the test classpath
+ * of projects. The information about a project is forgotten as soon
+ * as roots of the project's test classpath change.
+ *
+ * @see  DefaultPlugin#getTestClassPath
+ */
+final class JUnitVersionCache {
+
+    /** JUnit libraries found on a project's test classpath */
+    static final class Libraries implements PropertyChangeListener {
+
+        /**
+         * the test classpath being listened to - kept so that the classpath
+         * (and the weak listener on it) lives as long as this entry,
+         * even if the project creates a new classpath instance for every
+         * request
+         */
+        private final ClassPath classPath;
+        private final boolean hasJUnit3;
+        private final boolean hasJUnit4;
+        private volatile boolean valid = true;
+
+        private Libraries(ClassPath classPath,
+                          boolean hasJUnit3,
+                          boolean hasJUnit4) {
+            this.classPath = classPath;
+            this.hasJUnit3 = hasJUnit3;
+            this.hasJUnit4 = hasJUnit4;
+        }
+
+        /**
+         * @return  {@literal true} if the test classpath of the project
+         *          could be determined, {@literal false} otherwise
+         */
+        boolean isClassPathFound() {
+            return classPath != null;
+        }
+
+        boolean hasJUnit3() {
+            return hasJUnit3;
+        }
+
+        boolean hasJUnit4() {
+            return hasJUnit4;
+        }
+
+        public void propertyChange(PropertyChangeEvent e) {
+            if (ClassPath.PROP_ROOTS.equals(e.getPropertyName())) {
+                valid = false;
+            }
+        }
+    }
+
+    private static final Map<Project, Libraries> cache
+            = new WeakHashMap<Project, Libraries>();
+
+    private JUnitVersionCache() {
+    }
+
+    /**
+     * Finds which JUnit libraries are present on the test classpath
+     * of the given project.
+     *
+     * @param  project  project to check
+     * @return  JUnit libraries found
+     * @throws java.lang.IllegalStateException if the project does not contain
+     *                                         any test folders
+     */
+    static Libraries getLibraries(Project project) throws IllegalStateException {
+        synchronized (cache) {
+            Libraries libraries = cache.get(project);
+            if ((libraries != null) && libraries.valid) {
+                return libraries;
+            }
+        }
+
+        final ClassPath classPath = DefaultPlugin.getTestClassPath(project);
+        if (classPath == null) {
+            /* not cached - the classpath may become available later */
+            return new Libraries(null, false, false);
+        }
+
+        final Libraries libraries = new Libraries(
+                classPath,
+                classPath.findResource(DefaultPlugin.JUNIT3_SPECIFIC) != null,
+                classPath.findResource(DefaultPlugin.JUNIT4_SPECIFIC) != null);
+        classPath.addPropertyChangeListener(
+                WeakListeners.propertyChange(libraries, classPath));
+        synchronized (cache) {
+            cache.put(project, libraries);
+        }
+        return libraries;
+    }
+
+}
@@ -51,10 +51,13 @@ import com.sun.source.tree.Tree;
 import com.sun.source.util.SourcePositions;
 import com.sun.source.util.TreePathScanner;
 import com.sun.source.util.Trees;
+import java.awt.EventQueue;
 import java.io.IOException;
 import java.net.URL;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.logging.Level;
 import java.util.logging.Level;
 import java.util.logging.Logger;
@@ -85,6 +88,7 @@ import org.openide.text.Line.ShowVisibilityType;
 import org.openide.text.NbDocument;
 import org.openide.util.HelpCtx;
 import org.openide.util.NbBundle;
+import org.openide.util.RequestProcessor;
 
 /** Action sensitive to some DataFolder or SourceCookie cookie
  * which tries to open JUnit test corresponding to the selected source file.
@@ -96,78 +100,135 @@ import org.openide.util.NbBundle;
 @SuppressWarnings("serial")
 public class OpenTestAction extends TestAction {
 
+    private static final RequestProcessor RP
+            = new RequestProcessor(OpenTestAction.class.getName(), 1);
+
     public OpenTestAction() {
         putValue("noIconInMenu", Boolean.TRUE);
     }
     
 
-    protected void performAction (Node[] nodes) {
-        FileObject selectedFO;
-        
-        for (int i = 0; i < nodes.length; i++) {
-            // get test class or suite class file, if it was not such one pointed by the node
-            selectedFO = TestUtil.getFileObjectFromNode(nodes[i]);
-            if (selectedFO == null) {
-                TestUtil.notifyUser(NbBundle.getMessage(OpenTestAction.class, "MSG_file_from_node_failed"));
-                continue;
-            }
-            ClassPath cp = ClassPath.getClassPath(selectedFO, ClassPath.SOURCE);
-            if (cp == null) {
-                TestUtil.notifyUser(NbBundle.getMessage(OpenTestAction.class, 
-                    "MSG_no_project", selectedFO));
-                continue;
+    protected void performAction (final Node[] nodes) {
+        /*
+         * Tests of all the selected nodes are resolved in one batch,
+         * outside the event dispatch thread, and then opened together:
+         */
+        RP.post(new Runnable() {
+            public void run() {
+                final List<FileObject> filesToOpen
+                        = new TestFileResolver().findTests(nodes);
+                if (!filesToOpen.isEmpty()) {
+                    EventQueue.invokeLater(new Runnable() {
+                        public void run() {
+                            for (FileObject fileToOpen : filesToOpen) {
+                                openFile(fileToOpen);
+                            }
+                        }
+                    });
+                }
             }
- 
-            FileObject packageRoot = cp.findOwnerRoot(selectedFO);            
-            URL[] testRoots = UnitTestForSourceQuery.findUnitTests(packageRoot);
-            FileObject fileToOpen = null;
-            for (int j = 0 ; j < testRoots.length; j++) {
-                fileToOpen = findUnitTestInTestRoot(cp, selectedFO, testRoots[j]);
-                if (fileToOpen != null) break;
+        });
+    }
+
+    /**
+     * Finds tests of selected source files. Test classpaths are only built
+     * once per source root, no matter how many files of the source root
+     * are selected.
+     */
+    private static final class TestFileResolver {
+
+        /** source root &rarr; classpaths of its test roots */
+        private final Map<FileObject, ClassPath[]> testClassPaths
+                = new HashMap<FileObject, ClassPath[]>();
+
+        /**
+         * Finds tests of the given nodes. Problems found are reported
+         * to the user.
+         *
+         * @return  tests found, in the order of the nodes
+         */
+        List<FileObject> findTests(Node[] nodes) {
+            List<FileObject> filesToOpen = new ArrayList<FileObject>(nodes.length);
+            for (int i = 0; i < nodes.length; i++) {
+                // get test class or suite class file, if it was not such one pointed by the node
+                FileObject selectedFO = TestUtil.getFileObjectFromNode(nodes[i]);
+                if (selectedFO == null) {
+                    TestUtil.notifyUser(NbBundle.getMessage(OpenTestAction.class, "MSG_file_from_node_failed"));
+                    continue;
+                }
+                ClassPath cp = ClassPath.getClassPath(selectedFO, ClassPath.SOURCE);
+                if (cp == null) {
+                    TestUtil.notifyUser(NbBundle.getMessage(OpenTestAction.class, 
+                        "MSG_no_project", selectedFO));
+                    continue;
+                }
+
+                FileObject packageRoot = cp.findOwnerRoot(selectedFO);
+                String testName = getTestName(cp, selectedFO);
+                FileObject fileToOpen = null;
+                for (ClassPath testClassPath : getTestClassPaths(cp, packageRoot)) {
+                    fileToOpen = testClassPath.findResource(testName + ".java"); //NOI18N
+                    if (fileToOpen != null) break;
+                }
+
+                if (fileToOpen != null) {
+                    filesToOpen.add(fileToOpen);
+                } else {
+                    notifyTestNotFound(cp, selectedFO, testName);
+                }
             }
-            
-            if (fileToOpen != null) {
-                openFile(fileToOpen);
-            } else {                
-                String testClsName = getTestName(cp, selectedFO).replace('/','.');                                                
-                String pkgName = cp.getResourceName(selectedFO, '.', false);                
-                boolean isPackage = selectedFO.isFolder();
-                boolean isDefPkg = isPackage && (pkgName.length() == 0);
-                String msgPattern = !isPackage
-                       ? "MSG_test_class_not_found"                     //NOI18N
-                       : isDefPkg
-                         ? "MSG_testsuite_class_not_found_def_pkg"      //NOI18N
-                         : "MSG_testsuite_class_not_found";             //NOI18N
-                                
-                String[] params = isDefPkg ? new String[] { testClsName }
-                                           : new String[] { testClsName,
-                                                            pkgName };                                                                             
-                                 
-                TestUtil.notifyUser(NbBundle.getMessage(OpenTestAction.class,
-                                                        msgPattern, params),
-                                    ErrorManager.INFORMATIONAL);
-                continue;
+            return filesToOpen;
+        }
+
+        private ClassPath[] getTestClassPaths(ClassPath cp, FileObject packageRoot) {
+            ClassPath[] result = testClassPaths.get(packageRoot);
+            if (result == null) {
+                URL[] testRoots = UnitTestForSourceQuery.findUnitTests(packageRoot);
+                result = new ClassPath[testRoots.length];
+                for (int j = 0 ; j < testRoots.length; j++) {
+                    result[j] = createTestClassPath(cp, testRoots[j]);
+                }
+                testClassPaths.put(packageRoot, result);
             }
+            return result;
         }
     }
 
-    private static FileObject findUnitTestInTestRoot(ClassPath cp, FileObject selectedFO, URL testRoot) {
-        ClassPath testClassPath = null;
+    private static ClassPath createTestClassPath(ClassPath cp, URL testRoot) {
         if (testRoot == null) { //no tests, use sources instead
-            testClassPath = cp;
-        } else {
-            try {
-                List<PathResourceImplementation> cpItems
-                        = new ArrayList<PathResourceImplementation>();
-                cpItems.add(ClassPathSupport.createResource(testRoot));
-                testClassPath = ClassPathSupport.createClassPath(cpItems);
-            } catch (IllegalArgumentException ex) {
-                ErrorManager.getDefault().notify(ErrorManager.INFORMATIONAL, ex);
-                testClassPath = cp; 
-            }
+            return cp;
+        }
+        try {
+            List<PathResourceImplementation> cpItems
+                    = new ArrayList<PathResourceImplementation>();
+            cpItems.add(ClassPathSupport.createResource(testRoot));
+            return ClassPathSupport.createClassPath(cpItems);
+        } catch (IllegalArgumentException ex) {
+            ErrorManager.getDefault().notify(ErrorManager.INFORMATIONAL, ex);
+            return cp;
         }
-        String testName = getTestName(cp, selectedFO);
-        return testClassPath.findResource(testName+".java");
+    }
+
+    private static void notifyTestNotFound(ClassPath cp,
+                                           FileObject selectedFO,
+                                           String testName) {
+        String testClsName = testName.replace('/','.');
+        String pkgName = cp.getResourceName(selectedFO, '.', false);
+        boolean isPackage = selectedFO.isFolder();
+        boolean isDefPkg = isPackage && (pkgName.length() == 0);
+        String msgPattern = !isPackage
+               ? "MSG_test_class_not_found"                     //NOI18N
+               : isDefPkg
+                 ? "MSG_testsuite_class_not_found_def_pkg"      //NOI18N
+                 : "MSG_testsuite_class_not_found";             //NOI18N
+
+        String[] params = isDefPkg ? new String[] { testClsName }
+                                   : new String[] { testClsName,
+                                                    pkgName };
+
+        TestUtil.notifyUser(NbBundle.getMessage(OpenTestAction.class,
+                                                msgPattern, params),
+                            ErrorManager.INFORMATIONAL);
     }
 
     private static String getTestName(ClassPath cp, FileObject selectedFO) {
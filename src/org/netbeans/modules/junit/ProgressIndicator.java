@@ -44,15 +44,24 @@
 
 package org.netbeans.modules.junit;
 
+import java.util.logging.Level;
+import java.util.logging.Logger;
 import org.netbeans.api.progress.ProgressHandle;
 import org.netbeans.api.progress.ProgressHandleFactory;
+import org.netbeans.modules.junit.DefaultPlugin.CreationResults;
+import org.netbeans.modules.junit.TestabilityResult.SkippedClass;
 import org.openide.awt.StatusDisplayer;
+import org.openide.filesystems.FileObject;
 import org.openide.util.Cancellable;
 import org.openide.util.NbBundle;
 
 /** Thread-safe wrapper around JUnitProgress - panel showing progress info
  * and allowing the user to cancel running task. Used in actions creating
  * or executing tests.
+ * <p>
+ * The indicator also collects results of processing of individual source
+ * files, as they are reported by method {@link #fileProcessed}, and logs
+ * them, so that the results are available while the task is still running.
  *
  * @author  Tomas Pavek
  * @author  Ondrej Rypacek
@@ -60,21 +69,39 @@ import org.openide.util.NbBundle;
  */
 final class ProgressIndicator implements Cancellable {
 
+    private static final Logger LOG
+            = Logger.getLogger(ProgressIndicator.class.getName());
+
     /**
      * initial message to be used when GUI is created.
      * It is only used if setMessage(...) is called sooner than show().
      */
     private final ProgressHandle progressHandle;
     private volatile boolean cancelled = false;
+    /** task to be cancelled when the user cancels the progress */
+    private volatile Cancellable cancelTask;
+
+    /** time the progress was started, in milliseconds */
+    private long startTime;
+    /** number of source files processed so far */
+    private int filesCount;
+    /** number of tests created or updated so far */
+    private int createdCount;
+    /** number of source classes skipped so far */
+    private int skippedCount;
 
     ProgressIndicator() {
         String msg = NbBundle.getMessage(ProgressIndicator.class,
                                         "LBL_generator_progress_title");//NOI18N
-        progressHandle = ProgressHandleFactory.createHandle(msg);
+        progressHandle = ProgressHandleFactory.createHandle(msg, this);
     }
 
     public boolean cancel() {
         cancelled = true;
+        Cancellable task = cancelTask;
+        if (task != null) {
+            task.cancel();
+        }
         return true;
     }
 
@@ -82,6 +109,17 @@ final class ProgressIndicator implements Cancellable {
         return cancelled;
     }
 
+    /**
+     * Sets a task that should be cancelled when the user cancels
+     * the progress. It allows to interrupt processing of a single file.
+     */
+    void setCancelTask(Cancellable task) {
+        cancelTask = task;
+        if (cancelled && (task != null)) {
+            task.cancel();
+        }
+    }
+
     void displayStatusText(String statusText) {
         StatusDisplayer.getDefault().setStatusText(statusText);
     }
@@ -94,6 +132,7 @@ final class ProgressIndicator implements Cancellable {
     }
 
     synchronized void show() {
+        startTime = System.currentTimeMillis();
         progressHandle.start();
     }
 
@@ -101,4 +140,55 @@ final class ProgressIndicator implements Cancellable {
         progressHandle.finish();
     }
 
+    /**
+     * Records results of processing of a single source file.
+     *
+     * @param  srcFile  the processed source file
+     * @param  results  tests created and classes skipped for the file
+     * @param  elapsedMillis  time spent processing the file
+     */
+    synchronized void fileProcessed(FileObject srcFile,
+                                    CreationResults results,
+                                    long elapsedMillis) {
+        filesCount++;
+        createdCount += results.getCreated().size();
+        skippedCount += results.getSkipped().size();
+
+        if (LOG.isLoggable(Level.FINE)) {
+            LOG.log(Level.FINE,
+                    "{0}: {1} test(s) created, {2} class(es) skipped in {3} ms",//NOI18N
+                    new Object[] {srcFile.getPath(),
+                                  results.getCreated().size(),
+                                  results.getSkipped().size(),
+                                  elapsedMillis});
+            for (SkippedClass skipped : results.getSkipped()) {
+                LOG.log(Level.FINE, "  skipped {0}: {1}",               //NOI18N
+                        new Object[] {skipped.clsName,
+                                      skipped.reason.getReason(", ", " and ")});//NOI18N
+            }
+        }
+    }
+
+    /**
+     * Returns a summary of the task, including the throughput
+     * in files per second.
+     *
+     * @return  message suitable for the status bar
+     */
+    synchronized String getSummary() {
+        long elapsed = Math.max(1, System.currentTimeMillis() - startTime);
+        String filesPerSec = String.format("%.1f",                     //NOI18N
+                                           filesCount * 1000.0 / elapsed);
+        String seconds = String.format("%.1f", elapsed / 1000.0);       //NOI18N
+        return NbBundle.getMessage(
+                ProgressIndicator.class,
+                cancelled ? "FMT_generator_summary_cancelled"           //NOI18N
+                          : "FMT_generator_summary",                    //NOI18N
+                new Object[] {filesCount,
+                              createdCount,
+                              skippedCount,
+                              seconds,
+                              filesPerSec});
+    }
+
 }
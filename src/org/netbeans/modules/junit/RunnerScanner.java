@@ -0,0 +1,169 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright 1997-2010 Oracle and/or its affiliates. All rights reserved.
+ *
+ * Oracle and Java are registered trademarks of Oracle and/or its affiliates.
+ * Other names may be trademarks of their respective owners.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common
+ * Development and Distribution License("CDDL") (collectively, the
+ * "License"). You may not use this file except in compliance with the
+ * License. You can obtain a copy of the License at
+ * http://www.netbeans.org/cddl-gplv2.html
+ * or nbbuild/licenses/CDDL-GPL-2-CP. See the License for the
+ * specific language governing permissions and limitations under the
+ * License.  When distributing the software, include this License Header
+ * Notice in each file and include the License file at
+ * nbbuild/licenses/CDDL-GPL-2-CP.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the GPL Version 2 section of the License file that
+ * accompanied this code. If applicable, add the following below the
+ * License Header, with the fields enclosed by brackets [] replaced by
+ * your own identifying information:
+ * "Portions Copyrighted [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ *
+ * The Original Software is NetBeans. The Initial Developer of the Original
+ * Software is Sun Microsystems, Inc. Portions Copyright 1997-2008 Sun
+ * Microsystems, Inc. All Rights Reserved.
+ *
+ * If you wish your version of this file to be governed by only the CDDL
+ * or only the GPL Version 2, indicate your decision by adding
+ * "[Contributor] elects to include this software in this distribution
+ * under the [CDDL or GPL Version 2] license." If you do not indicate a
+ * single choice of license, a recipient has the option to distribute
+ * your version of this file under either the CDDL, the GPL Version 2 or
+ * to extend the choice of license to its licensees as provided above.
+ * However, if you add GPL Version 2 code and therefore, elected the GPL
+ * Version 2 license, then the option applies only if the new code is
+ * made subject to such option by the copyright holder.
+ */
+
+package org.netbeans.modules.junit;
+
+/**
+ * Finds the JUnit runner specified by a {@code RunWith} annotation
+ * in Java source text. Whitespace in the text is ignored.
+ * The text may be passed in chunks of any size, so that large sources
+ * (e.g.&nbsp;editor documents) need not be copied to a single string;
+ * scanning stops as soon as the runner is found.
+ */
+public final class RunnerScanner {
+
+    private static final String RUN_WITH = "@RunWith(";                 //NOI18N
+    private static final String RUN_WITH_FQN = "@org.junit.runner.RunWith(";//NOI18N
+    private static final String CLASS_SUFFIX = ".class)";               //NOI18N
+    private static final String PARAMETERIZED = "Parameterized";       //NOI18N
+
+    /** maximum length of the recorded argument of the annotation */
+    private static final int MAX_ARGUMENT_LENGTH = 512;
+
+    /** maximum number of characters kept in the {@link #window} */
+    private static final int WINDOW_SIZE = 2 * RUN_WITH_FQN.length();
+
+    /** last non-whitespace characters preceding the current position */
+    private final StringBuilder window = new StringBuilder(WINDOW_SIZE);
+    /** argument of the annotation, or {@code null} if not found yet */
+    private StringBuilder argument;
+    /** the runner, or {@code null} if not found yet */
+    private String runner;
+
+    /**
+     * Scans the given characters.
+     *
+     * @param  chars  array holding the characters
+     * @param  offset  index of the first character to scan
+     * @param  count  number of characters to scan
+     * @return  {@literal true} if more text should be passed,
+     *          {@literal false} if the runner has already been found
+     */
+    public boolean scan(char[] chars, int offset, int count) {
+        final int end = offset + count;
+        for (int i = offset; (i < end) && (runner == null); i++) {
+            char c = chars[i];
+            if (!Character.isWhitespace(c)) {
+                scan(c);
+            }
+        }
+        return runner == null;
+    }
+
+    private void scan(char c) {
+        if (argument != null) {
+            if (argument.length() < MAX_ARGUMENT_LENGTH) {
+                argument.append(c);
+            }
+            if ((c == ')') && endsWith(argument, CLASS_SUFFIX)) {
+                runner = argument.substring(
+                        0, argument.length() - CLASS_SUFFIX.length());
+            }
+            return;
+        }
+
+        window.append(c);
+        if ((c == '(') && (endsWith(window, RUN_WITH)
+                           || endsWith(window, RUN_WITH_FQN))) {
+            argument = new StringBuilder();
+        } else if (window.length() == WINDOW_SIZE) {
+            window.delete(0, window.length() - RUN_WITH_FQN.length());
+        }
+    }
+
+    private static boolean endsWith(StringBuilder buf, String suffix) {
+        final int start = buf.length() - suffix.length();
+        if (start < 0) {
+            return false;
+        }
+        for (int i = 0; i < suffix.length(); i++) {
+            if (buf.charAt(start + i) != suffix.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Returns the runner found in the text scanned so far.
+     *
+     * @return  runner class literal as written in the source (without
+     *          the trailing {@code ".class"}), or {@literal null} if there
+     *          is no {@code RunWith} annotation in the scanned text
+     */
+    public String getRunner() {
+        if ((runner == null) && (argument != null)) {
+            return argument.toString();
+        }
+        return runner;
+    }
+
+    /**
+     * Checks whether the given runner is JUnit's {@code Parameterized}
+     * runner.
+     *
+     * @param  runner  runner as returned by {@link #getRunner()},
+     *                 or {@literal null}
+     */
+    public static boolean isParameterized(String runner) {
+        return (runner != null) && runner.endsWith(PARAMETERIZED);
+    }
+
+    /**
+     * Finds the runner specified by a {@code RunWith} annotation
+     * in the given source text.
+     *
+     * @param  text  source text of a test class
+     * @return  runner class literal as written in the source (without
+     *          the trailing {@code ".class"}), or {@literal null} if there
+     *          is no {@code RunWith} annotation in the text
+     * @see  #getRunner()
+     */
+    public static String findRunner(String text) {
+        RunnerScanner scanner = new RunnerScanner();
+        scanner.scan(text.toCharArray(), 0, text.length());
+        return scanner.getRunner();
+    }
+
+}
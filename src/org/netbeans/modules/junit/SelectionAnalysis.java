@@ -0,0 +1,250 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright 1997-2010 Oracle and/or its affiliates. All rights reserved.
+ *
+ * Oracle and Java are registered trademarks of Oracle and/or its affiliates.
+ * Other names may be trademarks of their respective owners.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common
+ * Development and Distribution License("CDDL") (collectively, the
+ * "License"). You may not use this file except in compliance with the
+ * License. You can obtain a copy of the License at
+ * http://www.netbeans.org/cddl-gplv2.html
+ * or nbbuild/licenses/CDDL-GPL-2-CP. See the License for the
+ * specific language governing permissions and limitations under the
+ * License.  When distributing the software, include this License Header
+ * Notice in each file and include the License file at
+ * nbbuild/licenses/CDDL-GPL-2-CP.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the GPL Version 2 section of the License file that
+ * accompanied this code. If applicable, add the following below the
+ * License Header, with the fields enclosed by brackets [] replaced by
+ * your own identifying information:
+ * "Portions Copyrighted [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ *
+ * The Original Software is NetBeans. The Initial Developer of the Original
+ * Software is Sun Microsystems, Inc. Portions Copyright 1997-2008 Sun
+ * Microsystems, Inc. All Rights Reserved.
+ *
+ * If you wish your version of this file to be governed by only the CDDL
+ * or only the GPL Version 2, indicate your decision by adding
+ * "[Contributor] elects to include this software in this distribution
+ * under the [CDDL or GPL Version 2] license." If you do not indicate a
+ * single choice of license, a recipient has the option to distribute
+ * your version of this file under either the CDDL, the GPL Version 2 or
+ * to extend the choice of license to its licensees as provided above.
+ * However, if you add GPL Version 2 code and therefore, elected the GPL
+ * Version 2 license, then the option applies only if the new code is
+ * made subject to such option by the copyright holder.
+ */
+
+package org.netbeans.modules.junit;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import org.netbeans.api.java.project.JavaProjectConstants;
+import org.netbeans.api.project.FileOwnerQuery;
+import org.netbeans.api.project.Project;
+import org.netbeans.api.project.ProjectUtils;
+import org.netbeans.api.project.SourceGroup;
+import org.openide.filesystems.FileObject;
+import org.openide.nodes.Node;
+
+/**
+ * Answers questions about a selection of files made by the user - which
+ * project owns each file and which Java {@code SourceGroup} it belongs to.
+ * Answers are cached per folder so that the cost of analysing a selection
+ * grows linearly with its size, no matter how many files from the same
+ * folders are selected.
+ * <p>
+ * An instance is meant to be used for a single selection only, it does not
+ * listen on changes of projects or their source roots.
+ *
+ * @see  JUnitTestCreatorProvider#enable
+ */
+final class SelectionAnalysis {
+
+    /** marks folders known not to be owned by any project */
+    private static final Object NO_OWNER = new Object();
+
+    /** owners of folders, {@link #NO_OWNER} if there is none */
+    private final Map<FileObject, Object> folderOwners
+            = new HashMap<FileObject, Object>();
+    /** root folder &rarr; Java source group, per project */
+    private final Map<Project, Map<FileObject, SourceGroup>> sourceRoots
+            = new HashMap<Project, Map<FileObject, SourceGroup>>(4);
+    /**
+     * the innermost source root found above a folder, or {@code null}
+     * if there is no source root above the folder
+     */
+    private final Map<FileObject, FileObject> folderRoots
+            = new HashMap<FileObject, FileObject>();
+
+    /**
+     * Finds the project owning the given file.
+     * Owners of plain files are cached per parent folder.
+     *
+     * @param  file  file to find an owner of
+     * @return  the owning project, or {@code null} if there is none
+     * @see  FileOwnerQuery#getOwner(FileObject)
+     */
+    Project getOwner(FileObject file) {
+        final FileObject folder = file.isFolder() ? file : file.getParent();
+        if (folder == null) {
+            return FileOwnerQuery.getOwner(file);
+        }
+
+        Object owner = folderOwners.get(folder);
+        if (owner == null) {
+            owner = FileOwnerQuery.getOwner(folder);
+            if (owner == null) {
+                owner = NO_OWNER;
+            }
+            folderOwners.put(folder, owner);
+        }
+        return (owner != NO_OWNER) ? (Project) owner : null;
+    }
+
+    /**
+     * Finds a Java source group of the given project the given file belongs
+     * to. The result is the same as the result of
+     * {@link TestAction#getSourceGroup TestAction.getSourceGroup(...)}
+     * but the source roots are looked up by walking up the folder hierarchy
+     * instead of checking the file against each source group.
+     *
+     * @param  file  file to find a source group for
+     * @param  project  project owning the file
+     * @return  Java source group containing the file,
+     *          or {@code null} if there is no such source group
+     */
+    SourceGroup getSourceGroup(FileObject file, Project project) {
+        final Map<FileObject, SourceGroup> roots = getSourceRoots(project);
+        if (roots.isEmpty()) {
+            return null;
+        }
+
+        FileObject root = findRoot(file, roots);
+        while (root != null) {
+            SourceGroup srcGrp = roots.get(root);
+            if (srcGrp.contains(file)) {
+                return srcGrp;
+            }
+
+            /* the file may be excluded from a nested source group: */
+            FileObject parent = root.getParent();
+            root = (parent != null) ? findRoot(parent, roots) : null;
+        }
+        return null;
+    }
+
+    private Map<FileObject, SourceGroup> getSourceRoots(Project project) {
+        Map<FileObject, SourceGroup> roots = sourceRoots.get(project);
+        if (roots == null) {
+            SourceGroup[] srcGrps = ProjectUtils.getSources(project)
+                    .getSourceGroups(JavaProjectConstants.SOURCES_TYPE_JAVA);
+            roots = new HashMap<FileObject, SourceGroup>(srcGrps.length * 2);
+            for (SourceGroup srcGrp : srcGrps) {
+                FileObject rootFolder = srcGrp.getRootFolder();
+                if (!roots.containsKey(rootFolder)) {
+                    roots.put(rootFolder, srcGrp);
+                }
+            }
+            sourceRoots.put(project, roots);
+        }
+        return roots;
+    }
+
+    /**
+     * Finds the innermost source root being the given file or its ancestor.
+     * All folders visited on the way are remembered so that each folder
+     * is visited at most once during the whole analysis.
+     */
+    private FileObject findRoot(FileObject file,
+                                Map<FileObject, SourceGroup> roots) {
+        if (roots.containsKey(file)) {
+            return file;
+        }
+
+        List<FileObject> visited = null;
+        FileObject folder = file.isFolder() ? file : file.getParent();
+        FileObject root = null;
+        while (folder != null) {
+            if (roots.containsKey(folder)) {
+                root = folder;
+                break;
+            }
+            if (folderRoots.containsKey(folder)) {
+                root = folderRoots.get(folder);
+                break;
+            }
+            if (visited == null) {
+                visited = new ArrayList<FileObject>(8);
+            }
+            visited.add(folder);
+            folder = folder.getParent();
+        }
+        if (visited != null) {
+            for (FileObject f : visited) {
+                folderRoots.put(f, root);
+            }
+        }
+        return root;
+    }
+
+    /**
+     * Finds which of the given nodes have a (direct or indirect) parent node
+     * among the given nodes. Each node on the way from a selected node
+     * to the root of the node hierarchy is only visited once, so the time
+     * needed is linear in the size of the selection.
+     *
+     * @param  nodes  selected nodes
+     * @return  array of flags, {@code true} at index <i>i</i> if
+     *          {@code nodes[i]} has a parent node among the given nodes
+     */
+    static boolean[] findNestedNodes(Node[] nodes) {
+        final boolean[] result = new boolean[nodes.length];
+        if (nodes.length < 2) {
+            return result;
+        }
+
+        final Map<Node, Boolean> selected
+                = new IdentityHashMap<Node, Boolean>(nodes.length * 2);
+        for (Node node : nodes) {
+            selected.put(node, Boolean.TRUE);
+        }
+
+        /* whether there is a selected node among the node or its parents */
+        final Map<Node, Boolean> underSelection
+                = new IdentityHashMap<Node, Boolean>(nodes.length * 2);
+        final List<Node> path = new ArrayList<Node>();
+        for (int i = 0; i < nodes.length; i++) {
+            Node node = nodes[i].getParentNode();
+            Boolean nested = null;
+            while ((node != null) && (nested == null)) {
+                if (selected.containsKey(node)) {
+                    nested = Boolean.TRUE;
+                } else if ((nested = underSelection.get(node)) == null) {
+                    path.add(node);
+                    node = node.getParentNode();
+                }
+            }
+            if (nested == null) {
+                nested = Boolean.FALSE;
+            }
+            for (Node n : path) {
+                underSelection.put(n, nested);
+            }
+            path.clear();
+            result[i] = nested.booleanValue();
+        }
+        return result;
+    }
+
+}
@@ -0,0 +1,187 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright 1997-2010 Oracle and/or its affiliates. All rights reserved.
+ *
+ * Oracle and Java are registered trademarks of Oracle and/or its affiliates.
+ * Other names may be trademarks of their respective owners.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common
+ * Development and Distribution License("CDDL") (collectively, the
+ * "License"). You may not use this file except in compliance with the
+ * License. You can obtain a copy of the License at
+ * http://www.netbeans.org/cddl-gplv2.html
+ * or nbbuild/licenses/CDDL-GPL-2-CP. See the License for the
+ * specific language governing permissions and limitations under the
+ * License.  When distributing the software, include this License Header
+ * Notice in each file and include the License file at
+ * nbbuild/licenses/CDDL-GPL-2-CP.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the GPL Version 2 section of the License file that
+ * accompanied this code. If applicable, add the following below the
+ * License Header, with the fields enclosed by brackets [] replaced by
+ * your own identifying information:
+ * "Portions Copyrighted [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ *
+ * The Original Software is NetBeans. The Initial Developer of the Original
+ * Software is Sun Microsystems, Inc. Portions Copyright 1997-2008 Sun
+ * Microsystems, Inc. All Rights Reserved.
+ *
+ * If you wish your version of this file to be governed by only the CDDL
+ * or only the GPL Version 2, indicate your decision by adding
+ * "[Contributor] elects to include this software in this distribution
+ * under the [CDDL or GPL Version 2] license." If you do not indicate a
+ * single choice of license, a recipient has the option to distribute
+ * your version of this file under either the CDDL, the GPL Version 2 or
+ * to extend the choice of license to its licensees as provided above.
+ * However, if you add GPL Version 2 code and therefore, elected the GPL
+ * Version 2 license, then the option applies only if the new code is
+ * made subject to such option by the copyright holder.
+ */
+
+package org.netbeans.modules.junit;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.VariableElement;
+import javax.lang.model.util.Types;
+import org.openide.filesystems.FileObject;
+
+/**
+ * Fingerprint of the testable methods of a source class.
+ * The fingerprint is a sorted set of erased method signatures. It is stored
+ * as an attribute of the test file so that subsequent runs of test creation
+ * can find out whether the set of testable methods has changed since
+ * the test class was last generated or updated.
+ *
+ * @see  JUnitSettings#isIncrementalUpdate()
+ */
+final class SourceFingerprint {
+
+    /** prefix of names of test file attributes holding the fingerprints */
+    private static final String ATTR_PREFIX = "junit-src-fingerprint:"; //NOI18N
+    /** separator of signatures in the stored fingerprint */
+    private static final char SEPARATOR = '\n';
+
+    /** erased signatures of the testable methods, sorted */
+    private final Set<String> signatures;
+
+    private SourceFingerprint(Set<String> signatures) {
+        this.signatures = signatures;
+    }
+
+    /**
+     * Computes a fingerprint of the given source methods.
+     *
+     * @param  methods  testable methods of a source class
+     * @param  types  types utility used to erase parameter types
+     * @return  fingerprint of the given methods
+     */
+    static SourceFingerprint compute(List<ExecutableElement> methods,
+                                     Types types) {
+        Set<String> signatures = new TreeSet<String>();
+        for (ExecutableElement method : methods) {
+            signatures.add(getSignature(method, types));
+        }
+        return new SourceFingerprint(signatures);
+    }
+
+    /**
+     * Returns an erased signature of the given method,
+     * e.g. {@code "indexOf(java.lang.String,int)"}.
+     */
+    static String getSignature(ExecutableElement method, Types types) {
+        StringBuilder buf = new StringBuilder(64);
+        buf.append(method.getSimpleName()).append('(');
+        boolean first = true;
+        for (VariableElement param : method.getParameters()) {
+            if (!first) {
+                buf.append(',');
+            }
+            buf.append(types.erasure(param.asType()));
+            first = false;
+        }
+        return buf.append(')').toString();
+    }
+
+    /**
+     * Reads a fingerprint stored with the given test file.
+     *
+     * @param  testFile  test file the fingerprint was stored with
+     * @param  srcClassName  fully qualified name of the tested source class
+     * @return  the stored fingerprint, or {@literal null} if no fingerprint
+     *          was stored for the given source class
+     */
+    static SourceFingerprint read(FileObject testFile, String srcClassName) {
+        Object value = testFile.getAttribute(ATTR_PREFIX + srcClassName);
+        if (!(value instanceof String)) {
+            return null;
+        }
+        String str = (String) value;
+        Set<String> signatures = new TreeSet<String>();
+        int start = 0;
+        while (start < str.length()) {
+            int end = str.indexOf(SEPARATOR, start);
+            if (end == -1) {
+                end = str.length();
+            }
+            if (end > start) {
+                signatures.add(str.substring(start, end));
+            }
+            start = end + 1;
+        }
+        return new SourceFingerprint(signatures);
+    }
+
+    /**
+     * Stores this fingerprint with the given test file.
+     *
+     * @param  testFile  test file to store the fingerprint with
+     * @param  srcClassName  fully qualified name of the tested source class
+     */
+    void store(FileObject testFile, String srcClassName) throws IOException {
+        StringBuilder buf = new StringBuilder(signatures.size() * 32);
+        for (String signature : signatures) {
+            if (buf.length() != 0) {
+                buf.append(SEPARATOR);
+            }
+            buf.append(signature);
+        }
+        testFile.setAttribute(ATTR_PREFIX + srcClassName, buf.toString());
+    }
+
+    /**
+     * Checks whether this fingerprint contains a given method signature.
+     *
+     * @param  signature  signature as returned by
+     *                    {@link #getSignature getSignature(...)}
+     */
+    boolean contains(String signature) {
+        return signatures.contains(signature);
+    }
+
+    /**
+     */
+    Set<String> getSignatures() {
+        return Collections.unmodifiableSet(signatures);
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        return (obj instanceof SourceFingerprint)
+               && signatures.equals(((SourceFingerprint) obj).signatures);
+    }
+
+    @Override
+    public int hashCode() {
+        return signatures.hashCode();
+    }
+
+}
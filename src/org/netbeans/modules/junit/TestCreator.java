@@ -64,13 +64,14 @@ import org.netbeans.api.java.source.Task;
 //import org.netbeans.modules.junit.plugin.JUnitPlugin.CreateTestParam;
 import org.netbeans.modules.gsf.testrunner.plugin.CommonPlugin.CreateTestParam;
 import org.openide.filesystems.FileObject;
+import org.openide.util.Cancellable;
 import org.openide.util.Exceptions;
 
 /**
  *
  * @author  Marian Petras
  */
-public final class TestCreator implements TestabilityJudge {
+public final class TestCreator implements TestabilityJudge, Cancellable {
     
     /**
      * bitmap combining modifiers PUBLIC, PROTECTED and PRIVATE
@@ -86,6 +87,10 @@ public final class TestCreator implements TestabilityJudge {
     private final TestGeneratorSetup setup;
     /** */
     private final JUnitVersion junitVersion;
+    /** generator of the test currently being created or updated */
+    private volatile AbstractTestGenerator currentGenerator;
+    /** */
+    private volatile boolean cancelled = false;
     
     /** Creates a new instance of TestCreator */
     TestCreator(boolean loadDefaults,
@@ -148,6 +153,11 @@ public final class TestCreator implements TestabilityJudge {
                 throw new IllegalStateException("junit version not set");//NOI18N
         }
         doModifications(testFileObj, testGenerator);
+
+        for (Map.Entry<String, SourceFingerprint> entry
+                : testGenerator.getSourceFingerprints().entrySet()) {
+            entry.getValue().store(testFileObj, entry.getKey());
+        }
     }
     
     /**
@@ -183,17 +193,38 @@ public final class TestCreator implements TestabilityJudge {
     private void doModifications(final FileObject testFileObj,
                                  final AbstractTestGenerator testGenerator)
                                                             throws IOException {
+        currentGenerator = testGenerator;
+        if (cancelled) {
+            testGenerator.cancel();
+        }
         final JavaSource javaSource = JavaSource.forFileObject(testFileObj);
-        javaSource.runUserActionTask(
-                new Task<CompilationController>() {
-                    public void run(CompilationController parameter) throws Exception {
-                        ModificationResult result
-                                = javaSource.runModificationTask(testGenerator);
-                        result.commit();
-                    }
-                },
-            true);
+        try {
+            javaSource.runUserActionTask(
+                    new Task<CompilationController>() {
+                        public void run(CompilationController parameter) throws Exception {
+                            ModificationResult result
+                                    = javaSource.runModificationTask(testGenerator);
+                            result.commit();
+                        }
+                    },
+                true);
+        } finally {
+            currentGenerator = null;
+        }
+    }
 
+    /**
+     * Cancels creation of tests. Creation of the current test class
+     * is stopped as soon as the test class for the current source class
+     * is finished; no more test classes are created by this creator.
+     */
+    public boolean cancel() {
+        cancelled = true;
+        AbstractTestGenerator generator = currentGenerator;
+        if (generator != null) {
+            generator.cancel();
+        }
+        return true;
     }
     
     public TestabilityResult isClassTestable(CompilationInfo compInfo,
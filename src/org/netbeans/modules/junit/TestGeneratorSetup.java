@@ -170,6 +170,13 @@ public final class TestGeneratorSetup implements TestabilityJudge {
      * @see  #generateTearDown
      */
     private boolean generateMainMethod = true;
+    /**
+     * should existing test classes be updated incrementally, according to
+     * fingerprints of source classes stored with the test files?
+     *
+     * @see  SourceFingerprint
+     */
+    private boolean incrementalUpdate = false;
     
     /* public methods */
     
@@ -228,6 +235,7 @@ public final class TestGeneratorSetup implements TestabilityJudge {
                                         CreateTestParam.INC_CLASS_TEAR_DOWN));
         
         generateMainMethod = settings.isGenerateMainMethod();
+        incrementalUpdate = settings.isIncrementalUpdate();
     }
 
     
@@ -260,6 +268,7 @@ public final class TestGeneratorSetup implements TestabilityJudge {
         generateClassSetUp = settings.isGenerateClassSetUp();
         generateClassTearDown = settings.isGenerateClassTearDown();
         generateMainMethod = settings.isGenerateMainMethod();
+        incrementalUpdate = settings.isIncrementalUpdate();
     }
     
     /**
@@ -617,6 +626,25 @@ public final class TestGeneratorSetup implements TestabilityJudge {
         return generateMainMethod;
     }
 
+    /**
+     * Sets whether existing test classes should be updated incrementally,
+     * i.e. whether test classes of source classes whose set of testable
+     * methods did not change since the last run should be skipped.
+     * The default is <code>false</code>.
+     *
+     * @param  incremental  <code>true</code> for incremental updates;
+     *                      <code>false</code> otherwise
+     */
+    public void setIncrementalUpdate(boolean incremental) {
+        this.incrementalUpdate = incremental;
+    }
+
+    /**
+     */
+    public boolean isIncrementalUpdate() {
+        return incrementalUpdate;
+    }
+
     /**
      * Checks whether the given class or at least one of its nested classes
      * is testable.
@@ -79,7 +79,7 @@ final class TestMethodNameGenerator {
      */
     private Collection<String> reservedNames;
 
-    private final WorkingCopy             workingCopy;
+    private final TypeNameCache           typeNameCache;
     private final List<ExecutableElement> srcMethods;
     private final TypeElement             tstClassElem;
     private final List<ExecutableElement> existingMethods;
@@ -88,10 +88,10 @@ final class TestMethodNameGenerator {
 
     private TestMethodNameGenerator(final List<ExecutableElement> srcMethods,
                                     final TypeElement tstClassElem,
-                                    WorkingCopy workingCopy) {
+                                    TypeNameCache typeNameCache) {
         this.srcMethods = srcMethods;
         this.tstClassElem = tstClassElem;
-        this.workingCopy = workingCopy;
+        this.typeNameCache = typeNameCache;
 
         existingMethods = (tstClassElem != null)
                           ? getExistingMethods(tstClassElem)
@@ -127,8 +127,28 @@ final class TestMethodNameGenerator {
                                     final TypeElement tstClassElem,
                                     final Collection<String> reservedMethodNames,
                                     final WorkingCopy workingCopy) {
+        return getTestMethodNames(srcMethods,
+                                  tstClassElem,
+                                  reservedMethodNames,
+                                  TypeNameCache.forCompilationInfo(workingCopy));
+    }
+
+    /**
+     * Generates a list of unique names of test methods for the given source
+     * methods, using the given cache of type names.
+     * The cache may be shared by multiple calls of this method as long as
+     * all the calls are made within the same compilation context.
+     * 
+     * @param typeNameCache  cache of type names to be used
+     * @see  #getTestMethodNames(List, TypeElement, Collection, WorkingCopy)
+     */
+    static List<String> getTestMethodNames(
+                                    final List<ExecutableElement> srcMethods,
+                                    final TypeElement tstClassElem,
+                                    final Collection<String> reservedMethodNames,
+                                    final TypeNameCache typeNameCache) {
         TestMethodNameGenerator inst
-                = new TestMethodNameGenerator(srcMethods, tstClassElem, workingCopy);
+                = new TestMethodNameGenerator(srcMethods, tstClassElem, typeNameCache);
         if (reservedMethodNames != null) {
             inst.reservedNames.addAll(reservedMethodNames);
         }
@@ -313,8 +333,7 @@ final class TestMethodNameGenerator {
             if (!paramTypes.isEmpty()) {
                 typeIdGenerator = TypeNameIdGenerator.createFor(
                                                         paramTypes,
-                                                        workingCopy.getElements(),
-                                                        workingCopy.getTypes());
+                                                        typeNameCache);
             }
 
             assert namesUsage.isEmpty();
@@ -464,7 +483,7 @@ final class TestMethodNameGenerator {
                     suffix++;
                     methodName = noNumMethodName + suffix;
                 } while (reservedNames.contains(methodName));
-                usageNumbers.put(methodName, Integer.valueOf(suffix));
+                usageNumbers.put(noNumMethodName, Integer.valueOf(suffix));
 
                 /* fixate immediately to ensure thare are really no conflicts */
                 result[index] = methodName;
@@ -534,7 +553,7 @@ final class TestMethodNameGenerator {
      */
     private void collectExistingMethodNames(TypeElement clazz,
                                             Collection<String> reservedMethodNames) {
-        final Elements elements = workingCopy.getElements();
+        final Elements elements = typeNameCache.getElements();
         List<? extends Element> allMembers = elements.getAllMembers(clazz);
         List<? extends ExecutableElement> methods = ElementFilter.methodsIn(allMembers);
         if (!methods.isEmpty()) {
@@ -0,0 +1,158 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright 1997-2010 Oracle and/or its affiliates. All rights reserved.
+ *
+ * Oracle and Java are registered trademarks of Oracle and/or its affiliates.
+ * Other names may be trademarks of their respective owners.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common
+ * Development and Distribution License("CDDL") (collectively, the
+ * "License"). You may not use this file except in compliance with the
+ * License. You can obtain a copy of the License at
+ * http://www.netbeans.org/cddl-gplv2.html
+ * or nbbuild/licenses/CDDL-GPL-2-CP. See the License for the
+ * specific language governing permissions and limitations under the
+ * License.  When distributing the software, include this License Header
+ * Notice in each file and include the License file at
+ * nbbuild/licenses/CDDL-GPL-2-CP.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the GPL Version 2 section of the License file that
+ * accompanied this code. If applicable, add the following below the
+ * License Header, with the fields enclosed by brackets [] replaced by
+ * your own identifying information:
+ * "Portions Copyrighted [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ *
+ * The Original Software is NetBeans. The Initial Developer of the Original
+ * Software is Sun Microsystems, Inc. Portions Copyright 1997-2008 Sun
+ * Microsystems, Inc. All Rights Reserved.
+ *
+ * If you wish your version of this file to be governed by only the CDDL
+ * or only the GPL Version 2, indicate your decision by adding
+ * "[Contributor] elects to include this software in this distribution
+ * under the [CDDL or GPL Version 2] license." If you do not indicate a
+ * single choice of license, a recipient has the option to distribute
+ * your version of this file under either the CDDL, the GPL Version 2 or
+ * to extend the choice of license to its licensees as provided above.
+ * However, if you add GPL Version 2 code and therefore, elected the GPL
+ * Version 2 license, then the option applies only if the new code is
+ * made subject to such option by the copyright holder.
+ */
+
+package org.netbeans.modules.junit;
+
+import java.util.HashMap;
+import java.util.Map;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.Elements;
+import javax.lang.model.util.Types;
+import org.netbeans.api.java.source.CompilationInfo;
+
+/**
+ * Cache of type names used when generating names of test methods.
+ * Computing a binary name of a type requires erasure of the type and a lookup
+ * of the binary name of its element which is relatively expensive if it is
+ * done for each parameter of each overloaded method. The cache is bound
+ * to a single compilation context (e.g. a single {@code WorkingCopy})
+ * so that it can be shared by all classes processed in the same context.
+ */
+final class TypeNameCache {
+
+    private final Elements elements;
+    private final Types types;
+
+    /** type elements mapped to their binary names */
+    private final Map<TypeElement, String> fullNames
+            = new HashMap<TypeElement, String>(64);
+    /** binary type names mapped to their brief names */
+    private final Map<String, String> briefNames
+            = new HashMap<String, String>(64);
+
+    TypeNameCache(Elements elements, Types types) {
+        this.elements = elements;
+        this.types = types;
+    }
+
+    /**
+     * Creates a cache for the given compilation context.
+     */
+    static TypeNameCache forCompilationInfo(CompilationInfo compInfo) {
+        return new TypeNameCache(compInfo.getElements(), compInfo.getTypes());
+    }
+
+    Elements getElements() {
+        return elements;
+    }
+
+    Types getTypes() {
+        return types;
+    }
+
+    /**
+     * Returns the binary name of the given declared type.
+     * If the type is parameterized, its erasure is used instead.
+     * 
+     * @param  type  declared type
+     * @return  binary name of the type
+     */
+    String getTypeFullName(TypeMirror type) {
+        assert type.getKind() == TypeKind.DECLARED;
+        TypeElement typeElem = (TypeElement) ((DeclaredType) type).asElement();
+        String result = fullNames.get(typeElem);
+        if (result == null) {
+            DeclaredType typeErasure = (DeclaredType) types.erasure(type);
+            TypeElement typeErasureElem = (TypeElement) typeErasure.asElement();
+            result = elements.getBinaryName(typeErasureElem).toString();
+            fullNames.put(typeElem, result);
+        }
+        return result;
+    }
+
+    /**
+     * Returns a brief version of a given type name.
+     * 
+     * @param  typeFullName  full type name
+     * @return  brief version of the type, i.e. package name is stripped
+     *          and names of outer classes are concatenated
+     */
+    String getTypeBriefName(String typeFullName) {
+        String result = briefNames.get(typeFullName);
+        if (result == null) {
+            result = makeTypeBriefName(typeFullName);
+            briefNames.put(typeFullName, result);
+        }
+        return result;
+    }
+
+    /**
+     * Returns a brief version of a given type name.
+     * 
+     * @param  typeFullName  full type name
+     * @return  brief version of the type, i.e. package name is stripped
+     */
+    private static String makeTypeBriefName(String typeFullName) {
+        int dotIndex = typeFullName.lastIndexOf('.');
+        String result = (dotIndex == -1) ? typeFullName
+                                         : typeFullName.substring(dotIndex + 1);
+        if (result.indexOf('$') == -1) {
+            return result;
+        }
+
+        /* nested class */
+        StringBuilder buf = new StringBuilder(result.length());
+        for (int i = 0; i < result.length(); i++) {
+            char c = result.charAt(i);
+            if (c != '$') {
+                buf.append(c);
+            }
+        }
+        return buf.toString();
+    }
+
+}
@@ -49,9 +49,7 @@ import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
-import javax.lang.model.element.TypeElement;
 import javax.lang.model.type.ArrayType;
-import javax.lang.model.type.DeclaredType;
 import javax.lang.model.type.TypeKind;
 import javax.lang.model.type.TypeMirror;
 import javax.lang.model.util.Elements;
@@ -71,8 +69,7 @@ final class TypeNameIdGenerator {
 
     private static final String ARRAY_SUFFIX = "Arr";                   //NOI18N
 
-    private final Elements elements;
-    private final Types types;
+    private final TypeNameCache typeNameCache;
     /**
      * mapping between full type names and the corresponding shorter string
      * identifiers
@@ -85,11 +82,10 @@ final class TypeNameIdGenerator {
      * {@linkplain mapping table}. It must be filled by method
      * {@link generateMapping}.
      * 
-     * @param  types  an instance of a utility class {code Types}
+     * @param  typeNameCache  cache of type names to be used
      */
-    private TypeNameIdGenerator(Elements elements, Types types) {
-        this.elements = elements;
-        this.types = types;
+    private TypeNameIdGenerator(TypeNameCache typeNameCache) {
+        this.typeNameCache = typeNameCache;
 
         qualNameToId = new HashMap<String, String>(20);
     }
@@ -107,8 +103,23 @@ final class TypeNameIdGenerator {
     static TypeNameIdGenerator createFor(Collection<TypeMirror> paramTypes,
                                          Elements elements,
                                          Types types) {
-        final TypeNameIdGenerator inst = new TypeNameIdGenerator(elements,
-                                                                 types);
+        return createFor(paramTypes, new TypeNameCache(elements, types));
+    }
+
+    /**
+     * Generates an instance of this class which will be able to translate
+     * between parameter types and the corresponding unique string identifiers.
+     * @param  paramTypes  parameter types that the instance must be able
+     *                    to translate
+     * @param  typeNameCache  cache of type names, possibly shared with other
+     *                        instances working in the same compilation context
+     * @return  instance of generator that is ready to translate any of the
+     *          given type to a unique string identifier
+     * @see  #getParamTypeId
+     */
+    static TypeNameIdGenerator createFor(Collection<TypeMirror> paramTypes,
+                                         TypeNameCache typeNameCache) {
+        final TypeNameIdGenerator inst = new TypeNameIdGenerator(typeNameCache);
         inst.generateMapping(paramTypes);
         return inst;
     }
@@ -164,7 +175,7 @@ final class TypeNameIdGenerator {
                 } while (compTypeKind == ARRAY);
 
                 if (compTypeKind == DECLARED) {
-                    String compTypeFullName = getTypeFullName(compType);
+                    String compTypeFullName = typeNameCache.getTypeFullName(compType);
                     fullTypeName = fullTypeNameBuf
                                    .append(compTypeFullName)
                                    .toString();
@@ -173,7 +184,8 @@ final class TypeNameIdGenerator {
                         continue;
                     }
                     briefTypeName = briefTypeNameBuf
-                                    .insert(0, getTypeBriefName(compTypeFullName))
+                                    .insert(0, typeNameCache.getTypeBriefName(
+                                                            compTypeFullName))
                                     .toString();
                 } else {
                     String typeId;
@@ -196,12 +208,12 @@ final class TypeNameIdGenerator {
                 }
             } else {
                 assert (kind == DECLARED);
-                fullTypeName = getTypeFullName(type);
+                fullTypeName = typeNameCache.getTypeFullName(type);
                 if (!processedTypes.add(fullTypeName)) {
                     /* this type has been already processed */
                     continue;
                 }
-                briefTypeName = getTypeBriefName(fullTypeName);
+                briefTypeName = typeNameCache.getTypeBriefName(fullTypeName);
             }
 
             fullTypeNames.add(fullTypeName);
@@ -500,7 +512,7 @@ final class TypeNameIdGenerator {
 
             if (compTypeKind == DECLARED) {
                 fullTypeName = fullTypeNameBuf
-                               .append(getTypeFullName(compType))
+                               .append(typeNameCache.getTypeFullName(compType))
                                .toString();
             } else if (compTypeKind.isPrimitive()) {
                 StringBuilder paramTypeIdBuf = new StringBuilder(17);
@@ -514,7 +526,7 @@ final class TypeNameIdGenerator {
             }
         } else {
             assert (kind == DECLARED);
-            fullTypeName = getTypeFullName(type);
+            fullTypeName = typeNameCache.getTypeFullName(type);
         }
 
         String id = qualNameToId.get(fullTypeName);
@@ -524,42 +536,6 @@ final class TypeNameIdGenerator {
         return id;
     }
 
-    /**
-     * Generates a string describing the given type. If the type is
-     * parameterized, its erasure is used instead.
-     * 
-     * @param  type  type for which a string identifier is to be generated
-     * @return  generated string identifier for the given type
-     */
-    private String getTypeFullName(TypeMirror type) {
-        assert type.getKind() == DECLARED;
-        DeclaredType typeErasure = (DeclaredType) types.erasure(type);
-        TypeElement typeErasureElem = (TypeElement) typeErasure.asElement();
-        return elements.getBinaryName(typeErasureElem).toString();
-    }
-
-    /**
-     * Returns a brief version of a given type name.
-     * 
-     * @param  typeFullName  full type name
-     * @return  brief version of the type, i.e. package name is stripped
-     */
-    private static String getTypeBriefName(String typeFullName) {
-        int dotIndex = typeFullName.lastIndexOf('.');
-        String result = (dotIndex == -1) ? typeFullName
-                                         : typeFullName.substring(dotIndex + 1);
-        int dollarIndex = result.lastIndexOf('$');
-        if (dollarIndex != -1) {        //nested class
-            StringBuilder buf = new StringBuilder(result);
-            do {
-                buf.deleteCharAt(dollarIndex);
-                dollarIndex = result.lastIndexOf('$', dollarIndex - 1);
-            } while (dollarIndex != -1);
-            result = buf.toString();
-        }
-        return result;
-    }
-
     /**
      * Returns a longer type Id of the given type.
      * The longer type Id is made of brief type Id by prepending an abbreviation
@@ -0,0 +1,108 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright 1997-2010 Oracle and/or its affiliates. All rights reserved.
+ *
+ * Oracle and Java are registered trademarks of Oracle and/or its affiliates.
+ * Other names may be trademarks of their respective owners.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common
+ * Development and Distribution License("CDDL") (collectively, the
+ * "License"). You may not use this file except in compliance with the
+ * License. You can obtain a copy of the License at
+ * http://www.netbeans.org/cddl-gplv2.html
+ * or nbbuild/licenses/CDDL-GPL-2-CP. See the License for the
+ * specific language governing permissions and limitations under the
+ * License.  When distributing the software, include this License Header
+ * Notice in each file and include the License file at
+ * nbbuild/licenses/CDDL-GPL-2-CP.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the GPL Version 2 section of the License file that
+ * accompanied this code. If applicable, add the following below the
+ * License Header, with the fields enclosed by brackets [] replaced by
+ * your own identifying information:
+ * "Portions Copyrighted [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ *
+ * The Original Software is NetBeans. The Initial Developer of the Original
+ * Software is Sun Microsystems, Inc. Portions Copyright 1997-2008 Sun
+ * Microsystems, Inc. All Rights Reserved.
+ *
+ * If you wish your version of this file to be governed by only the CDDL
+ * or only the GPL Version 2, indicate your decision by adding
+ * "[Contributor] elects to include this software in this distribution
+ * under the [CDDL or GPL Version 2] license." If you do not indicate a
+ * single choice of license, a recipient has the option to distribute
+ * your version of this file under either the CDDL, the GPL Version 2 or
+ * to extend the choice of license to its licensees as provided above.
+ * However, if you add GPL Version 2 code and therefore, elected the GPL
+ * Version 2 license, then the option applies only if the new code is
+ * made subject to such option by the copyright holder.
+ */
+
+package org.netbeans.modules.junit.actions;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+import javax.swing.Action;
+import org.netbeans.api.java.project.JavaProjectConstants;
+import org.netbeans.api.progress.ProgressUtils;
+import org.netbeans.api.project.Project;
+import org.netbeans.api.project.ProjectUtils;
+import org.netbeans.modules.junit.output.AffectedTests;
+import org.netbeans.spi.project.ui.support.ProjectActionPerformer;
+import org.netbeans.spi.project.ui.support.ProjectSensitiveActions;
+import org.openide.awt.StatusDisplayer;
+import org.openide.util.NbBundle;
+
+/**
+ * Runs tests of the selected project that are affected by changes made since
+ * the tests last passed. Deleted and renamed classes are only detected
+ * if the action was already used in the project before they were removed.
+ *
+ * @see  AffectedTests
+ */
+public final class RunAffectedTestsAction implements ProjectActionPerformer {
+
+    private RunAffectedTestsAction() {
+    }
+
+    /**
+     * Creates the action. Referenced from the layer.
+     */
+    public static Action create() {
+        return ProjectSensitiveActions.projectSensitiveAction(
+                new RunAffectedTestsAction(),
+                NbBundle.getMessage(RunAffectedTestsAction.class,
+                                    "LBL_Action_RunAffectedTests"),     //NOI18N
+                null);
+    }
+
+    @Override
+    public boolean enable(Project project) {
+        return (project != null)
+               && (ProjectUtils.getSources(project).getSourceGroups(
+                        JavaProjectConstants.SOURCES_TYPE_JAVA).length != 0);
+    }
+
+    @Override
+    public void perform(final Project project) {
+        final AtomicBoolean cancel = new AtomicBoolean();
+        ProgressUtils.runOffEventDispatchThread(new Runnable() {
+
+            @Override
+            public void run() {
+                if ((AffectedTests.run(project, cancel) == 0) && !cancel.get()) {
+                    StatusDisplayer.getDefault().setStatusText(
+                            NbBundle.getMessage(RunAffectedTestsAction.class,
+                                                "MSG_NoAffectedTests"));//NOI18N
+                }
+            }
+        },
+        NbBundle.getMessage(RunAffectedTestsAction.class,
+                            "LBL_Action_RunAffectedTests"),             //NOI18N
+        cancel, false);
+    }
+
+}
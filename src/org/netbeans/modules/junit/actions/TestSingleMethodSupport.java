@@ -47,7 +47,9 @@ import java.util.concurrent.Future;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import javax.swing.JEditorPane;
+import javax.swing.text.BadLocationException;
 import javax.swing.text.Document;
+import javax.swing.text.Segment;
 import org.netbeans.api.java.queries.UnitTestForSourceQuery;
 import org.netbeans.api.java.source.JavaSource;
 import org.netbeans.api.project.FileOwnerQuery;
@@ -55,6 +57,7 @@ import org.netbeans.api.project.Project;
 import org.netbeans.api.project.SourceGroup;
 import org.netbeans.modules.java.testrunner.CommonTestUtil;
 import org.netbeans.modules.java.testrunner.Utils;
+import org.netbeans.modules.junit.RunnerScanner;
 import org.netbeans.spi.project.SingleMethod;
 import org.openide.cookies.EditorCookie;
 import org.openide.filesystems.FileObject;
@@ -72,6 +75,9 @@ public class TestSingleMethodSupport {
     private TestSingleMethodSupport() {
     }private static final Logger LOGGER = Logger.getLogger(TestSingleMethodSupport.class.getName());
 
+    /** maximum number of characters of a document read at once */
+    private static final int SCAN_CHUNK_SIZE = 4096;
+
     public static boolean isTestClass(Node activatedNode) {
         FileObject fileObject = CommonTestUtil.getFileObjectFromNode(activatedNode);
         if (fileObject != null && CommonTestUtil.isJavaFile(fileObject)) {
@@ -129,13 +135,8 @@ public class TestSingleMethodSupport {
 		    }
 		});
 		if (pane != null) {
-		    String text = pane.getText();
-                    if (text != null) {  //NOI18N
-                        text = text.replaceAll("\n", "").replaceAll(" ", "");
-			if ((text.contains("@RunWith") || text.contains("@org.junit.runner.RunWith")) //NOI18N
-			    && text.contains("Parameterized.class)")) {  //NOI18N
-			    return false;
-			}
+                    if (isParameterizedTest(pane.getDocument())) {
+                        return false;
                     }
                     SingleMethod sm = getTestMethod(pane.getDocument(), pane.getCaret().getDot());
                     if(sm != null) {
@@ -146,5 +147,43 @@ public class TestSingleMethodSupport {
         }
         return false;
     }
+
+    /**
+     * Checks whether the given document contains a test class run by
+     * JUnit's {@code Parameterized} runner. The document text is scanned
+     * in bounded chunks, without copying the whole text, as the check
+     * is performed each time a test method is to be run.
+     */
+    static boolean isParameterizedTest(final Document doc) {
+        final boolean[] result = new boolean[1];
+        doc.render(new Runnable() {
+            @Override
+            public void run() {
+                RunnerScanner scanner = new RunnerScanner();
+                Segment segment = new Segment();
+                segment.setPartialReturn(true);
+                final int length = doc.getLength();
+                int offset = 0;
+                try {
+                    while (offset < length) {
+                        doc.getText(offset,
+                                    Math.min(SCAN_CHUNK_SIZE, length - offset),
+                                    segment);
+                        if ((segment.count == 0)
+                                || !scanner.scan(segment.array,
+                                                 segment.offset,
+                                                 segment.count)) {
+                            break;
+                        }
+                        offset += segment.count;
+                    }
+                } catch (BadLocationException ex) {
+                    LOGGER.log(Level.FINE, null, ex);
+                }
+                result[0] = RunnerScanner.isParameterized(scanner.getRunner());
+            }
+        });
+        return result[0];
+    }
     
 }
@@ -0,0 +1,380 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright 1997-2010 Oracle and/or its affiliates. All rights reserved.
+ *
+ * Oracle and Java are registered trademarks of Oracle and/or its affiliates.
+ * Other names may be trademarks of their respective owners.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common
+ * Development and Distribution License("CDDL") (collectively, the
+ * "License"). You may not use this file except in compliance with the
+ * License. You can obtain a copy of the License at
+ * http://www.netbeans.org/cddl-gplv2.html
+ * or nbbuild/licenses/CDDL-GPL-2-CP. See the License for the
+ * specific language governing permissions and limitations under the
+ * License.  When distributing the software, include this License Header
+ * Notice in each file and include the License file at
+ * nbbuild/licenses/CDDL-GPL-2-CP.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the GPL Version 2 section of the License file that
+ * accompanied this code. If applicable, add the following below the
+ * License Header, with the fields enclosed by brackets [] replaced by
+ * your own identifying information:
+ * "Portions Copyrighted [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ *
+ * The Original Software is NetBeans. The Initial Developer of the Original
+ * Software is Sun Microsystems, Inc. Portions Copyright 1997-2008 Sun
+ * Microsystems, Inc. All Rights Reserved.
+ *
+ * If you wish your version of this file to be governed by only the CDDL
+ * or only the GPL Version 2, indicate your decision by adding
+ * "[Contributor] elects to include this software in this distribution
+ * under the [CDDL or GPL Version 2] license." If you do not indicate a
+ * single choice of license, a recipient has the option to distribute
+ * your version of this file under either the CDDL, the GPL Version 2 or
+ * to extend the choice of license to its licensees as provided above.
+ * However, if you add GPL Version 2 code and therefore, elected the GPL
+ * Version 2 license, then the option applies only if the new code is
+ * made subject to such option by the copyright holder.
+ */
+
+package org.netbeans.modules.junit.output;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.EnumSet;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.TypeElement;
+import org.netbeans.api.java.classpath.ClassPath;
+import org.netbeans.api.java.project.JavaProjectConstants;
+import org.netbeans.api.java.queries.UnitTestForSourceQuery;
+import org.netbeans.api.java.source.ClassIndex;
+import org.netbeans.api.java.source.ClasspathInfo;
+import org.netbeans.api.java.source.ElementHandle;
+import org.netbeans.api.project.Project;
+import org.netbeans.api.project.ProjectUtils;
+import org.netbeans.api.project.SourceGroup;
+import org.netbeans.spi.java.classpath.support.ClassPathSupport;
+import org.openide.filesystems.FileObject;
+import org.openide.filesystems.FileUtil;
+import org.openide.filesystems.URLMapper;
+import org.openide.util.NbBundle;
+
+/**
+ * Finds and runs test classes of a project that are affected by changes
+ * of the project's sources made since the test classes last passed.
+ * <p>
+ * A test class is affected if it never passed (according to the project's
+ * {@link TestHistory}), if it failed during its last run, or if it depends,
+ * directly or through other classes of the project, on a source file
+ * modified after the test class last passed. Dependencies are taken from
+ * the Java class index built by the IDE.
+ * Classes deleted or renamed since the previous search (see
+ * {@link RemovedClasses}) are treated as changed at the time the search
+ * noticed their removal; classes removed before the first search in the
+ * project cannot be detected.
+ * Only classes whose names end with {@code Test} are considered to be test
+ * classes, as in the default test includes of Java projects.
+ */
+public final class AffectedTests {
+
+    private static final String JAVA_EXT = "java";                      //NOI18N
+    private static final String TEST_SUFFIX = "Test";                   //NOI18N
+
+    private static final Logger LOG
+            = Logger.getLogger(AffectedTests.class.getName());
+
+    private final Project project;
+    private final AtomicBoolean cancel;
+    private final Set<FileObject> sourceRoots = new LinkedHashSet<FileObject>();
+    private final Set<FileObject> testRoots = new LinkedHashSet<FileObject>();
+    /** test class name &rarr; test file */
+    private final Map<String, FileObject> testClasses
+            = new LinkedHashMap<String, FileObject>();
+    /** file &rarr; files referring to its class */
+    private final Map<FileObject, Set<FileObject>> dependents
+            = new HashMap<FileObject, Set<FileObject>>();
+    private ClassIndex classIndex;
+
+    private AffectedTests(Project project, AtomicBoolean cancel) {
+        this.project = project;
+        this.cancel = cancel;
+    }
+
+    /**
+     * Runs test classes of the given project affected by changes made
+     * since the classes last passed.
+     *
+     * @param  project  project whose tests should be run
+     * @param  cancel  flag that is set when the search should be cancelled
+     * @return  number of test classes run
+     */
+    public static int run(Project project, AtomicBoolean cancel) {
+        AffectedTests affectedTests = new AffectedTests(project, cancel);
+        File classesFile = RemovedClasses.getClassesFile(project);
+        RemovedClasses removedClasses = RemovedClasses.read(classesFile);
+        Map<String, String> toTest = affectedTests.find(
+                TestHistory.read(TestHistory.getHistoryFile(project)),
+                removedClasses);
+        if (cancel.get()) {
+            return 0;
+        }
+        if (classesFile != null) {
+            try {
+                removedClasses.write(classesFile);
+            } catch (IOException ex) {
+                LOG.log(Level.INFO, "Cannot write list of classes " + classesFile, ex);//NOI18N
+            }
+        }
+        if (toTest.isEmpty()) {
+            return 0;
+        }
+
+        FileObject someTestFO = affectedTests.testClasses.get(
+                toTest.keySet().iterator().next());
+        JUnitExecutionManager.runTests(
+                project,
+                toTest,
+                someTestFO,
+                NbBundle.getMessage(AffectedTests.class, "LBL_AffectedTests"));//NOI18N
+        return toTest.size();
+    }
+
+    /**
+     * Finds the affected test classes.
+     *
+     * @param  history  history of test runs of the project
+     * @param  removedClasses  classes known during the previous search;
+     *                         updated with the current classes
+     * @return  map of names of affected test classes, each mapped to
+     *          {@code null} (meaning that all methods are to be run)
+     */
+    Map<String, String> find(TestHistory history,
+                             RemovedClasses removedClasses) {
+        findRoots();
+        Map<String, String> result = new LinkedHashMap<String, String>();
+        if (testRoots.isEmpty()) {
+            return result;
+        }
+
+        /* tests that never passed or whose last run failed: */
+        long oldestPass = Long.MAX_VALUE;
+        for (FileObject testRoot : testRoots) {
+            collectTestClasses(testRoot);
+        }
+        for (String className : testClasses.keySet()) {
+            long lastPass = history.getLastPassTime(className);
+            if (lastPass == 0) {
+                result.put(className, null);
+            } else {
+                oldestPass = Math.min(oldestPass, lastPass);
+            }
+        }
+        if ((oldestPass == Long.MAX_VALUE) || cancel.get()) {
+            return result;
+        }
+
+        /* files modified since the oldest pass, the most recent first: */
+        final Map<FileObject, Long> changed = new HashMap<FileObject, Long>();
+        List<String> classNames = new ArrayList<String>();
+        for (FileObject root : sourceRoots) {
+            collectChangedFiles(root, oldestPass, changed, classNames);
+        }
+        for (FileObject root : testRoots) {
+            collectChangedFiles(root, oldestPass, changed, classNames);
+        }
+
+        /* files referring to deleted or renamed classes: */
+        Map<String, Long> removed = removedClasses.update(
+                classNames, System.currentTimeMillis(), oldestPass);
+        for (Map.Entry<String, Long> entry : removed.entrySet()) {
+            if (cancel.get()) {
+                return result;
+            }
+            Long time = entry.getValue();
+            for (FileObject file : findReferences(entry.getKey())) {
+                Long known = changed.get(file);
+                if ((known == null) || (known < time)) {
+                    changed.put(file, time);
+                }
+            }
+        }
+        List<FileObject> changedFiles = new ArrayList<FileObject>(changed.keySet());
+        Collections.sort(changedFiles, new Comparator<FileObject>() {
+            public int compare(FileObject f1, FileObject f2) {
+                return changed.get(f2).compareTo(changed.get(f1));
+            }
+        });
+
+        /*
+         * Propagate time of the most recent change a file depends on
+         * to files that depend on it:
+         */
+        Map<FileObject, Long> changeTimes = new HashMap<FileObject, Long>();
+        LinkedList<FileObject> queue = new LinkedList<FileObject>();
+        for (FileObject file : changedFiles) {
+            Long time = changed.get(file);
+            queue.add(file);
+            while (!queue.isEmpty()) {
+                if (cancel.get()) {
+                    return result;
+                }
+                FileObject f = queue.removeFirst();
+                Long known = changeTimes.get(f);
+                if ((known != null) && (known >= time)) {
+                    continue;
+                }
+                changeTimes.put(f, time);
+                queue.addAll(getDependents(f));
+            }
+        }
+
+        for (Map.Entry<String, FileObject> entry : testClasses.entrySet()) {
+            Long changeTime = changeTimes.get(entry.getValue());
+            if ((changeTime != null)
+                    && (changeTime > history.getLastPassTime(entry.getKey()))) {
+                result.put(entry.getKey(), null);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Finds Java source roots and test roots of the project.
+     */
+    private void findRoots() {
+        SourceGroup[] srcGrps = ProjectUtils.getSources(project)
+                .getSourceGroups(JavaProjectConstants.SOURCES_TYPE_JAVA);
+        for (SourceGroup srcGrp : srcGrps) {
+            for (URL url : UnitTestForSourceQuery.findUnitTests(srcGrp.getRootFolder())) {
+                FileObject testRoot = URLMapper.findFileObject(url);
+                if (testRoot != null) {
+                    testRoots.add(testRoot);
+                }
+            }
+        }
+        for (SourceGroup srcGrp : srcGrps) {
+            if (!testRoots.contains(srcGrp.getRootFolder())) {
+                sourceRoots.add(srcGrp.getRootFolder());
+            }
+        }
+    }
+
+    private void collectTestClasses(FileObject testRoot) {
+        Enumeration<? extends FileObject> files = testRoot.getChildren(true);
+        while (files.hasMoreElements()) {
+            FileObject file = files.nextElement();
+            if (JAVA_EXT.equals(file.getExt())
+                    && file.getName().endsWith(TEST_SUFFIX)) {
+                testClasses.put(getClassName(testRoot, file), file);
+            }
+        }
+    }
+
+    private static void collectChangedFiles(FileObject root,
+                                            long since,
+                                            Map<FileObject, Long> changed,
+                                            List<String> classNames) {
+        Enumeration<? extends FileObject> files = root.getChildren(true);
+        while (files.hasMoreElements()) {
+            FileObject file = files.nextElement();
+            if (JAVA_EXT.equals(file.getExt())) {
+                classNames.add(getClassName(root, file));
+                long lastModified = file.lastModified().getTime();
+                if (lastModified > since) {
+                    changed.put(file, lastModified);
+                }
+            }
+        }
+    }
+
+    /**
+     * Finds source files of the project that refer to the class
+     * defined in the given file.
+     */
+    private Set<FileObject> getDependents(FileObject file) {
+        Set<FileObject> result = dependents.get(file);
+        if (result != null) {
+            return result;
+        }
+
+        FileObject root = findRoot(file);
+        result = (root != null) ? findReferences(getClassName(root, file))
+                                : Collections.<FileObject>emptySet();
+        dependents.put(file, result);
+        return result;
+    }
+
+    /**
+     * Finds source files of the project that refer to the given class.
+     * The class need not exist any more - the class index keeps references
+     * to a removed class until the referring files are changed.
+     */
+    private Set<FileObject> findReferences(String className) {
+        ElementHandle<TypeElement> handle
+                = ElementHandle.createTypeElementHandle(ElementKind.CLASS,
+                                                        className);
+        Set<FileObject> resources = getClassIndex().getResources(
+                handle,
+                EnumSet.of(ClassIndex.SearchKind.TYPE_REFERENCES,
+                           ClassIndex.SearchKind.IMPLEMENTORS),
+                EnumSet.of(ClassIndex.SearchScope.SOURCE));
+        return (resources != null) ? resources
+                                   : Collections.<FileObject>emptySet();
+    }
+
+    private ClassIndex getClassIndex() {
+        if (classIndex == null) {
+            List<FileObject> roots = new ArrayList<FileObject>(
+                    sourceRoots.size() + testRoots.size());
+            roots.addAll(sourceRoots);
+            roots.addAll(testRoots);
+            ClassPath sourcePath = ClassPathSupport.createClassPath(
+                    roots.toArray(new FileObject[roots.size()]));
+            classIndex = ClasspathInfo.create(ClassPath.EMPTY,
+                                              ClassPath.EMPTY,
+                                              sourcePath).getClassIndex();
+        }
+        return classIndex;
+    }
+
+    private FileObject findRoot(FileObject file) {
+        for (FileObject root : sourceRoots) {
+            if (FileUtil.isParentOf(root, file)) {
+                return root;
+            }
+        }
+        for (FileObject root : testRoots) {
+            if (FileUtil.isParentOf(root, file)) {
+                return root;
+            }
+        }
+        return null;
+    }
+
+    private static String getClassName(FileObject root, FileObject file) {
+        String path = FileUtil.getRelativePath(root, file);
+        return path.substring(0, path.length() - JAVA_EXT.length() - 1)
+                   .replace('/', '.');
+    }
+
+}
@@ -0,0 +1,107 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright 1997-2010 Oracle and/or its affiliates. All rights reserved.
+ *
+ * Oracle and Java are registered trademarks of Oracle and/or its affiliates.
+ * Other names may be trademarks of their respective owners.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common
+ * Development and Distribution License("CDDL") (collectively, the
+ * "License"). You may not use this file except in compliance with the
+ * License. You can obtain a copy of the License at
+ * http://www.netbeans.org/cddl-gplv2.html
+ * or nbbuild/licenses/CDDL-GPL-2-CP. See the License for the
+ * specific language governing permissions and limitations under the
+ * License.  When distributing the software, include this License Header
+ * Notice in each file and include the License file at
+ * nbbuild/licenses/CDDL-GPL-2-CP.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the GPL Version 2 section of the License file that
+ * accompanied this code. If applicable, add the following below the
+ * License Header, with the fields enclosed by brackets [] replaced by
+ * your own identifying information:
+ * "Portions Copyrighted [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ *
+ * The Original Software is NetBeans. The Initial Developer of the Original
+ * Software is Sun Microsystems, Inc. Portions Copyright 1997-2008 Sun
+ * Microsystems, Inc. All Rights Reserved.
+ *
+ * If you wish your version of this file to be governed by only the CDDL
+ * or only the GPL Version 2, indicate your decision by adding
+ * "[Contributor] elects to include this software in this distribution
+ * under the [CDDL or GPL Version 2] license." If you do not indicate a
+ * single choice of license, a recipient has the option to distribute
+ * your version of this file under either the CDDL, the GPL Version 2 or
+ * to extend the choice of license to its licensees as provided above.
+ * However, if you add GPL Version 2 code and therefore, elected the GPL
+ * Version 2 license, then the option applies only if the new code is
+ * made subject to such option by the copyright holder.
+ */
+
+package org.netbeans.modules.junit.output;
+
+import org.netbeans.modules.gsf.testrunner.api.Report;
+import org.netbeans.modules.gsf.testrunner.api.Status;
+import org.netbeans.modules.gsf.testrunner.api.TestSession;
+import org.netbeans.modules.gsf.testrunner.api.TestSuite;
+import org.netbeans.modules.gsf.testrunner.api.Testcase;
+import org.openide.util.NbBundle;
+
+/**
+ * Stands for a number of tests with the same status, that were counted
+ * in the summary of a test suite but were not reported individually.
+ * A single instance is displayed as a single node and is counted
+ * as {@link #getCount()} tests in reports.
+ */
+final class AggregateTestcase extends JUnitTestcase {
+
+    private final int count;
+
+    AggregateTestcase(int count, Status status, TestSession session) {
+        super(NbBundle.getMessage(AggregateTestcase.class,
+                                  "MSG_UnreportedTests",                //NOI18N
+                                  count),
+              "Unknown",                                                //NOI18N
+              session);
+        this.count = count;
+        setStatus(status);
+    }
+
+    /**
+     * Returns number of tests represented by this test case.
+     */
+    int getCount() {
+        return count;
+    }
+
+    /**
+     * Adds tests represented by aggregate test cases of the given suite
+     * to the given report. The report is expected to count each of the
+     * aggregate test cases as a single test.
+     */
+    static void addCounts(TestSuite suite, Report report) {
+        for (Testcase tc : suite.getTestcases()) {
+            if (!(tc instanceof AggregateTestcase)) {
+                continue;
+            }
+            int extra = ((AggregateTestcase) tc).count - 1;
+            report.setTotalTests(report.getTotalTests() + extra);
+            switch (tc.getStatus()) {
+                case ERROR:
+                    report.setErrors(report.getErrors() + extra);
+                    break;
+                case FAILED:
+                    report.setFailures(report.getFailures() + extra);
+                    break;
+                default:
+                    report.setPassed(report.getPassed() + extra);
+                    break;
+            }
+        }
+    }
+
+}
@@ -88,6 +88,30 @@ public class JUnitExecutionManager implements RerunHandler{
     public static final String JUNIT_CUSTOM_FILENAME = "junit-custom";      //NOI18N
     public static final String JUNIT_CUSTOM_TARGET = "test-custom";      //NOI18N
 
+    /**
+     * name of a system property that sets the fork mode of the JUnit task
+     * used for rerunning selected tests - one of {@code perTest},
+     * {@code perBatch} or {@code once}
+     * (see the {@code forkmode} attribute of Ant's {@code <junit>} task)
+     * <p>
+     * The fork mode configured in the project (property
+     * {@code junit.forkmode}) takes precedence. If neither is set,
+     * {@linkplain #DEFAULT_RERUN_FORK_MODE all the selected test classes
+     * are run in a single JVM}.
+     */
+    static final String PROP_RERUN_FORK_MODE
+            = "org.netbeans.modules.junit.rerunForkMode";               //NOI18N
+    /**
+     * default fork mode for reruns - one JVM for all the {@code <test>}
+     * elements of the generated script
+     */
+    static final String DEFAULT_RERUN_FORK_MODE = "perBatch";           //NOI18N
+    /**
+     * name of an Ant property holding the name of a test session run
+     * by a generated {@code junit-custom.xml} script
+     */
+    static final String PROP_SESSION_NAME = "junit.session.name";       //NOI18N
+
     private File scriptFile = null;
     private String[] targets = null;
     private Properties properties;
@@ -224,7 +248,28 @@ public class JUnitExecutionManager implements RerunHandler{
                 someTestFO = ((JUnitTestcase)test).getClassFileObject();
             }
         }
+        runTests(testSession.getProject(), toTest, someTestFO, null);
+    }
 
+    /**
+     * Runs the given test classes using a generated {@code junit-custom.xml}
+     * script. Test classes that failed recently and long running test
+     * classes are run first (see {@link TestHistory}).
+     *
+     * @param  project  project the tests belong to
+     * @param  toTest  names of test classes to be run, mapped to
+     *                 comma-separated lists of test methods to be run;
+     *                 or to {@code null} if all methods should be run
+     * @param  someTestFO  any of the test files, used to find the classpath
+     *                     the tests should be run with
+     * @param  sessionName  name of the test session to be displayed in the
+     *                      results window, or {@code null} for the default
+     *                      name of reruns
+     */
+    static void runTests(Project project,
+                         Map<String, String> toTest,
+                         FileObject someTestFO,
+                         String sessionName) {
         DateFormat dateFormat = new SimpleDateFormat("HHmmssSSS");              //NOI18N
         String id = dateFormat.format(new Date());
 
@@ -235,27 +280,40 @@ public class JUnitExecutionManager implements RerunHandler{
             FileObject targetFO = tmpDir.createFolder("junit-custom-" + id);                //NOI18N
             DataFolder targetDF = DataFolder.findFolder(targetFO);
             Map<String,Object> params = new HashMap();
-            String testStr = "";
-            for(String testClass: toTest.keySet()){
-                testStr += "<test name=\"" + testClass + "\" methods=\"" + toTest.get(testClass) + "\" todir=\"${test.result.dir.custom}\"/>\n"; //NOI18N
+            //recently failed and long running classes first:
+            TestHistory history = TestHistory.read(
+                    TestHistory.getHistoryFile(project));
+            StringBuilder testStr = new StringBuilder(toTest.size() * 128);
+            for(String testClass: history.order(toTest.keySet())){
+                testStr.append("<test name=\"").append(testClass); //NOI18N
+                String methods = toTest.get(testClass);
+                if (methods != null) {
+                    testStr.append("\" methods=\"").append(methods); //NOI18N
+                }
+                testStr.append("\" todir=\"${test.result.dir.custom}\"/>\n"); //NOI18N
             }
-            params.put("tests", testStr); //NOI18N                     
+            params.put("tests", testStr.toString()); //NOI18N                     
 
             DataObject junitCustomDO = templateDO.createFromTemplate(targetDF, JUNIT_CUSTOM_FILENAME, params);
             Properties props = new Properties();
-            props.put("work.dir", testSession.getProject().getProjectDirectory().getPath());    //NOI18N
+            props.put("work.dir", project.getProjectDirectory().getPath());    //NOI18N
+            if (sessionName != null) {
+                props.put(PROP_SESSION_NAME, sessionName);
+            }
             ClassPath cp = ClassPath.getClassPath(someTestFO, ClassPath.EXECUTE);
             props.put("classpath", cp != null ? cp.toString(ClassPath.PathConversionMode.FAIL) : "");//NOI18N
-            Project p = testSession.getProject();
             String platformId = null;
+            String forkMode = null;
             try {
-                Method evalMethod = p.getClass().getDeclaredMethod("evaluator"); //NOI18N
-                PropertyEvaluator evaluator = (PropertyEvaluator) evalMethod.invoke(p);
+                Method evalMethod = project.getClass().getDeclaredMethod("evaluator"); //NOI18N
+                PropertyEvaluator evaluator = (PropertyEvaluator) evalMethod.invoke(project);
                 if (evaluator != null) {
                     platformId = evaluator.getProperty("platform.active"); //NOI18N
+                    forkMode = evaluator.getProperty("junit.forkmode"); //NOI18N
                 }
             } catch (Exception ex) {
             }
+            props.put("junit.forkmode", getRerunForkMode(forkMode));    //NOI18N
 
             JavaPlatform platform = getActivePlatform(platformId); //NOI18N
             if (platform != null) {
@@ -273,7 +331,32 @@ public class JUnitExecutionManager implements RerunHandler{
         }
     }
 
-    private JavaPlatform getActivePlatform(final String activePlatformId) {
+    /**
+     * Determines the fork mode to be used when rerunning selected tests.
+     *
+     * @param  projectForkMode  fork mode configured in the project,
+     *                          or {@code null} if none is configured
+     * @return  fork mode for the {@code <junit>} task
+     * @see  #PROP_RERUN_FORK_MODE
+     */
+    static String getRerunForkMode(String projectForkMode) {
+        if (isValidForkMode(projectForkMode)) {
+            return projectForkMode;
+        }
+        String forkMode = System.getProperty(PROP_RERUN_FORK_MODE);
+        if (isValidForkMode(forkMode)) {
+            return forkMode;
+        }
+        return DEFAULT_RERUN_FORK_MODE;
+    }
+
+    private static boolean isValidForkMode(String forkMode) {
+        return "perTest".equals(forkMode)                               //NOI18N
+               || "perBatch".equals(forkMode)                           //NOI18N
+               || "once".equals(forkMode);                              //NOI18N
+    }
+
+    private static JavaPlatform getActivePlatform(final String activePlatformId) {
         final JavaPlatformManager pm = JavaPlatformManager.getDefault();
         if (activePlatformId == null) {
             return pm.getDefaultPlatform();
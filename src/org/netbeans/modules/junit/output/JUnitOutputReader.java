@@ -53,9 +53,13 @@ import java.text.NumberFormat;
 import java.text.ParseException;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.GregorianCalendar;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
 import java.util.List;
 import java.util.Properties;
+import java.util.Set;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import java.util.regex.Matcher;
@@ -113,6 +117,15 @@ final class JUnitOutputReader {
     private static final String XML_FORMATTER_CLASS_NAME
             = "org.apache.tools.ant.taskdefs.optional.junit.XMLJUnitResultFormatter";//NOI18N
 
+    /**
+     * whether results should be read from XML reports while the test task
+     * is still running
+     *
+     * @see  ReportFileWatcher
+     */
+    private static final boolean LIVE_XML_RESULTS
+            = Boolean.getBoolean("org.netbeans.modules.junit.liveXmlResults");//NOI18N
+
     /** */
     private final NumberFormat numberFormat = NumberFormat.getInstance();
     
@@ -129,12 +142,12 @@ final class JUnitOutputReader {
     
     /** */
     private boolean lastHeaderBrief;
-    /** */
-    private final Manager manager = Manager.getInstance();
+    /** receives updates of the results window */
+    private final Display display;
     /** */
     private ClassPath platformSources;
     
-    private TestSession testSession;
+    private JUnitTestSession testSession;
 
     private File resultsDir;
 
@@ -152,13 +165,51 @@ final class JUnitOutputReader {
     private final String END = "------------- ---------------- ---------------";//NOI18N
     private boolean outputStarted = false;
     private boolean errorStarted = false;
+    /*
+     * The Ant thread and the thread of the ReportFileWatcher both update
+     * the state below, the test session and the results collected
+     * for the history and timings - always under the lock of this reader.
+     */
+    /** watches for XML reports while the test task is running */
+    private ReportFileWatcher reportWatcher;
+    /** whether suites read by the {@link #reportWatcher} may be displayed */
+    private boolean liveResults;
+    /** names of suites displayed from XML reports of the running task */
+    private final Set<String> liveSuites = new HashSet<String>();
+    /**
+     * suites whose results have been displayed and recorded - the last suite
+     * of a test task would be closed once more by the next test task
+     */
+    private final Set<TestSuite> closedSuites = Collections.newSetFromMap(
+            new IdentityHashMap<TestSuite, Boolean>());
+    private final OutputBuffer outputBuffer = new OutputBuffer() {
+        @Override
+        protected void display(final String text, final boolean error) {
+            dispatch(new Runnable() {
+                public void run() {
+                    display.displayOutput(testSession, text, error);
+                }
+            });
+        }
+    };
+    /** */
+    private final SessionMetrics metrics;
+    /**
+     * passes updates of this session to the results window,
+     * or {@code null} if the updates should be performed immediately
+     */
+    private final UiDispatcher.Channel uiChannel;
+    /** results of test classes, to be added to the project's test history */
+    private final TestHistory.Results historyResults;
+    /** durations of tests, to be added to the project's test timings */
+    private final TestTimings.Session timings;
 
     /** Creates a new instance of JUnitOutputReader */
     JUnitOutputReader(final AntSession session,
                       final AntSessionInfo sessionInfo,
                       Project project,
                       final Properties props) {
-        manager.setTestingFramework(Manager.JUNIT_TF);
+        this.display = new ManagerDisplay();
         this.sessionType = sessionInfo.getSessionType();
         File antScript = FileUtil.normalizeFile(session.getOriginatingScript());
         this.timeOfSessionStart = sessionInfo.getTimeOfTestTaskStart();
@@ -178,12 +229,19 @@ final class JUnitOutputReader {
         }
         String className = props.getProperty("classname", "");      //NOI18N
         String methodName = props.getProperty("methodname");        //NOI18N
+        String customName = props.getProperty(JUnitExecutionManager.PROP_SESSION_NAME);
         String sName = JUnitExecutionManager.JUNIT_CUSTOM_FILENAME.equals(FileUtil.toFileObject(antScript).getName()) ?
-                    NbBundle.getMessage(JUnitOutputReader.class, "LBL_RerunFailedTests") :      //NOI18N
+                    (customName != null ? customName :
+                        NbBundle.getMessage(JUnitOutputReader.class, "LBL_RerunFailedTests")) :      //NOI18N
                     methodName != null ?
                         className + "." + methodName : className;
 
         this.testSession = new JUnitTestSession(sName, project, sessionType, new JUnitTestRunnerNodeFactory()); //NOI18N
+        this.metrics = new SessionMetrics(sName);
+        metrics.register();
+        this.uiChannel = UiDispatcher.getDefault().createChannel(sName);
+        this.historyResults = new TestHistory.Results(System.currentTimeMillis());
+        this.timings = new TestTimings.Session(System.currentTimeMillis());
         testSession.setRerunHandler(new JUnitExecutionManager(session, testSession, props));
         File projectFile = FileUtil.toFile(project.getProjectDirectory());
         if(projectFile != null) {
@@ -191,16 +249,48 @@ final class JUnitOutputReader {
         }
     }
 
+    /**
+     * Creates a reader which is not connected to any Ant session,
+     * for replaying recorded Ant output. Updates of the results window
+     * are passed to the given display immediately, in the calling thread.
+     *
+     * @param  testSession  session to build
+     * @param  display  display to pass updates of the results window to
+     */
+    JUnitOutputReader(JUnitTestSession testSession, Display display) {
+        this.display = display;
+        this.sessionType = SessionType.TEST;
+        this.timeOfSessionStart = System.currentTimeMillis();
+        this.testSession = testSession;
+        this.metrics = new SessionMetrics(testSession.getName());
+        this.uiChannel = null;
+        this.historyResults = new TestHistory.Results(timeOfSessionStart);
+        this.timings = new TestTimings.Session(timeOfSessionStart);
+    }
+
     TestSession getTestSession() {
         return testSession;
     }
 
+    /**
+     * Sets the directory to read XML reports of suites from, in case
+     * the reader is not connected to an Ant session.
+     *
+     * @see  #JUnitOutputReader(JUnitTestSession, Display)
+     */
+    synchronized void setResultsDir(File resultsDir) {
+        this.resultsDir = resultsDir;
+    }
+
     void verboseMessageLogged(final AntEvent event) {
         final String msg = event.getMessage();
         if (msg == null) {
             return;
         }
+        long start = metrics.start();
+        metrics.count(SessionMetrics.Counter.VERBOSE_LINES);
         verboseMessageLogged(msg);
+        metrics.record(SessionMetrics.Timer.INGESTION, start);
     }
 
     synchronized void verboseMessageLogged(String msg) {
@@ -311,6 +401,37 @@ final class JUnitOutputReader {
         if (msg == null) {
             return;
         }
+        messageLogged(event, msg, event.getLogLevel());
+    }
+
+    /**
+     * Processes a non-verbose message which was not delivered
+     * as an {@code AntEvent}, e.g.&nbsp;a message of recorded Ant output.
+     *
+     * @param  msg  the message
+     * @param  logLevel  Ant log level of the message
+     */
+    synchronized void messageLogged(String msg, int logLevel) {
+        messageLogged(null, msg, logLevel);
+    }
+
+    /**
+     * @param  event  event carrying the message, or {@code null} if
+     *                the message does not come from a running Ant session
+     */
+    private void messageLogged(AntEvent event, String msg, int logLevel) {
+        long start = metrics.start();
+        metrics.count(SessionMetrics.Counter.LINES);
+        try {
+            processMessage(event, msg, logLevel);
+        } finally {
+            metrics.record(SessionMetrics.Timer.INGESTION, start);
+        }
+    }
+
+    private void processMessage(final AntEvent event,
+                                final String msg,
+                                final int logLevel) {
         if(msg.startsWith(TESTSUITE_PREFIX) && state == State.DEFAULT) {
             testSuite = msg;
         }
@@ -319,19 +440,21 @@ final class JUnitOutputReader {
             state = State.SUITE_FINISHED;
         }
 
-	handleMessage(msg, event.getLogLevel());
+	handleMessage(msg, logLevel);
 
         switch (state){
             case TESTCASE_ISSUE:
             case SUITE_FINISHED:{
                 if (msg.startsWith(TESTCASE_PREFIX)) {
                     String header = msg.substring(TESTCASE_PREFIX.length());
+                    long start = metrics.start();
                     boolean success =
                         lastHeaderBrief
                         ? tryParseBriefHeader(header)
                             || !(lastHeaderBrief = !tryParsePlainHeader(header))
                         : tryParsePlainHeader(header)
                             || (lastHeaderBrief = tryParseBriefHeader(header));
+                    metrics.record(SessionMetrics.Timer.CLASSIFICATION, start);
                     if (success) {
                         state = State.TESTCASE_ISSUE;
                     }
@@ -343,7 +466,9 @@ final class JUnitOutputReader {
                     String suiteName = msg.substring(TESTSUITE_PREFIX.length());
                     if (regexp.getFullJavaIdPattern().matcher(suiteName).matches()){
                         suiteStarted(suiteName);
-                        resultsDir = determineResultsDir(event);
+                        if (event != null) {
+                            resultsDir = determineResultsDir(event);
+                        }
                     }
                 }
 
@@ -397,10 +522,10 @@ final class JUnitOutputReader {
             case TESTCASE_STARTED: {
 		int posTestListener = msg.indexOf(TEST_LISTENER_PREFIX);
 		if (posTestListener != -1) {
-		    displayOutput(msg.substring(0, posTestListener), event.getLogLevel() == AntEvent.LOG_WARN);
+		    displayOutput(msg.substring(0, posTestListener), logLevel == AntEvent.LOG_WARN);
 		    verboseMessageLogged(msg.substring(posTestListener));
 		} else {
-		    displayOutput(msg, event.getLogLevel() == AntEvent.LOG_WARN);
+		    displayOutput(msg, logLevel == AntEvent.LOG_WARN);
 		}
                 break;
             }
@@ -596,34 +721,110 @@ final class JUnitOutputReader {
      * @param  expectedSuitesCount  expected number of test suites going to be
      *                              executed by this task
      */
-    void testTaskStarted(int expectedSuitesCount, boolean expectXmlOutput) {
+    synchronized void testTaskStarted(int expectedSuitesCount, boolean expectXmlOutput) {
         this.expectXmlReport = expectXmlOutput;
-        manager.testStarted(testSession);
+        dispatch(new Runnable() {
+            public void run() {
+                display.testStarted(testSession);
+            }
+        });
     }
     
+    /**
+     * Starts watching for XML reports written by the test task that has
+     * just been started, if enabled. Suites are then displayed as soon as
+     * their report is written, even if the task does not produce any plain
+     * text output.
+     */
+    void startReportWatcher(final AntEvent event) {
+        if (!LIVE_XML_RESULTS) {
+            return;
+        }
+        File dir = determineResultsDir(event);
+        if (dir != null) {
+            synchronized (this) {
+                liveResults = true;
+                reportWatcher = new ReportFileWatcher(dir, this);
+                reportWatcher.start();
+            }
+        }
+    }
+
     /**
      */
     void testTaskFinished() {
+        ReportFileWatcher watcher;
+        synchronized (this) {
+            watcher = reportWatcher;
+            reportWatcher = null;
+        }
+        if (watcher != null) {
+            /*
+             * Not under the lock - finish() waits for a running check
+             * which may be just passing a report to reportFileWritten().
+             */
+            watcher.finish();
+        }
+        synchronized (this) {
             closePereviousReport(); // #171050
+            liveResults = false;
+            liveSuites.clear();
+        }
+    }
+
+    /**
+     * Called by the {@link ReportFileWatcher} when a report file has been
+     * written completely.
+     *
+     * @return  {@code false} if the file could not be parsed and should
+     *          be passed again once it changes, {@code true} otherwise
+     */
+    synchronized boolean reportFileWritten(File reportFile) {
+        if (!liveResults || !isValidReportFile(reportFile)) {
+            return true;
+        }
+        JUnitTestSuite suite = parseReportFile(reportFile);
+        if (suite == null) {
+            return false;
+        }
+        if (liveSuites.add(suite.getName())) {
+            closedSuites.add(suite);
+            testSession.addSuite(suite);
+            displaySuiteRunning(suite);
+            Report suiteReport = createReport(suite.getElapsedTime());
+            addToHistory(suite, suiteReport, suite.getElapsedTime(), false);
+            displayReport(suiteReport, true);
+        }
+        return true;
     }
 
     private void closePereviousReport(){
+        outputBuffer.flush();
         TestSuite currentSuite = testSession.getCurrentSuite();
-        if (currentSuite != null){
+        if ((currentSuite != null) && !liveSuites.contains(currentSuite.getName())
+                && closedSuites.add(currentSuite)){
             //try to get results from report xml file
             if (resultsDir != null) {
                 File reportFile = findReportFile();
                 if ((reportFile != null) && isValidReportFile(reportFile)) {
                     JUnitTestSuite reportSuite = parseReportFile(reportFile);
                     if ((reportSuite != null) && (reportSuite.getName().equals(currentSuite.getName()))) {
+                        long start = metrics.start();
                         lastSuiteTime = reportSuite.getElapsedTime();
                         for(Testcase tc: currentSuite.getTestcases()){
-                            if (!tc.getOutput().isEmpty()){
+                            JUnitTestcase rtc = null;
+                            if (tc instanceof JUnitTestcase){
+                                if (((JUnitTestcase)tc).hasCapturedOutput()){
+                                    rtc = findTest(reportSuite, tc.getName());
+                                    if (rtc != null)
+                                        ((JUnitTestcase)tc).moveCapturedOutputTo(rtc);
+                                }
+                            }else if (!tc.getOutput().isEmpty()){
                                 List<String> output = new ArrayList();
                                 for(OutputLine l: tc.getOutput()){
                                     output.add(l.getLine());
                                 }
-                                Testcase rtc = findTest(reportSuite, tc.getName());
+                                rtc = findTest(reportSuite, tc.getName());
 
                                 if (rtc != null)
                                     rtc.addOutputLines(output);
@@ -633,14 +834,17 @@ final class JUnitOutputReader {
                             currentSuite.getTestcases().clear();
                             currentSuite.getTestcases().addAll(reportSuite.getTestcases());
                         }
+                        metrics.record(SessionMetrics.Timer.REPORT_MERGE, start);
                     }
                 }
             }
+            shareStackTraces(currentSuite);
             if (report == null){
-                report = testSession.getReport(lastSuiteTime);
+                report = createReport(lastSuiteTime);
             }else{
-                report.update(testSession.getReport(lastSuiteTime));
+                report.update(createReport(lastSuiteTime));
             }
+            boolean aborted = false;
             switch(state){
                 case SUITE_STARTED:
                 case TESTCASE_STARTED:
@@ -648,9 +852,11 @@ final class JUnitOutputReader {
 			Logger.getLogger(JUnitOutputReader.class.getName()).log(Level.WARNING, "Ensure that the output-stream is not closed.");
 		    } else {
 			report.setAborted(true);
+			aborted = true;
 		    }
                 default:
-                    manager.displayReport(testSession, report, true);
+                    addToHistory(currentSuite, report, lastSuiteTime, aborted);
+                    displayReport(report, true);
             }
             report = null;
             lastSuiteTime = 0;
@@ -659,9 +865,120 @@ final class JUnitOutputReader {
     }
 
     /**
+     * @param  aborted  whether the suite did not finish - such a suite
+     *                  is not recorded as passed even if none of the tests
+     *                  that managed to run failed
      */
-    void buildFinished(final AntEvent event) {
-        manager.sessionFinished(testSession);
+    private void addToHistory(TestSuite suite, Report r, long time,
+                              boolean aborted) {
+        if (suite.getName() != null) {
+            historyResults.add(suite.getName(),
+                               time,
+                               aborted || (r.getFailures() + r.getErrors() > 0));
+        }
+        for (Testcase tc : suite.getTestcases()) {
+            if (tc instanceof AggregateTestcase) {
+                continue;
+            }
+            String className = (tc.getClassName() != null) ? tc.getClassName()
+                                                           : suite.getName();
+            timings.add(className + '.' + tc.getName(),
+                        tc.getTimeMillis(),
+                        tc.getStatus());
+        }
+    }
+
+    /**
+     * Returns durations of tests recorded so far, for tests.
+     */
+    synchronized TestTimings.Session getTimings() {
+        return timings;
+    }
+
+    private void displaySuiteRunning(final TestSuite suite) {
+        dispatch(new Runnable() {
+            public void run() {
+                display.displaySuiteRunning(testSession, suite);
+            }
+        });
+    }
+
+    private void displayReport(final Report r, final boolean completed) {
+        dispatch(new Runnable() {
+            public void run() {
+                display.displayReport(testSession, r, completed);
+            }
+        });
+    }
+
+    /**
+     * Passes the given update of the results window to the
+     * {@link UiDispatcher}. Updates of this session are performed
+     * in the order they are passed.
+     */
+    private void dispatch(final Runnable update) {
+        Runnable timedUpdate = new Runnable() {
+            public void run() {
+                long start = metrics.start();
+                update.run();
+                metrics.count(SessionMetrics.Counter.UI_DISPATCHES);
+                metrics.record(SessionMetrics.Timer.UI_DISPATCH, start);
+            }
+        };
+        if (uiChannel != null) {
+            uiChannel.post(timedUpdate);
+        } else {
+            timedUpdate.run();
+        }
+    }
+
+    /**
+     * Creates a report of the current suite, counting also tests
+     * represented by {@link AggregateTestcase}s.
+     */
+    private Report createReport(long time) {
+        Report r = testSession.getReport(time);
+        TestSuite suite = testSession.getCurrentSuite();
+        if (suite != null) {
+            AggregateTestcase.addCounts(suite, r);
+        }
+        return r;
+    }
+
+    /**
+     * Replaces stack traces of failed tests of the given suite with
+     * stack traces shared within the test session.
+     */
+    private void shareStackTraces(TestSuite suite) {
+        StackTracePool pool = testSession.getStackTracePool();
+        for (Testcase tc : suite.getTestcases()) {
+            Trouble trouble = tc.getTrouble();
+            if (trouble != null) {
+                trouble.setStackTrace(pool.share(trouble.getStackTrace()));
+            }
+        }
+    }
+
+    /**
+     */
+    synchronized void buildFinished(final AntEvent event) {
+        outputBuffer.flush();
+        Logger logger = Logger.getLogger(JUnitOutputReader.class.getName());
+        if (logger.isLoggable(Level.FINE)) {
+            logger.fine("Captured output: " + testSession.getOutputStore()); //NOI18N
+            logger.fine("Stack traces: " + testSession.getStackTracePool()); //NOI18N
+            logger.fine("Displayed output: " + outputBuffer); //NOI18N
+        }
+        TestHistory.save(testSession.getProject(), historyResults);
+        TestTimings.save(testSession.getProject(), timings);
+        dispatch(new Runnable() {
+            public void run() {
+                display.sessionFinished(testSession);
+                metrics.log(Logger.getLogger(JUnitOutputReader.class.getName()),
+                            Level.FINE);
+                metrics.unregister();
+            }
+        });
     }
 
     private long lastSuiteTime = 0;
@@ -673,10 +990,17 @@ final class JUnitOutputReader {
      *                    if the suite name is unknown
      */
     private void suiteStarted(final String suiteName) {
+        if (liveResults) {
+            /* plain text output is available - no need to watch reports */
+            liveResults = false;
+            if (reportWatcher != null) {
+                reportWatcher.cancel();
+            }
+        }
         closePereviousReport();
         TestSuite suite = new JUnitTestSuite(suiteName, testSession);
         testSession.addSuite(suite);
-        manager.displaySuiteRunning(testSession, suite);
+        displaySuiteRunning(suite);
         state = State.SUITE_STARTED;
         platformSources = null;
     }
@@ -692,20 +1016,14 @@ final class JUnitOutputReader {
                 default: addPass--;
             }
         }
-        for(int i=0; i<addPass; i++){
-            JUnitTestcase tc = new JUnitTestcase("Unknown", "Unknown", testSession); //NOI18N
-            tc.setStatus(Status.PASSED);
-            testSession.addTestCase(tc);
+        if (addPass > 0){
+            testSession.addTestCase(new AggregateTestcase(addPass, Status.PASSED, testSession));
         }
-        for(int i=0; i<addFail; i++){
-            JUnitTestcase tc = new JUnitTestcase("Unknown", "Unknown", testSession); //NOI18N
-            tc.setStatus(Status.FAILED);
-            testSession.addTestCase(tc);
+        if (addFail > 0){
+            testSession.addTestCase(new AggregateTestcase(addFail, Status.FAILED, testSession));
         }
-        for(int i=0; i<addError; i++){
-            JUnitTestcase tc = new JUnitTestcase("Unknown", "Unknown", testSession); //NOI18N
-            tc.setStatus(Status.ERROR);
-            testSession.addTestCase(tc);
+        if (addError > 0){
+            testSession.addTestCase(new AggregateTestcase(addError, Status.ERROR, testSession));
         }
 
         lastSuiteTime = time;
@@ -720,11 +1038,11 @@ final class JUnitOutputReader {
 
     private void testCaseFinished(){
         if (report == null){
-            report = testSession.getReport(0);
+            report = createReport(0);
         }else{
-            report.update(testSession.getReport(0));
+            report.update(createReport(0));
         }
-        manager.displayReport(testSession, report, false);
+        displayReport(report, false);
         state = State.SUITE_STARTED;
     }
 
@@ -732,6 +1050,7 @@ final class JUnitOutputReader {
 
     private void handleMessage(String msg, int logLevel) {
 	if (msg.equals(END)) {
+	    outputBuffer.flush();
 	    if (outputStarted) {
 		outputStarted = false;
 	    } else if (errorStarted) {
@@ -755,14 +1074,14 @@ final class JUnitOutputReader {
      */
     private void displayOutput(final String text, final boolean error) {
 	if (outputStarted || errorStarted) {
-	    manager.displayOutput(testSession, text, error);
+	    outputBuffer.append(text, error);
 	} else {
 	    if (!error) {
-		List<String> addedLines = new ArrayList<String>();
-		addedLines.add(text);
 		Testcase tc = testSession.getCurrentTestCase();
-		if (tc != null) {
-		    tc.addOutputLines(addedLines);
+		if (tc instanceof JUnitTestcase) {
+		    ((JUnitTestcase) tc).addCapturedLine(text);
+		} else if (tc != null) {
+		    tc.addOutputLines(Collections.singletonList(text));
 		}
 	    }
 	}
@@ -877,6 +1196,8 @@ final class JUnitOutputReader {
         }
 
         JUnitTestSuite suite = null;
+        long start = metrics.start();
+        metrics.count(SessionMetrics.Counter.XML_REPORTS);
         try {
             suite = XmlOutputParser.parseXmlOutput(
                     new InputStreamReader(
@@ -901,6 +1222,7 @@ final class JUnitOutputReader {
                                 "I/O exception while reading JUnit XML report file from JUnit: "));//NOI18N
             }
         }
+        metrics.record(SessionMetrics.Timer.XML_PARSE, start);
         return suite;
     }
 
@@ -954,6 +1276,7 @@ final class JUnitOutputReader {
             }
         }
  
+        line = testSession.getStackTracePool().intern(line);
         String[] stArray = trouble.getStackTrace();
         if (stArray == null){
             trouble.setStackTrace(new String[]{line});
@@ -984,4 +1307,51 @@ final class JUnitOutputReader {
             }
         }
     }
+
+    /**
+     * Receives updates of the results window produced by the reader.
+     *
+     * @see  Manager
+     */
+    interface Display {
+        void testStarted(TestSession session);
+        void displaySuiteRunning(TestSession session, TestSuite suite);
+        void displayReport(TestSession session, Report report, boolean completed);
+        void displayOutput(TestSession session, String text, boolean error);
+        void sessionFinished(TestSession session);
+    }
+
+    /**
+     * Passes updates to the results window managed by the {@link Manager}.
+     */
+    private static final class ManagerDisplay implements Display {
+
+        private final Manager manager = Manager.getInstance();
+
+        ManagerDisplay() {
+            manager.setTestingFramework(Manager.JUNIT_TF);
+        }
+
+        public void testStarted(TestSession session) {
+            manager.testStarted(session);
+        }
+
+        public void displaySuiteRunning(TestSession session, TestSuite suite) {
+            manager.displaySuiteRunning(session, suite);
+        }
+
+        public void displayReport(TestSession session, Report report,
+                                  boolean completed) {
+            manager.displayReport(session, report, completed);
+        }
+
+        public void displayOutput(TestSession session, String text,
+                                  boolean error) {
+            manager.displayOutput(session, text, error);
+        }
+
+        public void sessionFinished(TestSession session) {
+            manager.sessionFinished(session);
+        }
+    }
 }
@@ -42,7 +42,6 @@
 
 package org.netbeans.modules.junit.output;
 
-import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
@@ -60,7 +59,6 @@ import org.openide.util.Lookup;
 import org.openide.util.lookup.Lookups;
 import static org.netbeans.spi.project.SingleMethod.COMMAND_RUN_SINGLE_METHOD;
 import static org.netbeans.spi.project.SingleMethod.COMMAND_DEBUG_SINGLE_METHOD;
-import org.openide.util.Exceptions;
 
 /**
  *
@@ -92,43 +90,30 @@ public class JUnitTestMethodNode extends TestMethodNode{
                 prefAction.setEnabled(false);
             }
         } else {
-	    boolean parameterized = false;
-	    try {
-		String text = testFO.asText();
-		if (text != null) {
-		    text = text.replaceAll("\n", "").replaceAll(" ", "");
-		    if ((text.contains("@RunWith") || text.contains("@org.junit.runner.RunWith")) //NOI18N
-			    && text.contains("Parameterized.class)")) {  //NOI18N
-			parameterized = true;
-		    }
-		}
-	    } catch (IOException ex) {
-		Exceptions.printStackTrace(ex);
-	    }
-	    
-	    if (!parameterized) {
-		ActionProvider actionProvider = OutputUtils.getActionProvider(testFO);
-		if (actionProvider != null) {
-		    List supportedActions = Arrays.asList(actionProvider.getSupportedActions());
+            TestFileInfo info = TestFileInfo.get(testFO);
+            ActionProvider actionProvider = info.isParameterized()
+                                            ? null
+                                            : OutputUtils.getActionProvider(testFO);
+            if (actionProvider != null) {
+                List supportedActions = Arrays.asList(actionProvider.getSupportedActions());
 
-		    SingleMethod methodSpec = new SingleMethod(testFO, testcase.getName());
-		    Lookup nodeContext = Lookups.singleton(methodSpec);
-		    if (supportedActions.contains(COMMAND_RUN_SINGLE_METHOD)
-			    && actionProvider.isActionEnabled(COMMAND_RUN_SINGLE_METHOD, nodeContext)) {
-			actions.add(new TestMethodNodeAction(actionProvider,
-				nodeContext,
-				COMMAND_RUN_SINGLE_METHOD,
-				"LBL_RerunTest"));     //NOI18N
-		    }
-		    if (supportedActions.contains(COMMAND_DEBUG_SINGLE_METHOD)
-			    && actionProvider.isActionEnabled(COMMAND_DEBUG_SINGLE_METHOD, nodeContext)) {
-			actions.add(new TestMethodNodeAction(actionProvider,
-				nodeContext,
-				COMMAND_DEBUG_SINGLE_METHOD,
-				"LBL_DebugTest"));     //NOI18N
-		    }
-		}
-	    }
+                SingleMethod methodSpec = new SingleMethod(testFO, testcase.getName());
+                Lookup nodeContext = Lookups.singleton(methodSpec);
+                if (supportedActions.contains(COMMAND_RUN_SINGLE_METHOD)
+                        && actionProvider.isActionEnabled(COMMAND_RUN_SINGLE_METHOD, nodeContext)) {
+                    actions.add(new TestMethodNodeAction(actionProvider,
+                            nodeContext,
+                            COMMAND_RUN_SINGLE_METHOD,
+                            "LBL_RerunTest"));     //NOI18N
+                }
+                if (supportedActions.contains(COMMAND_DEBUG_SINGLE_METHOD)
+                        && actionProvider.isActionEnabled(COMMAND_DEBUG_SINGLE_METHOD, nodeContext)) {
+                    actions.add(new TestMethodNodeAction(actionProvider,
+                            nodeContext,
+                            COMMAND_DEBUG_SINGLE_METHOD,
+                            "LBL_DebugTest"));     //NOI18N
+                }
+            }
         }
 	actions.addAll(Arrays.asList(super.getActions(context)));
 
@@ -70,10 +70,27 @@ import org.openide.filesystems.FileObject;
  */
 public class JUnitTestSession extends TestSession{
     private FileLocator projectFileLocator = null;
+    private final TestOutputStore outputStore = new TestOutputStore();
+    private final StackTracePool stackTracePool = new StackTracePool();
 
     public JUnitTestSession(String name, Project project, SessionType sessionType, TestRunnerNodeFactory nodeFactory) {
         super(name, project, sessionType, nodeFactory);
         projectFileLocator = new ProjectFileLocator(project);
+        TestOutputStore.disposeWhenReleased(this, outputStore);
+    }
+
+    /**
+     * Returns the store holding output captured from tests of this session.
+     */
+    TestOutputStore getOutputStore() {
+        return outputStore;
+    }
+
+    /**
+     * Returns the pool sharing stack traces of failures of this session.
+     */
+    StackTracePool getStackTracePool() {
+        return stackTracePool;
     }
 
     @Override
@@ -42,7 +42,12 @@
 
 package org.netbeans.modules.junit.output;
 
+import java.lang.ref.Reference;
+import java.lang.ref.SoftReference;
+import java.util.ArrayList;
+import java.util.List;
 import org.netbeans.api.extexecution.print.LineConvertors.FileLocator;
+import org.netbeans.modules.gsf.testrunner.api.OutputLine;
 import org.netbeans.modules.gsf.testrunner.api.TestSession;
 import org.netbeans.modules.gsf.testrunner.api.Testcase;
 import org.openide.filesystems.FileObject;
@@ -53,6 +58,8 @@ import org.openide.filesystems.FileObject;
  */
 class JUnitTestcase extends Testcase{
     private FileObject classFO = null;
+    private TestOutputStore.Entry capturedOutput = null;
+    private Reference<List<OutputLine>> outputCache = null;
 
     public JUnitTestcase(String name, String type, TestSession session) {
         super(name, type, session);
@@ -77,4 +84,62 @@ class JUnitTestcase extends Testcase{
         }
         return classFO;
     }
+
+    /**
+     * Adds a line of output captured while the test was running.
+     * The line is kept in the session's {@link TestOutputStore}
+     * rather than in the list returned by {@link #getOutput()}.
+     */
+    void addCapturedLine(String line) {
+        if (capturedOutput == null) {
+            TestSession session = getSession();
+            if (!(session instanceof JUnitTestSession)) {
+                List<String> lines = new ArrayList<String>(1);
+                lines.add(line);
+                addOutputLines(lines);
+                return;
+            }
+            capturedOutput = ((JUnitTestSession) session).getOutputStore()
+                             .createEntry();
+        }
+        capturedOutput.addLine(line);
+        outputCache = null;
+    }
+
+    /**
+     * Passes output captured for this test case over to another test case.
+     * No lines are copied.
+     */
+    void moveCapturedOutputTo(JUnitTestcase target) {
+        if (capturedOutput != null) {
+            target.capturedOutput = capturedOutput;
+            target.outputCache = null;
+            capturedOutput = null;
+            outputCache = null;
+        }
+    }
+
+    boolean hasCapturedOutput() {
+        return (capturedOutput != null) && !capturedOutput.isEmpty();
+    }
+
+    @Override
+    public List<OutputLine> getOutput() {
+        if (!hasCapturedOutput()) {
+            return super.getOutput();
+        }
+        List<OutputLine> output = (outputCache != null) ? outputCache.get()
+                                                         : null;
+        if (output == null) {
+            List<OutputLine> other = super.getOutput();
+            List<String> lines = capturedOutput.getLines();
+            output = new ArrayList<OutputLine>(other.size() + lines.size());
+            for (String line : lines) {
+                output.add(new OutputLine(line, false));
+            }
+            output.addAll(other);
+            outputCache = new SoftReference<List<OutputLine>>(output);
+        }
+        return output;
+    }
 }
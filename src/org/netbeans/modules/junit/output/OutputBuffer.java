@@ -0,0 +1,143 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright 1997-2010 Oracle and/or its affiliates. All rights reserved.
+ *
+ * Oracle and Java are registered trademarks of Oracle and/or its affiliates.
+ * Other names may be trademarks of their respective owners.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common
+ * Development and Distribution License("CDDL") (collectively, the
+ * "License"). You may not use this file except in compliance with the
+ * License. You can obtain a copy of the License at
+ * http://www.netbeans.org/cddl-gplv2.html
+ * or nbbuild/licenses/CDDL-GPL-2-CP. See the License for the
+ * specific language governing permissions and limitations under the
+ * License.  When distributing the software, include this License Header
+ * Notice in each file and include the License file at
+ * nbbuild/licenses/CDDL-GPL-2-CP.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the GPL Version 2 section of the License file that
+ * accompanied this code. If applicable, add the following below the
+ * License Header, with the fields enclosed by brackets [] replaced by
+ * your own identifying information:
+ * "Portions Copyrighted [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ *
+ * The Original Software is NetBeans. The Initial Developer of the Original
+ * Software is Sun Microsystems, Inc. Portions Copyright 1997-2008 Sun
+ * Microsystems, Inc. All Rights Reserved.
+ *
+ * If you wish your version of this file to be governed by only the CDDL
+ * or only the GPL Version 2, indicate your decision by adding
+ * "[Contributor] elects to include this software in this distribution
+ * under the [CDDL or GPL Version 2] license." If you do not indicate a
+ * single choice of license, a recipient has the option to distribute
+ * your version of this file under either the CDDL, the GPL Version 2 or
+ * to extend the choice of license to its licensees as provided above.
+ * However, if you add GPL Version 2 code and therefore, elected the GPL
+ * Version 2 license, then the option applies only if the new code is
+ * made subject to such option by the copyright holder.
+ */
+
+package org.netbeans.modules.junit.output;
+
+/**
+ * Groups lines of standard output and standard error of tests so that
+ * they can be passed to the output window in chunks rather than line by
+ * line. Consecutive lines of the same stream are joined; a change of the
+ * stream always flushes the pending lines so the ordering of lines
+ * is kept.
+ * The pending lines are also flushed when there are too many of them,
+ * when the oldest of them is too old, or when {@link #flush()} is called
+ * explicitly.
+ */
+abstract class OutputBuffer {
+
+    /** maximum number of lines passed to the output window at once */
+    static final int MAX_LINES = 256;
+    /** maximum number of characters passed to the output window at once */
+    static final int MAX_CHARS = 16 * 1024;
+    /** maximum time (in milliseconds) a line may be kept in the buffer */
+    static final long MAX_DELAY = 200;
+
+    private final StringBuilder buf = new StringBuilder(1024);
+    private boolean error;
+    private int pendingLines;
+    private long firstPendingTime;
+
+    private int lineCount;
+    private int flushCount;
+
+    /**
+     * Adds a line of output.
+     *
+     * @param  line  line to be displayed
+     * @param  error  {@code true} if the line comes from the standard error,
+     *                {@code false} if it comes from the standard output
+     */
+    synchronized void append(String line, boolean error) {
+        if ((pendingLines != 0) && (error != this.error)) {
+            flush();
+        }
+        if (pendingLines == 0) {
+            this.error = error;
+            firstPendingTime = System.currentTimeMillis();
+        } else {
+            buf.append('\n');
+        }
+        buf.append(line);
+        pendingLines++;
+        lineCount++;
+        if ((pendingLines >= MAX_LINES)
+                || (buf.length() >= MAX_CHARS)
+                || (System.currentTimeMillis() - firstPendingTime >= MAX_DELAY)) {
+            flush();
+        }
+    }
+
+    /**
+     * Passes all pending lines to the output window.
+     */
+    synchronized void flush() {
+        if (pendingLines == 0) {
+            return;
+        }
+        String text = buf.toString();
+        buf.setLength(0);
+        pendingLines = 0;
+        flushCount++;
+        display(text, error);
+    }
+
+    /**
+     * Returns number of lines passed to this buffer.
+     */
+    synchronized int getLineCount() {
+        return lineCount;
+    }
+
+    /**
+     * Returns number of chunks of lines passed to the output window.
+     */
+    synchronized int getFlushCount() {
+        return flushCount;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return "OutputBuffer[lines=" + lineCount                        //NOI18N
+               + ", flushes=" + flushCount + ']';                       //NOI18N
+    }
+
+    /**
+     * Displays the given text in the output window.
+     *
+     * @param  text  one or more lines of text, separated with {@code '\n'}
+     * @param  error  whether the text comes from the standard error
+     */
+    protected abstract void display(String text, boolean error);
+
+}
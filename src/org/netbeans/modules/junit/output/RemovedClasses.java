@@ -0,0 +1,183 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright 1997-2010 Oracle and/or its affiliates. All rights reserved.
+ *
+ * Oracle and Java are registered trademarks of Oracle and/or its affiliates.
+ * Other names may be trademarks of their respective owners.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common
+ * Development and Distribution License("CDDL") (collectively, the
+ * "License"). You may not use this file except in compliance with the
+ * License. You can obtain a copy of the License at
+ * http://www.netbeans.org/cddl-gplv2.html
+ * or nbbuild/licenses/CDDL-GPL-2-CP. See the License for the
+ * specific language governing permissions and limitations under the
+ * License.  When distributing the software, include this License Header
+ * Notice in each file and include the License file at
+ * nbbuild/licenses/CDDL-GPL-2-CP.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the GPL Version 2 section of the License file that
+ * accompanied this code. If applicable, add the following below the
+ * License Header, with the fields enclosed by brackets [] replaced by
+ * your own identifying information:
+ * "Portions Copyrighted [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ *
+ * The Original Software is NetBeans. The Initial Developer of the Original
+ * Software is Sun Microsystems, Inc. Portions Copyright 1997-2008 Sun
+ * Microsystems, Inc. All Rights Reserved.
+ *
+ * If you wish your version of this file to be governed by only the CDDL
+ * or only the GPL Version 2, indicate your decision by adding
+ * "[Contributor] elects to include this software in this distribution
+ * under the [CDDL or GPL Version 2] license." If you do not indicate a
+ * single choice of license, a recipient has the option to distribute
+ * your version of this file under either the CDDL, the GPL Version 2 or
+ * to extend the choice of license to its licensees as provided above.
+ * However, if you add GPL Version 2 code and therefore, elected the GPL
+ * Version 2 license, then the option applies only if the new code is
+ * made subject to such option by the copyright holder.
+ */
+package org.netbeans.modules.junit.output;
+
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import org.netbeans.api.project.Project;
+
+/**
+ * Classes of a project known during the last search for affected tests,
+ * together with classes that were removed (deleted or renamed) since then.
+ * Files of removed classes no longer exist, so their removal cannot be
+ * found by checking modification times of the project's files.
+ * <p>
+ * The list is kept in a properties file in the user directory
+ * ({@code var/cache/junit/classes}), one file per project. Each class name
+ * is mapped either to {@code 0} (the class exists) or to the time its
+ * removal was noticed.
+ *
+ * @see  AffectedTests
+ */
+final class RemovedClasses {
+
+    private static final Logger LOG
+            = Logger.getLogger(RemovedClasses.class.getName());
+
+    /** class name &rarr; time of removal (0 = not removed) */
+    private final Map<String, Long> classes = new HashMap<String, Long>();
+
+    RemovedClasses() {
+    }
+
+    /**
+     * Updates the list of the project's classes.
+     *
+     * @param  current  names of the classes that exist now
+     * @param  now  time the classes were found at
+     * @param  forgetBefore  removals noticed before this time are forgotten
+     *                       - every test class passed after them
+     * @return  names of removed classes, each mapped to the time
+     *          its removal was noticed
+     */
+    Map<String, Long> update(Collection<String> current,
+                             long now,
+                             long forgetBefore) {
+        Set<String> currentSet = new HashSet<String>(current);
+        Map<String, Long> removed = new HashMap<String, Long>();
+        for (Iterator<Map.Entry<String, Long>> i = classes.entrySet().iterator();
+                i.hasNext(); ) {
+            Map.Entry<String, Long> entry = i.next();
+            if (currentSet.contains(entry.getKey())) {
+                continue;
+            }
+            long time = entry.getValue();
+            if (time == 0) {
+                time = now;
+            }
+            if (time < forgetBefore) {
+                i.remove();
+            } else {
+                entry.setValue(time);
+                removed.put(entry.getKey(), time);
+            }
+        }
+        for (String className : current) {
+            classes.put(className, 0L);
+        }
+        return removed;
+    }
+
+    /**
+     * Reads the list of classes from the given file.
+     *
+     * @param  file  file to read the list from, may be {@code null}
+     * @return  list read from the file; or an empty list if the file
+     *          does not exist or cannot be read
+     */
+    static RemovedClasses read(File file) {
+        RemovedClasses result = new RemovedClasses();
+        if ((file == null) || !file.isFile()) {
+            return result;
+        }
+
+        Properties props = new Properties();
+        try {
+            InputStream in = new BufferedInputStream(new FileInputStream(file));
+            try {
+                props.load(in);
+            } finally {
+                in.close();
+            }
+        } catch (IOException ex) {
+            LOG.log(Level.INFO, "Cannot read list of classes " + file, ex);//NOI18N
+            return result;
+        }
+
+        for (String key : props.stringPropertyNames()) {
+            try {
+                result.classes.put(key, Long.valueOf(props.getProperty(key)));
+            } catch (NumberFormatException ex) {
+                //skip the entry
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Writes the list of classes to the given file.
+     */
+    void write(File file) throws IOException {
+        Properties props = new Properties();
+        for (Map.Entry<String, Long> entry : classes.entrySet()) {
+            props.setProperty(entry.getKey(), entry.getValue().toString());
+        }
+        TestHistory.store(props, file);
+    }
+
+    /**
+     * Finds the file holding the list of classes of the given project.
+     *
+     * @param  project  project, may be {@code null}
+     * @return  the file (it need not exist);
+     *          or {@code null} if the project is not known
+     *          or it is not on a local disk
+     */
+    static File getClassesFile(Project project) {
+        return TestHistory.getCacheFile(project, "classes", ".properties");//NOI18N
+    }
+
+}
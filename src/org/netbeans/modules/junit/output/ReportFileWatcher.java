@@ -0,0 +1,200 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright 1997-2010 Oracle and/or its affiliates. All rights reserved.
+ *
+ * Oracle and Java are registered trademarks of Oracle and/or its affiliates.
+ * Other names may be trademarks of their respective owners.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common
+ * Development and Distribution License("CDDL") (collectively, the
+ * "License"). You may not use this file except in compliance with the
+ * License. You can obtain a copy of the License at
+ * http://www.netbeans.org/cddl-gplv2.html
+ * or nbbuild/licenses/CDDL-GPL-2-CP. See the License for the
+ * specific language governing permissions and limitations under the
+ * License.  When distributing the software, include this License Header
+ * Notice in each file and include the License file at
+ * nbbuild/licenses/CDDL-GPL-2-CP.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the GPL Version 2 section of the License file that
+ * accompanied this code. If applicable, add the following below the
+ * License Header, with the fields enclosed by brackets [] replaced by
+ * your own identifying information:
+ * "Portions Copyrighted [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ *
+ * The Original Software is NetBeans. The Initial Developer of the Original
+ * Software is Sun Microsystems, Inc. Portions Copyright 1997-2008 Sun
+ * Microsystems, Inc. All Rights Reserved.
+ *
+ * If you wish your version of this file to be governed by only the CDDL
+ * or only the GPL Version 2, indicate your decision by adding
+ * "[Contributor] elects to include this software in this distribution
+ * under the [CDDL or GPL Version 2] license." If you do not indicate a
+ * single choice of license, a recipient has the option to distribute
+ * your version of this file under either the CDDL, the GPL Version 2 or
+ * to extend the choice of license to its licensees as provided above.
+ * However, if you add GPL Version 2 code and therefore, elected the GPL
+ * Version 2 license, then the option applies only if the new code is
+ * made subject to such option by the copyright holder.
+ */
+
+package org.netbeans.modules.junit.output;
+
+import java.io.File;
+import java.io.FileFilter;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import org.openide.util.RequestProcessor;
+
+/**
+ * Periodically checks a directory for XML reports written by the JUnit
+ * XML formatter while the test task is still running. Once a report file
+ * is complete (i.e. it did not change since the previous check and it ends
+ * with the closing {@code testsuite} tag), it is handed over to the
+ * {@link JUnitOutputReader}.
+ * Only the last few bytes of each file are read by the watcher itself;
+ * the size of files being parsed is limited by the output reader.
+ */
+final class ReportFileWatcher implements Runnable {
+
+    /** interval between checks of the results directory (in milliseconds) */
+    static final int POLL_INTERVAL = 1000;
+    /** number of bytes read from the end of a file to check it is complete */
+    private static final int TAIL_SIZE = 256;
+
+    private static final String END_TAG = "</testsuite>";               //NOI18N
+
+    private static final RequestProcessor RP = new RequestProcessor(
+                                        ReportFileWatcher.class.getName(), 1);
+
+    private static final FileFilter REPORT_FILTER = new FileFilter() {
+        public boolean accept(File file) {
+            String name = file.getName();
+            return name.startsWith("TEST-") && name.endsWith(".xml")    //NOI18N
+                   && file.isFile();
+        }
+    };
+
+    private final File resultsDir;
+    private final JUnitOutputReader reader;
+    /** lengths and timestamps of files seen in the previous check */
+    private final Map<File, long[]> pending = new HashMap<File, long[]>();
+    /** timestamps of files already handed over to the reader */
+    private final Map<File, Long> processed = new HashMap<File, Long>();
+
+    private RequestProcessor.Task task;
+    private volatile boolean stopped;
+
+    ReportFileWatcher(File resultsDir, JUnitOutputReader reader) {
+        this.resultsDir = resultsDir;
+        this.reader = reader;
+    }
+
+    void start() {
+        task = RP.post(this, POLL_INTERVAL);
+    }
+
+    /**
+     * Stops the periodic checks without waiting for a running check
+     * to finish.
+     */
+    void cancel() {
+        stopped = true;
+        if (task != null) {
+            task.cancel();
+        }
+    }
+
+    /**
+     * Stops the periodic checks and hands over all complete report files
+     * that have not been handed over yet.
+     */
+    void finish() {
+        cancel();
+        if (task != null) {
+            task.waitFinished();
+        }
+        check(true);
+    }
+
+    public void run() {
+        if (stopped) {
+            return;
+        }
+        check(false);
+        if (!stopped) {
+            task.schedule(POLL_INTERVAL);
+        }
+    }
+
+    /**
+     * @param  last  if {@code true}, files need not be unchanged since
+     *               the previous check to be considered complete
+     */
+    private synchronized void check(boolean last) {
+        File[] files = resultsDir.listFiles(REPORT_FILTER);
+        if (files == null) {
+            return;
+        }
+        for (File file : files) {
+            long lastModified = file.lastModified();
+            Long processedTime = processed.get(file);
+            if ((processedTime != null)
+                    && (processedTime.longValue() == lastModified)) {
+                continue;
+            }
+            long[] current = new long[] {file.length(), lastModified};
+            long[] previous = pending.put(file, current);
+            boolean stable = last
+                             || ((previous != null)
+                                 && (previous[0] == current[0])
+                                 && (previous[1] == current[1]));
+            if (stable && isComplete(file, current[0])
+                    && reader.reportFileWritten(file)) {
+                pending.remove(file);
+                processed.put(file, Long.valueOf(lastModified));
+            }
+        }
+    }
+
+    /**
+     * Checks whether the given report file seems to be written completely.
+     */
+    private static boolean isComplete(File file, long length) {
+        if (length < END_TAG.length()) {
+            return false;
+        }
+        int tailSize = (int) Math.min(length, TAIL_SIZE);
+        byte[] tail = new byte[tailSize];
+        String text;
+        RandomAccessFile raf = null;
+        try {
+            raf = new RandomAccessFile(file, "r");                      //NOI18N
+            raf.seek(length - tailSize);
+            raf.readFully(tail);
+            text = new String(tail, "ISO-8859-1");                      //NOI18N
+        } catch (IOException ex) {
+            Logger.getLogger(ReportFileWatcher.class.getName())
+                    .log(Level.FINE, null, ex);
+            return false;
+        } finally {
+            if (raf != null) {
+                try {
+                    raf.close();
+                } catch (IOException ex) {
+                    //ignore
+                }
+            }
+        }
+        return text.trim().endsWith(END_TAG);
+    }
+
+}
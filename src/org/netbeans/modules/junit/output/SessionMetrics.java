@@ -0,0 +1,264 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright 1997-2010 Oracle and/or its affiliates. All rights reserved.
+ *
+ * Oracle and Java are registered trademarks of Oracle and/or its affiliates.
+ * Other names may be trademarks of their respective owners.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common
+ * Development and Distribution License("CDDL") (collectively, the
+ * "License"). You may not use this file except in compliance with the
+ * License. You can obtain a copy of the License at
+ * http://www.netbeans.org/cddl-gplv2.html
+ * or nbbuild/licenses/CDDL-GPL-2-CP. See the License for the
+ * specific language governing permissions and limitations under the
+ * License.  When distributing the software, include this License Header
+ * Notice in each file and include the License file at
+ * nbbuild/licenses/CDDL-GPL-2-CP.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the GPL Version 2 section of the License file that
+ * accompanied this code. If applicable, add the following below the
+ * License Header, with the fields enclosed by brackets [] replaced by
+ * your own identifying information:
+ * "Portions Copyrighted [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ *
+ * The Original Software is NetBeans. The Initial Developer of the Original
+ * Software is Sun Microsystems, Inc. Portions Copyright 1997-2008 Sun
+ * Microsystems, Inc. All Rights Reserved.
+ *
+ * If you wish your version of this file to be governed by only the CDDL
+ * or only the GPL Version 2, indicate your decision by adding
+ * "[Contributor] elects to include this software in this distribution
+ * under the [CDDL or GPL Version 2] license." If you do not indicate a
+ * single choice of license, a recipient has the option to distribute
+ * your version of this file under either the CDDL, the GPL Version 2 or
+ * to extend the choice of license to its licensees as provided above.
+ * However, if you add GPL Version 2 code and therefore, elected the GPL
+ * Version 2 license, then the option applies only if the new code is
+ * made subject to such option by the copyright holder.
+ */
+
+package org.netbeans.modules.junit.output;
+
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+/**
+ * Counters and latency histograms of processing of a single test session
+ * by the {@link JUnitOutputReader}.
+ * While the session is running, the metrics are available through JMX
+ * under name
+ * <code>org.netbeans.modules.junit:type=SessionMetrics,id=<i>n</i></code>.
+ */
+final class SessionMetrics implements SessionMetricsMBean {
+
+    enum Counter { LINES, VERBOSE_LINES, XML_REPORTS, UI_DISPATCHES }
+
+    enum Timer { INGESTION, CLASSIFICATION, XML_PARSE, REPORT_MERGE, UI_DISPATCH }
+
+    private static final Logger LOG
+            = Logger.getLogger(SessionMetrics.class.getName());
+
+    private static final AtomicInteger lastId = new AtomicInteger();
+
+    private final String sessionName;
+    private final AtomicLongArray counters
+            = new AtomicLongArray(Counter.values().length);
+    private final Histogram[] histograms
+            = new Histogram[Timer.values().length];
+    private ObjectName objectName;
+
+    SessionMetrics(String sessionName) {
+        this.sessionName = sessionName;
+        for (int i = 0; i < histograms.length; i++) {
+            histograms[i] = new Histogram();
+        }
+    }
+
+    void count(Counter counter) {
+        counters.incrementAndGet(counter.ordinal());
+    }
+
+    /**
+     * Returns a time stamp to be passed to {@link #record}.
+     */
+    long start() {
+        return System.nanoTime();
+    }
+
+    /**
+     * Records time elapsed since the given time stamp.
+     *
+     * @param  startNanos  value returned by {@link #start()}
+     */
+    void record(Timer timer, long startNanos) {
+        histograms[timer.ordinal()].add(System.nanoTime() - startNanos);
+    }
+
+    long getCount(Counter counter) {
+        return counters.get(counter.ordinal());
+    }
+
+    String getLatency(Timer timer) {
+        return histograms[timer.ordinal()].toString();
+    }
+
+    /**
+     * Makes the metrics available through the platform MBean server.
+     */
+    synchronized void register() {
+        if (objectName != null) {
+            return;
+        }
+        try {
+            ObjectName name = new ObjectName(
+                    "org.netbeans.modules.junit:type=SessionMetrics,id="//NOI18N
+                    + lastId.incrementAndGet());
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            server.registerMBean(this, name);
+            objectName = name;
+        } catch (JMException ex) {
+            LOG.log(Level.FINE, null, ex);
+        }
+    }
+
+    synchronized void unregister() {
+        if (objectName == null) {
+            return;
+        }
+        try {
+            ManagementFactory.getPlatformMBeanServer().unregisterMBean(objectName);
+        } catch (JMException ex) {
+            LOG.log(Level.FINE, null, ex);
+        }
+        objectName = null;
+    }
+
+    /**
+     * Writes all metrics to the log.
+     */
+    void log(Logger logger, Level level) {
+        if (!logger.isLoggable(level)) {
+            return;
+        }
+        StringBuilder buf = new StringBuilder(512);
+        buf.append("Metrics of test session ").append(sessionName);     //NOI18N
+        for (Counter counter : Counter.values()) {
+            buf.append("\n  ").append(counter).append(": ")             //NOI18N
+               .append(getCount(counter));
+        }
+        for (Timer timer : Timer.values()) {
+            buf.append("\n  ").append(timer).append(": ")               //NOI18N
+               .append(getLatency(timer));
+        }
+        logger.log(level, buf.toString());
+    }
+
+    public String getSessionName() {
+        return sessionName;
+    }
+
+    public long getLines() {
+        return getCount(Counter.LINES);
+    }
+
+    public long getVerboseLines() {
+        return getCount(Counter.VERBOSE_LINES);
+    }
+
+    public long getXmlReports() {
+        return getCount(Counter.XML_REPORTS);
+    }
+
+    public long getUiDispatches() {
+        return getCount(Counter.UI_DISPATCHES);
+    }
+
+    public String getIngestionLatency() {
+        return getLatency(Timer.INGESTION);
+    }
+
+    public String getClassificationLatency() {
+        return getLatency(Timer.CLASSIFICATION);
+    }
+
+    public String getXmlParseLatency() {
+        return getLatency(Timer.XML_PARSE);
+    }
+
+    public String getReportMergeLatency() {
+        return getLatency(Timer.REPORT_MERGE);
+    }
+
+    public String getUiDispatchLatency() {
+        return getLatency(Timer.UI_DISPATCH);
+    }
+
+    /**
+     * Histogram of latencies with buckets growing exponentially
+     * (bucket <i>i</i> holds latencies shorter than 2<sup><i>i</i></sup>
+     * microseconds).
+     */
+    static final class Histogram {
+
+        private static final int BUCKETS = 32;
+
+        private final long[] buckets = new long[BUCKETS];
+        private long count;
+        private long totalNanos;
+        private long maxNanos;
+
+        synchronized void add(long nanos) {
+            long micros = Math.max(nanos / 1000, 0);
+            int bucket = Math.min(64 - Long.numberOfLeadingZeros(micros),
+                                  BUCKETS - 1);
+            buckets[bucket]++;
+            count++;
+            totalNanos += nanos;
+            maxNanos = Math.max(maxNanos, nanos);
+        }
+
+        synchronized long getCount() {
+            return count;
+        }
+
+        /**
+         * Returns the upper bound (in microseconds) of the bucket
+         * containing the given percentile.
+         */
+        synchronized long getPercentileMicros(double percentile) {
+            if (count == 0) {
+                return 0;
+            }
+            long threshold = (long) Math.ceil(count * percentile / 100.0);
+            long seen = 0;
+            for (int i = 0; i < BUCKETS; i++) {
+                seen += buckets[i];
+                if (seen >= threshold) {
+                    return Math.min(1L << i, maxNanos / 1000 + 1);
+                }
+            }
+            return maxNanos / 1000;
+        }
+
+        @Override
+        public synchronized String toString() {
+            return "count=" + count                                     //NOI18N
+                   + ", avg=" + ((count == 0) ? 0 : totalNanos / count / 1000)//NOI18N
+                   + "us, p50=" + getPercentileMicros(50)              //NOI18N
+                   + "us, p99=" + getPercentileMicros(99)              //NOI18N
+                   + "us, max=" + (maxNanos / 1000) + "us";             //NOI18N
+        }
+    }
+
+}
@@ -0,0 +1,146 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright 1997-2010 Oracle and/or its affiliates. All rights reserved.
+ *
+ * Oracle and Java are registered trademarks of Oracle and/or its affiliates.
+ * Other names may be trademarks of their respective owners.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common
+ * Development and Distribution License("CDDL") (collectively, the
+ * "License"). You may not use this file except in compliance with the
+ * License. You can obtain a copy of the License at
+ * http://www.netbeans.org/cddl-gplv2.html
+ * or nbbuild/licenses/CDDL-GPL-2-CP. See the License for the
+ * specific language governing permissions and limitations under the
+ * License.  When distributing the software, include this License Header
+ * Notice in each file and include the License file at
+ * nbbuild/licenses/CDDL-GPL-2-CP.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the GPL Version 2 section of the License file that
+ * accompanied this code. If applicable, add the following below the
+ * License Header, with the fields enclosed by brackets [] replaced by
+ * your own identifying information:
+ * "Portions Copyrighted [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ *
+ * The Original Software is NetBeans. The Initial Developer of the Original
+ * Software is Sun Microsystems, Inc. Portions Copyright 1997-2008 Sun
+ * Microsystems, Inc. All Rights Reserved.
+ *
+ * If you wish your version of this file to be governed by only the CDDL
+ * or only the GPL Version 2, indicate your decision by adding
+ * "[Contributor] elects to include this software in this distribution
+ * under the [CDDL or GPL Version 2] license." If you do not indicate a
+ * single choice of license, a recipient has the option to distribute
+ * your version of this file under either the CDDL, the GPL Version 2 or
+ * to extend the choice of license to its licensees as provided above.
+ * However, if you add GPL Version 2 code and therefore, elected the GPL
+ * Version 2 license, then the option applies only if the new code is
+ * made subject to such option by the copyright holder.
+ */
+
+package org.netbeans.modules.junit.output;
+
+import java.awt.Dimension;
+import java.awt.Font;
+import java.io.IOException;
+import java.util.List;
+import javax.swing.JScrollPane;
+import javax.swing.JTextArea;
+import javax.swing.SwingUtilities;
+import org.netbeans.api.project.Project;
+import org.netbeans.api.project.ProjectUtils;
+import org.openide.DialogDisplayer;
+import org.openide.NotifyDescriptor;
+import org.openide.util.Exceptions;
+import org.openide.util.NbBundle;
+
+/**
+ * Displays the slowest tests of a project and the tests that slowed down
+ * the most, as recorded in the project's {@link TestTimings}.
+ */
+public final class SlowTestsReport {
+
+    /** number of tests displayed in each part of the report */
+    private static final int REPORT_SIZE = 20;
+
+    private SlowTestsReport() {
+    }
+
+    /**
+     * Computes the report of the given project and displays it.
+     * Should not be called from the event dispatch thread.
+     */
+    public static void show(Project project) {
+        TestTimings.Report report;
+        try {
+            report = TestTimings.readReport(project, REPORT_SIZE);
+        } catch (IOException ex) {
+            Exceptions.printStackTrace(ex);
+            return;
+        }
+
+        StringBuilder buf = new StringBuilder(4096);
+        buf.append(NbBundle.getMessage(SlowTestsReport.class,
+                                       "LBL_SlowestTests",              //NOI18N
+                                       TestTimings.RECENT_RUNS))
+           .append('\n');
+        List<TestTimings.TestStats> slowest = report.getSlowest();
+        for (TestTimings.TestStats stats : slowest) {
+            buf.append(NbBundle.getMessage(SlowTestsReport.class,
+                                           "MSG_SlowTest",              //NOI18N
+                                           seconds(stats.getRecentMillis()),
+                                           stats.getTestId()))
+               .append('\n');
+        }
+        if (slowest.isEmpty()) {
+            buf.append(NbBundle.getMessage(SlowTestsReport.class,
+                                           "MSG_NoTimings"))            //NOI18N
+               .append('\n');
+        }
+        buf.append('\n')
+           .append(NbBundle.getMessage(SlowTestsReport.class,
+                                       "LBL_Slowdowns",                 //NOI18N
+                                       TestTimings.RECENT_RUNS))
+           .append('\n');
+        for (TestTimings.TestStats stats : report.getSlowdowns()) {
+            buf.append(NbBundle.getMessage(SlowTestsReport.class,
+                                           "MSG_Slowdown",              //NOI18N
+                                           new Object[] {
+                                               seconds(stats.getSlowdownMillis()),
+                                               seconds(stats.getOlderMillis()),
+                                               seconds(stats.getRecentMillis()),
+                                               stats.getTestId()}))
+               .append('\n');
+        }
+
+        final String text = buf.toString();
+        final String title = NbBundle.getMessage(
+                SlowTestsReport.class,
+                "TITLE_SlowTestsReport",                                //NOI18N
+                ProjectUtils.getInformation(project).getDisplayName());
+        SwingUtilities.invokeLater(new Runnable() {
+            public void run() {
+                JTextArea textArea = new JTextArea(text);
+                textArea.setEditable(false);
+                textArea.setFont(new Font(Font.MONOSPACED, Font.PLAIN,
+                                          textArea.getFont().getSize()));
+                textArea.setCaretPosition(0);
+                JScrollPane scrollPane = new JScrollPane(textArea);
+                scrollPane.setPreferredSize(new Dimension(700, 450));
+                NotifyDescriptor descriptor = new NotifyDescriptor.Message(
+                        scrollPane, NotifyDescriptor.PLAIN_MESSAGE);
+                descriptor.setTitle(title);
+                DialogDisplayer.getDefault().notify(descriptor);
+            }
+        });
+    }
+
+    private static Double seconds(long millis) {
+        return Double.valueOf(millis / 1000.0);
+    }
+
+}
@@ -0,0 +1,171 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright 1997-2010 Oracle and/or its affiliates. All rights reserved.
+ *
+ * Oracle and Java are registered trademarks of Oracle and/or its affiliates.
+ * Other names may be trademarks of their respective owners.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common
+ * Development and Distribution License("CDDL") (collectively, the
+ * "License"). You may not use this file except in compliance with the
+ * License. You can obtain a copy of the License at
+ * http://www.netbeans.org/cddl-gplv2.html
+ * or nbbuild/licenses/CDDL-GPL-2-CP. See the License for the
+ * specific language governing permissions and limitations under the
+ * License.  When distributing the software, include this License Header
+ * Notice in each file and include the License file at
+ * nbbuild/licenses/CDDL-GPL-2-CP.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the GPL Version 2 section of the License file that
+ * accompanied this code. If applicable, add the following below the
+ * License Header, with the fields enclosed by brackets [] replaced by
+ * your own identifying information:
+ * "Portions Copyrighted [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ *
+ * The Original Software is NetBeans. The Initial Developer of the Original
+ * Software is Sun Microsystems, Inc. Portions Copyright 1997-2008 Sun
+ * Microsystems, Inc. All Rights Reserved.
+ *
+ * If you wish your version of this file to be governed by only the CDDL
+ * or only the GPL Version 2, indicate your decision by adding
+ * "[Contributor] elects to include this software in this distribution
+ * under the [CDDL or GPL Version 2] license." If you do not indicate a
+ * single choice of license, a recipient has the option to distribute
+ * your version of this file under either the CDDL, the GPL Version 2 or
+ * to extend the choice of license to its licensees as provided above.
+ * However, if you add GPL Version 2 code and therefore, elected the GPL
+ * Version 2 license, then the option applies only if the new code is
+ * made subject to such option by the copyright holder.
+ */
+
+package org.netbeans.modules.junit.output;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Shares stack-trace lines of failed tests of a single test session.
+ * Each distinct line is kept just once and is given a numeric id.
+ * Stack traces are identified by the sequence of ids of their lines
+ * so that identical stack traces of different failures share a single
+ * array.
+ *
+ * @see  JUnitTestSession#getStackTracePool()
+ */
+final class StackTracePool {
+
+    private final Map<String, Integer> frameIds
+            = new HashMap<String, Integer>(256);
+    private final List<String> frames = new ArrayList<String>(256);
+    private final Map<TraceKey, String[]> traces
+            = new HashMap<TraceKey, String[]>(64);
+
+    private int sharedTraceCount;
+
+    /**
+     * Returns the pooled instance of the given stack-trace line.
+     *
+     * @param  frame  line of a stack trace
+     * @return  string equal to the given one, shared by all users of the pool
+     */
+    synchronized String intern(String frame) {
+        return frames.get(getFrameId(frame));
+    }
+
+    /**
+     * Returns a stack trace equal to the given one, shared by all users
+     * of the pool. The returned array must not be modified.
+     *
+     * @param  stackTrace  stack trace to be shared; may be {@code null}
+     * @return  shared stack trace, or {@code null} if {@code null}
+     *          was passed
+     */
+    synchronized String[] share(String[] stackTrace) {
+        if (stackTrace == null) {
+            return null;
+        }
+        int[] ids = new int[stackTrace.length];
+        for (int i = 0; i < ids.length; i++) {
+            ids[i] = getFrameId(stackTrace[i]);
+        }
+        TraceKey key = new TraceKey(ids);
+        String[] shared = traces.get(key);
+        if (shared == null) {
+            shared = new String[ids.length];
+            for (int i = 0; i < ids.length; i++) {
+                shared[i] = frames.get(ids[i]);
+            }
+            traces.put(key, shared);
+        } else if (shared != stackTrace) {
+            sharedTraceCount++;
+        }
+        return shared;
+    }
+
+    synchronized int getFrameCount() {
+        return frames.size();
+    }
+
+    synchronized int getTraceCount() {
+        return traces.size();
+    }
+
+    /**
+     * Returns number of stack traces that were replaced by an equal,
+     * already pooled stack trace.
+     */
+    synchronized int getSharedTraceCount() {
+        return sharedTraceCount;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return "StackTracePool[frames=" + frames.size()                 //NOI18N
+               + ", traces=" + traces.size()                            //NOI18N
+               + ", shared=" + sharedTraceCount + ']';                  //NOI18N
+    }
+
+    private int getFrameId(String frame) {
+        Integer id = frameIds.get(frame);
+        if (id == null) {
+            id = Integer.valueOf(frames.size());
+            frames.add(frame);
+            frameIds.put(frame, id);
+        }
+        return id.intValue();
+    }
+
+    /**
+     * Sequence of frame ids identifying a stack trace.
+     */
+    private static final class TraceKey {
+
+        private final int[] ids;
+        private final int hash;
+
+        TraceKey(int[] ids) {
+            this.ids = ids;
+            this.hash = Arrays.hashCode(ids);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            return (obj instanceof TraceKey)
+                   && (((TraceKey) obj).hash == hash)
+                   && Arrays.equals(((TraceKey) obj).ids, ids);
+        }
+    }
+
+}
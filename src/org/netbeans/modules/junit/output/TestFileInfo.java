@@ -0,0 +1,156 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright 1997-2010 Oracle and/or its affiliates. All rights reserved.
+ *
+ * Oracle and Java are registered trademarks of Oracle and/or its affiliates.
+ * Other names may be trademarks of their respective owners.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common
+ * Development and Distribution License("CDDL") (collectively, the
+ * "License"). You may not use this file except in compliance with the
+ * License. You can obtain a copy of the License at
+ * http://www.netbeans.org/cddl-gplv2.html
+ * or nbbuild/licenses/CDDL-GPL-2-CP. See the License for the
+ * specific language governing permissions and limitations under the
+ * License.  When distributing the software, include this License Header
+ * Notice in each file and include the License file at
+ * nbbuild/licenses/CDDL-GPL-2-CP.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the GPL Version 2 section of the License file that
+ * accompanied this code. If applicable, add the following below the
+ * License Header, with the fields enclosed by brackets [] replaced by
+ * your own identifying information:
+ * "Portions Copyrighted [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ *
+ * The Original Software is NetBeans. The Initial Developer of the Original
+ * Software is Sun Microsystems, Inc. Portions Copyright 1997-2008 Sun
+ * Microsystems, Inc. All Rights Reserved.
+ *
+ * If you wish your version of this file to be governed by only the CDDL
+ * or only the GPL Version 2, indicate your decision by adding
+ * "[Contributor] elects to include this software in this distribution
+ * under the [CDDL or GPL Version 2] license." If you do not indicate a
+ * single choice of license, a recipient has the option to distribute
+ * your version of this file under either the CDDL, the GPL Version 2 or
+ * to extend the choice of license to its licensees as provided above.
+ * However, if you add GPL Version 2 code and therefore, elected the GPL
+ * Version 2 license, then the option applies only if the new code is
+ * made subject to such option by the copyright holder.
+ */
+
+package org.netbeans.modules.junit.output;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.WeakHashMap;
+import org.netbeans.modules.junit.RunnerScanner;
+import org.openide.filesystems.FileChangeAdapter;
+import org.openide.filesystems.FileChangeListener;
+import org.openide.filesystems.FileEvent;
+import org.openide.filesystems.FileObject;
+import org.openide.filesystems.FileRenameEvent;
+import org.openide.filesystems.FileUtil;
+import org.openide.util.Exceptions;
+
+/**
+ * Metadata about a test file needed for building context actions of nodes
+ * in the test results window. The metadata are cached per test file
+ * and dropped as soon as the file is changed, so that building actions
+ * of many test method nodes of the same file does not read and scan
+ * the file again and again.
+ * Availability of actions of the project is not cached - it may differ
+ * for each test method and it may change with the project's configuration.
+ */
+final class TestFileInfo extends FileChangeAdapter {
+
+    /** test files mapped to their cached metadata */
+    private static final Map<FileObject, TestFileInfo> cache
+            = new WeakHashMap<FileObject, TestFileInfo>();
+
+    /**
+     * class name of the JUnit runner specified by the {@code RunWith}
+     * annotation, as written in the source, or {@literal null} if no runner
+     * is specified
+     */
+    private String runner;
+    /** is the test class run by the {@code Parameterized} runner? */
+    private boolean parameterized;
+    /** cleared as soon as the file is changed, deleted or renamed */
+    private volatile boolean valid = true;
+    /** keeps the weak file change listener alive */
+    private FileChangeListener fileListener;
+
+    private TestFileInfo() {
+    }
+
+    /**
+     * Returns metadata of the given test file.
+     * The metadata are computed if they are not cached yet or if the file
+     * was changed since they were computed.
+     *
+     * @param  testFO  test file
+     * @return  metadata of the given file
+     */
+    static TestFileInfo get(FileObject testFO) {
+        synchronized (cache) {
+            TestFileInfo info = cache.get(testFO);
+            if ((info != null) && info.valid) {
+                return info;
+            }
+        }
+
+        TestFileInfo info = new TestFileInfo();
+        info.fileListener = FileUtil.weakFileChangeListener(info, testFO);
+        testFO.addFileChangeListener(info.fileListener);
+        info.compute(testFO);
+        synchronized (cache) {
+            cache.put(testFO, info);
+        }
+        return info;
+    }
+
+    private void compute(FileObject testFO) {
+        try {
+            String text = testFO.asText();
+            if (text != null) {
+                runner = RunnerScanner.findRunner(text);
+            }
+        } catch (IOException ex) {
+            Exceptions.printStackTrace(ex);
+        }
+        parameterized = RunnerScanner.isParameterized(runner);
+    }
+
+    private void invalidate(FileEvent fe) {
+        valid = false;
+        fe.getFile().removeFileChangeListener(fileListener);
+    }
+
+    @Override
+    public void fileChanged(FileEvent fe) {
+        invalidate(fe);
+    }
+
+    @Override
+    public void fileDeleted(FileEvent fe) {
+        invalidate(fe);
+    }
+
+    @Override
+    public void fileRenamed(FileRenameEvent fe) {
+        invalidate(fe);
+    }
+
+    String getRunner() {
+        return runner;
+    }
+
+    boolean isParameterized() {
+        return parameterized;
+    }
+
+}
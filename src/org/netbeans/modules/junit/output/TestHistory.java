@@ -0,0 +1,473 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright 1997-2010 Oracle and/or its affiliates. All rights reserved.
+ *
+ * Oracle and Java are registered trademarks of Oracle and/or its affiliates.
+ * Other names may be trademarks of their respective owners.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common
+ * Development and Distribution License("CDDL") (collectively, the
+ * "License"). You may not use this file except in compliance with the
+ * License. You can obtain a copy of the License at
+ * http://www.netbeans.org/cddl-gplv2.html
+ * or nbbuild/licenses/CDDL-GPL-2-CP. See the License for the
+ * specific language governing permissions and limitations under the
+ * License.  When distributing the software, include this License Header
+ * Notice in each file and include the License file at
+ * nbbuild/licenses/CDDL-GPL-2-CP.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the GPL Version 2 section of the License file that
+ * accompanied this code. If applicable, add the following below the
+ * License Header, with the fields enclosed by brackets [] replaced by
+ * your own identifying information:
+ * "Portions Copyrighted [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ *
+ * The Original Software is NetBeans. The Initial Developer of the Original
+ * Software is Sun Microsystems, Inc. Portions Copyright 1997-2008 Sun
+ * Microsystems, Inc. All Rights Reserved.
+ *
+ * If you wish your version of this file to be governed by only the CDDL
+ * or only the GPL Version 2, indicate your decision by adding
+ * "[Contributor] elects to include this software in this distribution
+ * under the [CDDL or GPL Version 2] license." If you do not indicate a
+ * single choice of license, a recipient has the option to distribute
+ * your version of this file under either the CDDL, the GPL Version 2 or
+ * to extend the choice of license to its licensees as provided above.
+ * However, if you add GPL Version 2 code and therefore, elected the GPL
+ * Version 2 license, then the option applies only if the new code is
+ * made subject to such option by the copyright holder.
+ */
+
+package org.netbeans.modules.junit.output;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UnsupportedEncodingException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import org.netbeans.api.project.Project;
+import org.openide.filesystems.FileUtil;
+import org.openide.util.RequestProcessor;
+
+/**
+ * Results of past test runs of a project - for each test class, the run
+ * it last failed in, the time it took during its last run and the time
+ * it last passed.
+ * The history is used for ordering of test classes when tests are rerun:
+ * classes that failed recently go first, the remaining classes are ordered
+ * from the longest-running to the shortest-running one.
+ * <p>
+ * The history is kept in a properties file in the user directory
+ * ({@code var/cache/junit/history}), one file per project.
+ *
+ * @see  JUnitOutputReader#buildFinished
+ * @see  JUnitExecutionManager#rerun(java.util.Set)
+ */
+final class TestHistory {
+
+    /**
+     * number of runs during which a failure of a test class is considered
+     * recent
+     */
+    static final int RECENT_FAILURE_RUNS = 10;
+
+    /** maximum number of test classes kept in the history */
+    static final int MAX_CLASSES = 10000;
+
+    private static final String RUN_COUNT_KEY = ".runs";                //NOI18N
+
+    private static final RequestProcessor RP = new RequestProcessor(
+            TestHistory.class.getName(), 1);
+
+    private static final Logger LOG
+            = Logger.getLogger(TestHistory.class.getName());
+
+    /**
+     * Results of test classes run within a single test session.
+     */
+    static final class Results {
+
+        /** class name &rarr; {duration, failed (0 or 1)} */
+        private final Map<String, long[]> classes
+                = new LinkedHashMap<String, long[]>();
+        private final long startTime;
+
+        /**
+         * @param  startTime  time the test session was started at
+         */
+        Results(long startTime) {
+            this.startTime = startTime;
+        }
+
+        /**
+         * Records results of a test class.
+         *
+         * @param  className  name of the test class
+         * @param  durationMillis  time it took to run the class
+         * @param  failed  whether some of the class' tests failed
+         */
+        void add(String className, long durationMillis, boolean failed) {
+            long[] result = classes.get(className);
+            if (result == null) {
+                classes.put(className, new long[] {durationMillis,
+                                                   failed ? 1 : 0});
+            } else {
+                result[0] += durationMillis;
+                result[1] |= failed ? 1 : 0;
+            }
+        }
+
+        boolean isEmpty() {
+            return classes.isEmpty();
+        }
+    }
+
+    private int runCount;
+    /**
+     * class name &rarr; {run of the last failure (0 = never), duration,
+     * run the class last ran in, start time of the session the class
+     * last passed in (0 = never)}
+     */
+    private final Map<String, long[]> classes;
+
+    TestHistory() {
+        this.classes = new HashMap<String, long[]>();
+    }
+
+    int getRunCount() {
+        return runCount;
+    }
+
+    /**
+     * Adds results of a test run to this history.
+     */
+    void addRun(Results results) {
+        runCount++;
+        for (Map.Entry<String, long[]> entry : results.classes.entrySet()) {
+            long[] result = entry.getValue();
+            long[] history = classes.get(entry.getKey());
+            if (history == null) {
+                history = new long[4];
+                classes.put(entry.getKey(), history);
+            }
+            if (result[1] != 0) {
+                history[0] = runCount;
+            } else {
+                history[3] = results.startTime;
+            }
+            history[1] = result[0];
+            history[2] = runCount;
+        }
+        if (classes.size() > MAX_CLASSES) {
+            forgetOldest(classes.size() - MAX_CLASSES);
+        }
+    }
+
+    /**
+     * Returns the time the given test class last passed at.
+     *
+     * @return  start time of the last test session the class passed in;
+     *          or {@code 0} if the class never passed or if it failed
+     *          during its last run
+     */
+    long getLastPassTime(String className) {
+        long[] history = classes.get(className);
+        if ((history == null) || (history[0] == history[2])) {
+            return 0;
+        }
+        return history[3];
+    }
+
+    /**
+     * Removes the given number of classes that did not run for the longest
+     * time.
+     */
+    private void forgetOldest(int count) {
+        List<Map.Entry<String, long[]>> entries
+                = new ArrayList<Map.Entry<String, long[]>>(classes.entrySet());
+        Collections.sort(entries, new Comparator<Map.Entry<String, long[]>>() {
+            public int compare(Map.Entry<String, long[]> e1,
+                               Map.Entry<String, long[]> e2) {
+                long r1 = e1.getValue()[2];
+                long r2 = e2.getValue()[2];
+                return (r1 < r2) ? -1 : (r1 == r2) ? 0 : 1;
+            }
+        });
+        for (int i = 0; i < count; i++) {
+            classes.remove(entries.get(i).getKey());
+        }
+    }
+
+    /**
+     * Orders the given test classes - recently failed classes go first,
+     * the most recent failure first, followed by classes that are not
+     * known yet (they may have been just written) and then by the other
+     * classes, from the longest-running one.
+     *
+     * @param  classNames  names of test classes to be ordered
+     * @return  new list of the given class names, ordered
+     */
+    List<String> order(Collection<String> classNames) {
+        List<String> result = new ArrayList<String>(classNames);
+        Collections.sort(result, new Comparator<String>() {
+            public int compare(String c1, String c2) {
+                long[] h1 = classes.get(c1);
+                long[] h2 = classes.get(c2);
+                int rank1 = getRank(h1);
+                int rank2 = getRank(h2);
+                if (rank1 != rank2) {
+                    return rank1 - rank2;
+                }
+                if (rank1 == 0) {
+                    /* more recent failure first: */
+                    int cmp = compare(h2[0], h1[0]);
+                    if (cmp != 0) {
+                        return cmp;
+                    }
+                }
+                if (rank1 != 1) {
+                    /* longer duration first: */
+                    int cmp = compare(h2[1], h1[1]);
+                    if (cmp != 0) {
+                        return cmp;
+                    }
+                }
+                return c1.compareTo(c2);
+            }
+
+            private int compare(long l1, long l2) {
+                return (l1 < l2) ? -1 : (l1 == l2) ? 0 : 1;
+            }
+        });
+        return result;
+    }
+
+    /**
+     * @return  0 for recently failed classes, 1 for unknown classes
+     *          and 2 for the other classes
+     */
+    private int getRank(long[] history) {
+        if (history == null) {
+            return 1;
+        }
+        return ((history[0] != 0)
+                && (runCount - history[0] < RECENT_FAILURE_RUNS)) ? 0 : 2;
+    }
+
+    /**
+     * Reads a history from the given file.
+     *
+     * @param  file  file to read the history from, may be {@code null}
+     * @return  history read from the file; or an empty history if the file
+     *          does not exist or cannot be read
+     */
+    static TestHistory read(File file) {
+        TestHistory history = new TestHistory();
+        if ((file == null) || !file.isFile()) {
+            return history;
+        }
+
+        Properties props = new Properties();
+        try {
+            InputStream in = new BufferedInputStream(new FileInputStream(file));
+            try {
+                props.load(in);
+            } finally {
+                in.close();
+            }
+        } catch (IOException ex) {
+            LOG.log(Level.INFO, "Cannot read test history " + file, ex);//NOI18N
+            return history;
+        }
+
+        history.runCount = parseInt(props.getProperty(RUN_COUNT_KEY));
+        for (String key : props.stringPropertyNames()) {
+            if (key.equals(RUN_COUNT_KEY)) {
+                continue;
+            }
+            String[] values = props.getProperty(key).split(",");    //NOI18N
+            if (values.length != 4) {
+                continue;
+            }
+            history.classes.put(key, new long[] {parseInt(values[0]),
+                                                 parseLong(values[1]),
+                                                 parseInt(values[2]),
+                                                 parseLong(values[3])});
+        }
+        return history;
+    }
+
+    /**
+     * Writes this history to the given file.
+     */
+    void write(File file) throws IOException {
+        Properties props = new Properties();
+        props.setProperty(RUN_COUNT_KEY, Integer.toString(runCount));
+        for (Map.Entry<String, long[]> entry : classes.entrySet()) {
+            long[] history = entry.getValue();
+            props.setProperty(entry.getKey(), history[0] + ","         //NOI18N
+                                              + history[1] + ","        //NOI18N
+                                              + history[2] + ","        //NOI18N
+                                              + history[3]);
+        }
+        store(props, file);
+    }
+
+    /**
+     * Stores the given properties to the given file. The properties are
+     * written to a temporary file first which then replaces the given file,
+     * so that readers never see a truncated or partially written file.
+     */
+    static void store(Properties props, File file) throws IOException {
+        File dir = file.getParentFile();
+        if ((dir != null) && !dir.isDirectory() && !dir.mkdirs()) {
+            throw new IOException("Cannot create " + dir);              //NOI18N
+        }
+        File tmpFile = new File(dir, file.getName() + ".tmp");          //NOI18N
+        OutputStream out = new BufferedOutputStream(
+                                            new FileOutputStream(tmpFile));
+        try {
+            props.store(out, null);
+        } finally {
+            out.close();
+        }
+        if (!tmpFile.renameTo(file)) {
+            /* on some platforms, rename does not replace an existing file: */
+            if (!file.delete() || !tmpFile.renameTo(file)) {
+                tmpFile.delete();
+                throw new IOException("Cannot replace " + file);        //NOI18N
+            }
+        }
+    }
+
+    /**
+     * Finds the file holding the test history of the given project.
+     *
+     * @param  project  project, may be {@code null}
+     * @return  the history file (it need not exist);
+     *          or {@code null} if the project is not known
+     *          or it is not on a local disk
+     */
+    static File getHistoryFile(Project project) {
+        return getCacheFile(project, "history", ".properties");        //NOI18N
+    }
+
+    /**
+     * Finds a file holding cached information about the given project.
+     * The files are kept in the user directory
+     * ({@code var/cache/junit/<i>folderName</i>}).
+     *
+     * @param  project  project, may be {@code null}
+     * @param  folderName  name of the folder the file is kept in
+     * @param  extension  extension of the file, including the leading dot
+     * @return  the cache file (it need not exist);
+     *          or {@code null} if the project is not known
+     *          or it is not on a local disk
+     */
+    static File getCacheFile(Project project,
+                             String folderName,
+                             String extension) {
+        if (project == null) {
+            return null;
+        }
+        File projectDir = FileUtil.toFile(project.getProjectDirectory());
+        if (projectDir == null) {
+            return null;
+        }
+        String userDir = System.getProperty("netbeans.user");           //NOI18N
+        File cacheDir = (userDir != null)
+                        ? new File(userDir, "var" + File.separatorChar   //NOI18N
+                                            + "cache")                  //NOI18N
+                        : new File(System.getProperty("java.io.tmpdir"));//NOI18N
+        String path = projectDir.getAbsolutePath();
+        return new File(cacheDir, "junit" + File.separatorChar          //NOI18N
+                                  + folderName + File.separatorChar
+                                  + getDigest(path)
+                                  + extension);
+    }
+
+    /**
+     * Computes a hexadecimal digest of the given string. Unlike
+     * {@code String.hashCode()}, the digest makes it practically impossible
+     * for paths of two projects to map to the same cache file.
+     */
+    static String getDigest(String str) {
+        byte[] digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-1")                 //NOI18N
+                     .digest(str.getBytes("UTF-8"));                    //NOI18N
+        } catch (NoSuchAlgorithmException ex) {
+            throw new IllegalStateException(ex);    //SHA-1 is mandatory
+        } catch (UnsupportedEncodingException ex) {
+            throw new IllegalStateException(ex);    //UTF-8 is mandatory
+        }
+        StringBuilder buf = new StringBuilder(digest.length * 2);
+        for (byte b : digest) {
+            buf.append(Character.forDigit((b >> 4) & 0x0f, 16))
+               .append(Character.forDigit(b & 0x0f, 16));
+        }
+        return buf.toString();
+    }
+
+    /**
+     * Adds the given results to the history of the given project.
+     * The history file is updated asynchronously.
+     */
+    static void save(Project project, final Results results) {
+        if (results.isEmpty()) {
+            return;
+        }
+        final File file = getHistoryFile(project);
+        if (file == null) {
+            return;
+        }
+        RP.post(new Runnable() {
+            public void run() {
+                TestHistory history = read(file);
+                history.addRun(results);
+                try {
+                    history.write(file);
+                } catch (IOException ex) {
+                    LOG.log(Level.INFO, "Cannot write test history " + file, ex);//NOI18N
+                }
+            }
+        });
+    }
+
+    private static int parseInt(String str) {
+        return (int) Math.min(Integer.MAX_VALUE, parseLong(str));
+    }
+
+    private static long parseLong(String str) {
+        if (str == null) {
+            return 0;
+        }
+        try {
+            return Math.max(0, Long.parseLong(str.trim()));
+        } catch (NumberFormatException ex) {
+            return 0;
+        }
+    }
+
+}
@@ -0,0 +1,395 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright 1997-2010 Oracle and/or its affiliates. All rights reserved.
+ *
+ * Oracle and Java are registered trademarks of Oracle and/or its affiliates.
+ * Other names may be trademarks of their respective owners.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common
+ * Development and Distribution License("CDDL") (collectively, the
+ * "License"). You may not use this file except in compliance with the
+ * License. You can obtain a copy of the License at
+ * http://www.netbeans.org/cddl-gplv2.html
+ * or nbbuild/licenses/CDDL-GPL-2-CP. See the License for the
+ * specific language governing permissions and limitations under the
+ * License.  When distributing the software, include this License Header
+ * Notice in each file and include the License file at
+ * nbbuild/licenses/CDDL-GPL-2-CP.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the GPL Version 2 section of the License file that
+ * accompanied this code. If applicable, add the following below the
+ * License Header, with the fields enclosed by brackets [] replaced by
+ * your own identifying information:
+ * "Portions Copyrighted [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ *
+ * The Original Software is NetBeans. The Initial Developer of the Original
+ * Software is Sun Microsystems, Inc. Portions Copyright 1997-2008 Sun
+ * Microsystems, Inc. All Rights Reserved.
+ *
+ * If you wish your version of this file to be governed by only the CDDL
+ * or only the GPL Version 2, indicate your decision by adding
+ * "[Contributor] elects to include this software in this distribution
+ * under the [CDDL or GPL Version 2] license." If you do not indicate a
+ * single choice of license, a recipient has the option to distribute
+ * your version of this file under either the CDDL, the GPL Version 2 or
+ * to extend the choice of license to its licensees as provided above.
+ * However, if you add GPL Version 2 code and therefore, elected the GPL
+ * Version 2 license, then the option applies only if the new code is
+ * made subject to such option by the copyright holder.
+ */
+
+package org.netbeans.modules.junit.output;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.lang.ref.WeakReference;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Set;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import org.openide.util.NbBundle;
+import org.openide.util.Utilities;
+
+/**
+ * Holds output captured from tests of a single test session.
+ * Only a short tail of the output of each test case is kept on the heap;
+ * older lines are spilled to a temporary file and read back (via a
+ * memory-mapped region of the file) only when they are asked for.
+ * The temporary file is deleted when the store is disposed, which happens
+ * once the owning session is garbage collected.
+ *
+ * @see  JUnitTestSession#getOutputStore()
+ */
+final class TestOutputStore {
+
+    /** maximum number of lines of a single test case kept on the heap */
+    static final int DEFAULT_TAIL_LINES = 200;
+
+    private static final Logger LOG
+            = Logger.getLogger(TestOutputStore.class.getName());
+
+    private static final String ENCODING = "UTF-8";                 //NOI18N
+
+    /** keeps references to owners of stores reachable until they are enqueued */
+    private static final Set<Releaser> releasers = new HashSet<Releaser>();
+
+    private final int tailLines;
+
+    private File spillFile;
+    private RandomAccessFile spillAccess;
+    private FileChannel spillChannel;
+    /** set if spilling failed - output is then kept on the heap */
+    private boolean spillDisabled;
+    private boolean disposed;
+
+    private long spillSize;
+    private long heapChars;
+    private int lineCount;
+    private int spilledLineCount;
+
+    TestOutputStore() {
+        this(DEFAULT_TAIL_LINES);
+    }
+
+    TestOutputStore(int tailLines) {
+        if (tailLines < 2) {
+            throw new IllegalArgumentException("tailLines: " + tailLines);//NOI18N
+        }
+        this.tailLines = tailLines;
+    }
+
+    /**
+     * Creates a new, empty output record for a single test case.
+     */
+    Entry createEntry() {
+        return new Entry();
+    }
+
+    /**
+     * Returns an estimate of the heap memory occupied by the stored lines.
+     *
+     * @return  estimated number of bytes held on the heap
+     */
+    synchronized long getHeapFootprint() {
+        return heapChars * 2;
+    }
+
+    /**
+     * Returns size of the temporary file the output has been spilled to.
+     *
+     * @return  number of bytes written to the temporary file
+     */
+    synchronized long getSpilledBytes() {
+        return spillSize;
+    }
+
+    synchronized int getLineCount() {
+        return lineCount;
+    }
+
+    synchronized int getSpilledLineCount() {
+        return spilledLineCount;
+    }
+
+    /**
+     * Closes and deletes the temporary file.
+     * Output spilled to the file is no longer available after this call.
+     */
+    synchronized void dispose() {
+        if (spillAccess != null) {
+            try {
+                spillAccess.close();
+            } catch (IOException ex) {
+                LOG.log(Level.FINE, null, ex);
+            }
+            spillAccess = null;
+            spillChannel = null;
+        }
+        if (spillFile != null) {
+            if (!spillFile.delete()) {
+                spillFile.deleteOnExit();
+            }
+            spillFile = null;
+        }
+        spillDisabled = true;
+        disposed = true;
+    }
+
+    synchronized boolean isDisposed() {
+        return disposed;
+    }
+
+    /**
+     * Makes sure the given store is {@linkplain #dispose disposed}
+     * as soon as the given owner is garbage collected, e.g.&nbsp;when
+     * the test session owning the store is replaced in the results window.
+     *
+     * @param  owner  object owning the store; it must not be referenced
+     *                by the store
+     * @param  store  store to be disposed
+     */
+    static void disposeWhenReleased(Object owner, TestOutputStore store) {
+        Releaser releaser = new Releaser(owner, store);
+        synchronized (releasers) {
+            releasers.add(releaser);
+        }
+    }
+
+    @Override
+    public synchronized String toString() {
+        return "TestOutputStore[lines=" + lineCount                     //NOI18N
+               + ", spilledLines=" + spilledLineCount                   //NOI18N
+               + ", heapBytes=" + getHeapFootprint()                    //NOI18N
+               + ", spilledBytes=" + spillSize + ']';                   //NOI18N
+    }
+
+    /**
+     * Writes the given lines at the end of the temporary file.
+     *
+     * @return  offset of the written block in the file,
+     *          or {@code -1} if the lines could not be written
+     */
+    private long spill(List<String> lines, int[] blockLength) {
+        if (spillDisabled) {
+            return -1;
+        }
+        try {
+            if (spillChannel == null) {
+                spillFile = File.createTempFile("junit-output", ".tmp");//NOI18N
+                spillFile.deleteOnExit();
+                spillAccess = new RandomAccessFile(spillFile, "rw");    //NOI18N
+                spillChannel = spillAccess.getChannel();
+            }
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream(
+                                                        lines.size() * 64);
+            DataOutputStream out = new DataOutputStream(bytes);
+            for (String line : lines) {
+                byte[] encoded = line.getBytes(ENCODING);
+                out.writeInt(encoded.length);
+                out.write(encoded);
+            }
+            out.flush();
+
+            long offset = spillSize;
+            ByteBuffer buf = ByteBuffer.wrap(bytes.toByteArray());
+            blockLength[0] = buf.remaining();
+            long pos = offset;
+            while (buf.hasRemaining()) {
+                pos += spillChannel.write(buf, pos);
+            }
+            spillSize = pos;
+            return offset;
+        } catch (IOException ex) {
+            LOG.log(Level.INFO,
+                    "Cannot spill test output, keeping it in memory", ex);//NOI18N
+            spillDisabled = true;
+            return -1;
+        }
+    }
+
+    private void load(long offset, int length, int count, List<String> into)
+                                                        throws IOException {
+        if (spillChannel == null) {
+            throw new IOException("Spilled test output is no longer available");//NOI18N
+        }
+        MappedByteBuffer buf = spillChannel.map(FileChannel.MapMode.READ_ONLY,
+                                                offset, length);
+        for (int i = 0; i < count; i++) {
+            byte[] encoded = new byte[buf.getInt()];
+            buf.get(encoded);
+            into.add(new String(encoded, ENCODING));
+        }
+    }
+
+    /**
+     * Disposes a store once its owner has been garbage collected.
+     */
+    private static final class Releaser extends WeakReference<Object>
+                                        implements Runnable {
+
+        private final TestOutputStore store;
+
+        Releaser(Object owner, TestOutputStore store) {
+            super(owner, Utilities.activeReferenceQueue());
+            this.store = store;
+        }
+
+        public void run() {
+            synchronized (releasers) {
+                releasers.remove(this);
+            }
+            store.dispose();
+        }
+    }
+
+    /**
+     * Output of a single test case.
+     */
+    final class Entry {
+
+        private final LinkedList<String> tail = new LinkedList<String>();
+        /** offset, length and number of lines of each spilled block */
+        private long[] blocks;
+        private int blockCount;
+        private int spilled;
+
+        private Entry() {
+        }
+
+        void addLine(String line) {
+            synchronized (TestOutputStore.this) {
+                tail.add(line);
+                heapChars += line.length();
+                lineCount++;
+                if (tail.size() > tailLines) {
+                    spillOldest();
+                }
+            }
+        }
+
+        /**
+         * Spills the older half of the tail to the temporary file.
+         */
+        private void spillOldest() {
+            if (spillDisabled) {
+                return;
+            }
+            int count = tailLines / 2;
+            List<String> oldest = new ArrayList<String>(
+                                                tail.subList(0, count));
+            int[] length = new int[1];
+            long offset = spill(oldest, length);
+            if (offset == -1) {
+                return;
+            }
+            if (blocks == null) {
+                blocks = new long[3 * 4];
+            } else if (blocks.length == blockCount * 3) {
+                long[] newBlocks = new long[blocks.length * 2];
+                System.arraycopy(blocks, 0, newBlocks, 0, blocks.length);
+                blocks = newBlocks;
+            }
+            blocks[blockCount * 3] = offset;
+            blocks[blockCount * 3 + 1] = length[0];
+            blocks[blockCount * 3 + 2] = count;
+            blockCount++;
+            for (int i = 0; i < count; i++) {
+                heapChars -= tail.removeFirst().length();
+            }
+            spilled += count;
+            spilledLineCount += count;
+        }
+
+        boolean isEmpty() {
+            synchronized (TestOutputStore.this) {
+                return tail.isEmpty() && (spilled == 0);
+            }
+        }
+
+        int getLineCount() {
+            synchronized (TestOutputStore.this) {
+                return spilled + tail.size();
+            }
+        }
+
+        /**
+         * Returns all lines of output of the test case, including lines
+         * that have been spilled to the temporary file. Spilled lines
+         * that cannot be read back are replaced with a line saying how many
+         * lines are missing.
+         *
+         * @return  unmodifiable list of lines
+         */
+        List<String> getLines() {
+            synchronized (TestOutputStore.this) {
+                List<String> result = new ArrayList<String>(
+                                                    spilled + tail.size());
+                List<String> block = new ArrayList<String>();
+                int missing = 0;
+                for (int i = 0; i < blockCount; i++) {
+                    int count = (int) blocks[i * 3 + 2];
+                    block.clear();
+                    try {
+                        load(blocks[i * 3], (int) blocks[i * 3 + 1], count,
+                             block);
+                    } catch (IOException ex) {
+                        if (missing == 0) {
+                            LOG.log(Level.INFO, null, ex);
+                        }
+                        missing += count;
+                        continue;
+                    }
+                    addMissingLinesNote(missing, result);
+                    missing = 0;
+                    result.addAll(block);
+                }
+                addMissingLinesNote(missing, result);
+                result.addAll(tail);
+                return Collections.unmodifiableList(result);
+            }
+        }
+
+        private void addMissingLinesNote(int missing, List<String> into) {
+            if (missing != 0) {
+                into.add(NbBundle.getMessage(TestOutputStore.class,
+                                             "MSG_OutputNotAvailable",  //NOI18N
+                                             missing));
+            }
+        }
+    }
+
+}
@@ -0,0 +1,551 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright 1997-2010 Oracle and/or its affiliates. All rights reserved.
+ *
+ * Oracle and Java are registered trademarks of Oracle and/or its affiliates.
+ * Other names may be trademarks of their respective owners.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common
+ * Development and Distribution License("CDDL") (collectively, the
+ * "License"). You may not use this file except in compliance with the
+ * License. You can obtain a copy of the License at
+ * http://www.netbeans.org/cddl-gplv2.html
+ * or nbbuild/licenses/CDDL-GPL-2-CP. See the License for the
+ * specific language governing permissions and limitations under the
+ * License.  When distributing the software, include this License Header
+ * Notice in each file and include the License file at
+ * nbbuild/licenses/CDDL-GPL-2-CP.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the GPL Version 2 section of the License file that
+ * accompanied this code. If applicable, add the following below the
+ * License Header, with the fields enclosed by brackets [] replaced by
+ * your own identifying information:
+ * "Portions Copyrighted [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ *
+ * The Original Software is NetBeans. The Initial Developer of the Original
+ * Software is Sun Microsystems, Inc. Portions Copyright 1997-2008 Sun
+ * Microsystems, Inc. All Rights Reserved.
+ *
+ * If you wish your version of this file to be governed by only the CDDL
+ * or only the GPL Version 2, indicate your decision by adding
+ * "[Contributor] elects to include this software in this distribution
+ * under the [CDDL or GPL Version 2] license." If you do not indicate a
+ * single choice of license, a recipient has the option to distribute
+ * your version of this file under either the CDDL, the GPL Version 2 or
+ * to extend the choice of license to its licensees as provided above.
+ * However, if you add GPL Version 2 code and therefore, elected the GPL
+ * Version 2 license, then the option applies only if the new code is
+ * made subject to such option by the copyright holder.
+ */
+
+package org.netbeans.modules.junit.output;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import org.netbeans.api.project.Project;
+import org.netbeans.modules.gsf.testrunner.api.Status;
+import org.openide.util.RequestProcessor;
+
+/**
+ * Append-only store of durations of individual tests of a project.
+ * Durations of all tests run in a test session are appended to the store
+ * when the session finishes. The store is used to find the slowest tests
+ * and the tests that became slower recently.
+ * <p>
+ * The store consists of two segments - the current one and the previous
+ * one. When the current segment grows over {@value #MAX_SEGMENT_SIZE}
+ * bytes, it replaces the previous segment and a new segment is started.
+ * Each segment is a sequence of records:
+ * <ul>
+ *     <li>{@code NAME} (int id, UTF name) - defines id of a test</li>
+ *     <li>{@code SESSION} (long time) - start of a session, applies to
+ *         the following {@code TIMING} records</li>
+ *     <li>{@code TIMING} (int id, int duration, byte status) - result
+ *         of a single test</li>
+ * </ul>
+ * Test ids are only valid within a segment.
+ *
+ * @see  JUnitOutputReader#buildFinished
+ */
+final class TestTimings {
+
+    /** maximum size of a segment, in bytes */
+    static final int MAX_SEGMENT_SIZE = 1 << 21;
+    /** number of the most recent passing runs of a test compared to its older runs */
+    static final int RECENT_RUNS = 3;
+    /** maximum number of tests analysed by {@link #readReport} */
+    static final int MAX_TESTS = 100000;
+
+    private static final int MAGIC = 0x4a55544d;                        //"JUTM"
+    private static final byte NAME = 1;
+    private static final byte SESSION = 2;
+    private static final byte TIMING = 3;
+
+    private static final byte PASSED = 0;
+    private static final byte FAILED = 1;
+    private static final byte ERROR = 2;
+    private static final byte OTHER = 3;
+
+    private static final String OLD_SEGMENT_SUFFIX = ".old";            //NOI18N
+
+    private static final RequestProcessor RP = new RequestProcessor(
+            TestTimings.class.getName(), 1);
+
+    private static final Logger LOG
+            = Logger.getLogger(TestTimings.class.getName());
+
+    /**
+     * test ids of the last written segment, valid while the segment
+     * has the remembered length (guarded by the class lock)
+     */
+    private static File cachedFile;
+    private static long cachedLength;
+    private static Map<String, Integer> cachedIds;
+
+    private TestTimings() {
+    }
+
+    /**
+     * Durations of tests run within a single test session.
+     */
+    static final class Session {
+
+        private final long startTime;
+        private final List<String> names = new ArrayList<String>();
+        private final List<int[]> results = new ArrayList<int[]>();
+
+        /**
+         * @param  startTime  time the test session was started at
+         */
+        Session(long startTime) {
+            this.startTime = startTime;
+        }
+
+        /**
+         * Records a result of a single test.
+         *
+         * @param  testId  identification of the test
+         *                 (class name and method name)
+         */
+        void add(String testId, long durationMillis, Status status) {
+            names.add(testId);
+            results.add(new int[] {
+                    (int) Math.min(Integer.MAX_VALUE, Math.max(0, durationMillis)),
+                    encode(status)});
+        }
+
+        boolean isEmpty() {
+            return names.isEmpty();
+        }
+
+        /**
+         * Returns number of test results recorded.
+         */
+        int size() {
+            return names.size();
+        }
+    }
+
+    /**
+     * Statistics of a single test, as presented in a report.
+     */
+    static final class TestStats {
+
+        private final String testId;
+        private final int[] recent = new int[RECENT_RUNS];
+        private int recentCount;
+        private long olderSum;
+        private int olderCount;
+
+        private TestStats(String testId) {
+            this.testId = testId;
+        }
+
+        private void add(int duration) {
+            int index = recentCount % RECENT_RUNS;
+            if (recentCount >= RECENT_RUNS) {
+                olderSum += recent[index];
+                olderCount++;
+            }
+            recent[index] = duration;
+            recentCount++;
+        }
+
+        String getTestId() {
+            return testId;
+        }
+
+        /**
+         * @return  average duration of the most recent passing runs
+         */
+        long getRecentMillis() {
+            int count = Math.min(recentCount, RECENT_RUNS);
+            long sum = 0;
+            for (int i = 0; i < count; i++) {
+                sum += recent[i];
+            }
+            return (count != 0) ? sum / count : 0;
+        }
+
+        /**
+         * @return  average duration of the older passing runs,
+         *          or {@code -1} if there were no older runs
+         */
+        long getOlderMillis() {
+            return (olderCount != 0) ? olderSum / olderCount : -1;
+        }
+
+        /**
+         * @return  how much the test slowed down recently,
+         *          or {@code 0} if it did not
+         */
+        long getSlowdownMillis() {
+            long older = getOlderMillis();
+            return (older < 0) ? 0 : Math.max(0, getRecentMillis() - older);
+        }
+    }
+
+    /**
+     * Report of the slowest tests and the biggest slowdowns.
+     */
+    static final class Report {
+
+        private final List<TestStats> slowest;
+        private final List<TestStats> slowdowns;
+
+        private Report(List<TestStats> slowest, List<TestStats> slowdowns) {
+            this.slowest = slowest;
+            this.slowdowns = slowdowns;
+        }
+
+        /**
+         * @return  the slowest tests, the slowest first
+         */
+        List<TestStats> getSlowest() {
+            return slowest;
+        }
+
+        /**
+         * @return  tests that slowed down the most, the biggest slowdown
+         *          first
+         */
+        List<TestStats> getSlowdowns() {
+            return slowdowns;
+        }
+    }
+
+    static File getTimingsFile(Project project) {
+        return TestHistory.getCacheFile(project, "timings", ".bin");    //NOI18N
+    }
+
+    /**
+     * Appends durations of tests of the given session to the store
+     * of the given project. The store is updated asynchronously.
+     */
+    static void save(Project project, final Session session) {
+        if (session.isEmpty()) {
+            return;
+        }
+        final File file = getTimingsFile(project);
+        if (file == null) {
+            return;
+        }
+        RP.post(new Runnable() {
+            public void run() {
+                try {
+                    append(file, session);
+                } catch (IOException ex) {
+                    LOG.log(Level.INFO, "Cannot write test timings " + file, ex);//NOI18N
+                }
+            }
+        });
+    }
+
+    /**
+     * Appends durations of tests of the given session to the given file.
+     */
+    static synchronized void append(File file, Session session) throws IOException {
+        Map<String, Integer> ids;
+        if (file.equals(cachedFile) && (file.length() == cachedLength)) {
+            ids = cachedIds;
+        } else {
+            ids = null;
+            cachedFile = null;
+        }
+
+        if (file.length() > MAX_SEGMENT_SIZE) {
+            File oldSegment = new File(file.getPath() + OLD_SEGMENT_SUFFIX);
+            oldSegment.delete();
+            if (!file.renameTo(oldSegment)) {
+                throw new IOException("Cannot rename " + file);         //NOI18N
+            }
+            ids = null;
+        }
+
+        boolean newFile = !file.isFile();
+        if (newFile) {
+            File dir = file.getParentFile();
+            if ((dir != null) && !dir.isDirectory() && !dir.mkdirs()) {
+                throw new IOException("Cannot create " + dir);          //NOI18N
+            }
+            ids = new HashMap<String, Integer>();
+        } else if (ids == null) {
+            ids = readIds(file);
+        }
+
+        DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+                new FileOutputStream(file, true)));
+        try {
+            if (newFile) {
+                out.writeInt(MAGIC);
+            }
+            out.writeByte(SESSION);
+            out.writeLong(session.startTime);
+            for (int i = 0; i < session.names.size(); i++) {
+                String name = session.names.get(i);
+                Integer id = ids.get(name);
+                if (id == null) {
+                    id = Integer.valueOf(ids.size());
+                    ids.put(name, id);
+                    out.writeByte(NAME);
+                    out.writeInt(id.intValue());
+                    out.writeUTF(name);
+                }
+                int[] result = session.results.get(i);
+                out.writeByte(TIMING);
+                out.writeInt(id.intValue());
+                out.writeInt(result[0]);
+                out.writeByte(result[1]);
+            }
+        } finally {
+            out.close();
+        }
+
+        cachedFile = file;
+        cachedLength = file.length();
+        cachedIds = ids;
+    }
+
+    /**
+     * Reads test ids defined in the given segment. If the segment ends
+     * with an incomplete record (e.g. because writing was interrupted),
+     * the incomplete record is removed.
+     */
+    private static Map<String, Integer> readIds(File file) throws IOException {
+        final Map<String, Integer> ids = new HashMap<String, Integer>();
+        long validLength = read(file, new RecordHandler() {
+            public void name(int id, String name) {
+                ids.put(name, Integer.valueOf(id));
+            }
+            public void session(long time) {
+            }
+            public void timing(int id, int duration, byte status) {
+            }
+        });
+        if (validLength < file.length()) {
+            RandomAccessFile raf = new RandomAccessFile(file, "rw");    //NOI18N
+            try {
+                raf.setLength(validLength);
+            } finally {
+                raf.close();
+            }
+        }
+        return ids;
+    }
+
+    /**
+     * Computes a report from the store of the given project.
+     */
+    static Report readReport(Project project, int maxTests) throws IOException {
+        File file = getTimingsFile(project);
+        if (file == null) {
+            return new Report(Collections.<TestStats>emptyList(),
+                              Collections.<TestStats>emptyList());
+        }
+        return readReport(file, maxTests);
+    }
+
+    /**
+     * Computes a report from the given store. Memory needed is
+     * proportional to the number of distinct tests, not to the number
+     * of recorded runs.
+     *
+     * @param  file  current segment of the store
+     * @param  maxTests  maximum number of tests in each part of the report
+     */
+    static Report readReport(File file, int maxTests) throws IOException {
+        final Map<String, TestStats> stats = new HashMap<String, TestStats>();
+        File oldSegment = new File(file.getPath() + OLD_SEGMENT_SUFFIX);
+        for (File segment : new File[] {oldSegment, file}) {
+            if (!segment.isFile()) {
+                continue;
+            }
+            final Map<Integer, TestStats> byId = new HashMap<Integer, TestStats>();
+            read(segment, new RecordHandler() {
+                public void name(int id, String name) {
+                    TestStats s = stats.get(name);
+                    if ((s == null) && (stats.size() < MAX_TESTS)) {
+                        s = new TestStats(name);
+                        stats.put(name, s);
+                    }
+                    if (s != null) {
+                        byId.put(Integer.valueOf(id), s);
+                    }
+                }
+                public void session(long time) {
+                }
+                public void timing(int id, int duration, byte status) {
+                    TestStats s = byId.get(Integer.valueOf(id));
+                    if ((s != null) && (status == PASSED)) {
+                        s.add(duration);
+                    }
+                }
+            });
+        }
+
+        return new Report(
+                top(stats.values(), maxTests, new Comparator<TestStats>() {
+                    public int compare(TestStats s1, TestStats s2) {
+                        return compareLongs(s1.getRecentMillis(),
+                                            s2.getRecentMillis());
+                    }
+                }),
+                top(stats.values(), maxTests, new Comparator<TestStats>() {
+                    public int compare(TestStats s1, TestStats s2) {
+                        return compareLongs(s1.getSlowdownMillis(),
+                                            s2.getSlowdownMillis());
+                    }
+                }));
+    }
+
+    /**
+     * Selects the given number of the greatest non-zero elements.
+     *
+     * @return  the selected elements, the greatest first
+     */
+    private static List<TestStats> top(Iterable<TestStats> stats,
+                                       int count,
+                                       final Comparator<TestStats> comparator) {
+        PriorityQueue<TestStats> queue
+                = new PriorityQueue<TestStats>(count + 1, comparator);
+        for (TestStats s : stats) {
+            if (s.recentCount == 0) {
+                continue;
+            }
+            queue.add(s);
+            if (queue.size() > count) {
+                queue.poll();
+            }
+        }
+        List<TestStats> result = new ArrayList<TestStats>(queue);
+        Collections.sort(result, Collections.reverseOrder(comparator));
+        for (int i = result.size() - 1; i >= 0; i--) {
+            if (comparator.compare(result.get(i), ZERO) <= 0) {
+                result.remove(i);
+            }
+        }
+        return result;
+    }
+
+    private static final TestStats ZERO = new TestStats("");            //NOI18N
+
+    private static int compareLongs(long l1, long l2) {
+        return (l1 < l2) ? -1 : (l1 == l2) ? 0 : 1;
+    }
+
+    private interface RecordHandler {
+        void name(int id, String name);
+        void session(long time);
+        void timing(int id, int duration, byte status);
+    }
+
+    /**
+     * Reads records of the given segment.
+     *
+     * @return  length of the valid part of the segment
+     */
+    private static long read(File file, RecordHandler handler) throws IOException {
+        DataInputStream in = new DataInputStream(new BufferedInputStream(
+                new FileInputStream(file)));
+        long validLength = 0;
+        try {
+            if (in.readInt() != MAGIC) {
+                return 0;
+            }
+            validLength = 4;
+            while (true) {
+                byte type = in.readByte();
+                int length;
+                switch (type) {
+                    case NAME:
+                        int id = in.readInt();
+                        String name = in.readUTF();
+                        handler.name(id, name);
+                        length = 1 + 4 + 2 + utfLength(name);
+                        break;
+                    case SESSION:
+                        handler.session(in.readLong());
+                        length = 1 + 8;
+                        break;
+                    case TIMING:
+                        handler.timing(in.readInt(), in.readInt(), in.readByte());
+                        length = 1 + 4 + 4 + 1;
+                        break;
+                    default:
+                        return validLength;
+                }
+                validLength += length;
+            }
+        } catch (EOFException ex) {
+            return validLength;
+        } finally {
+            in.close();
+        }
+    }
+
+    private static int utfLength(String str) {
+        int length = 0;
+        for (int i = 0; i < str.length(); i++) {
+            char c = str.charAt(i);
+            length += ((c >= 0x0001) && (c <= 0x007f)) ? 1
+                      : (c <= 0x07ff) ? 2
+                      : 3;
+        }
+        return length;
+    }
+
+    private static byte encode(Status status) {
+        switch (status) {
+            case PASSED:
+                return PASSED;
+            case FAILED:
+                return FAILED;
+            case ERROR:
+                return ERROR;
+            default:
+                return OTHER;
+        }
+    }
+
+}
@@ -0,0 +1,193 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright 1997-2010 Oracle and/or its affiliates. All rights reserved.
+ *
+ * Oracle and Java are registered trademarks of Oracle and/or its affiliates.
+ * Other names may be trademarks of their respective owners.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common
+ * Development and Distribution License("CDDL") (collectively, the
+ * "License"). You may not use this file except in compliance with the
+ * License. You can obtain a copy of the License at
+ * http://www.netbeans.org/cddl-gplv2.html
+ * or nbbuild/licenses/CDDL-GPL-2-CP. See the License for the
+ * specific language governing permissions and limitations under the
+ * License.  When distributing the software, include this License Header
+ * Notice in each file and include the License file at
+ * nbbuild/licenses/CDDL-GPL-2-CP.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the GPL Version 2 section of the License file that
+ * accompanied this code. If applicable, add the following below the
+ * License Header, with the fields enclosed by brackets [] replaced by
+ * your own identifying information:
+ * "Portions Copyrighted [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ *
+ * The Original Software is NetBeans. The Initial Developer of the Original
+ * Software is Sun Microsystems, Inc. Portions Copyright 1997-2008 Sun
+ * Microsystems, Inc. All Rights Reserved.
+ *
+ * If you wish your version of this file to be governed by only the CDDL
+ * or only the GPL Version 2, indicate your decision by adding
+ * "[Contributor] elects to include this software in this distribution
+ * under the [CDDL or GPL Version 2] license." If you do not indicate a
+ * single choice of license, a recipient has the option to distribute
+ * your version of this file under either the CDDL, the GPL Version 2 or
+ * to extend the choice of license to its licensees as provided above.
+ * However, if you add GPL Version 2 code and therefore, elected the GPL
+ * Version 2 license, then the option applies only if the new code is
+ * made subject to such option by the copyright holder.
+ */
+
+package org.netbeans.modules.junit.output;
+
+import java.util.LinkedList;
+import java.util.concurrent.Executor;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import org.openide.util.RequestProcessor;
+
+/**
+ * Passes updates of the test results window from concurrently running
+ * test sessions. Each session posts its updates to its own
+ * {@link Channel}; updates of a single channel are performed in the order
+ * they were posted. Channels are served in a round-robin manner, at most
+ * {@link #QUANTUM} updates at a time, so that a session producing lots
+ * of output cannot hold back updates of other sessions.
+ */
+final class UiDispatcher implements Runnable {
+
+    /** maximum number of updates of a channel performed in one turn */
+    static final int QUANTUM = 32;
+
+    private static final Logger LOG
+            = Logger.getLogger(UiDispatcher.class.getName());
+
+    private static UiDispatcher defaultInstance;
+
+    private final Executor executor;
+    /** channels having pending updates, in the order they will be served */
+    private final LinkedList<Channel> ready = new LinkedList<Channel>();
+    private boolean scheduled;
+
+    UiDispatcher(Executor executor) {
+        this.executor = executor;
+    }
+
+    static synchronized UiDispatcher getDefault() {
+        if (defaultInstance == null) {
+            final RequestProcessor rp = new RequestProcessor(
+                                            UiDispatcher.class.getName(), 1);
+            defaultInstance = new UiDispatcher(new Executor() {
+                public void execute(Runnable command) {
+                    rp.post(command);
+                }
+            });
+        }
+        return defaultInstance;
+    }
+
+    /**
+     * Creates a new channel for updates from a single test session.
+     */
+    Channel createChannel(String name) {
+        return new Channel(name);
+    }
+
+    public void run() {
+        Channel channel;
+        while ((channel = nextChannel()) != null) {
+            for (int i = 0; i < QUANTUM; i++) {
+                Runnable task = channel.poll();
+                if (task == null) {
+                    break;
+                }
+                try {
+                    task.run();
+                } catch (RuntimeException ex) {
+                    LOG.log(Level.WARNING,
+                            "Update of test results failed: " + channel.name,//NOI18N
+                            ex);
+                }
+            }
+            requeue(channel);
+        }
+    }
+
+    private synchronized Channel nextChannel() {
+        Channel channel = ready.poll();
+        if (channel == null) {
+            scheduled = false;
+        }
+        return channel;
+    }
+
+    /**
+     * Puts the channel at the end of the queue if it has pending updates.
+     */
+    private synchronized void requeue(Channel channel) {
+        if (channel.isEmpty()) {
+            channel.queued = false;
+        } else {
+            ready.add(channel);
+        }
+    }
+
+    private synchronized void post(Channel channel, Runnable task) {
+        channel.tasks.add(task);
+        if (!channel.queued) {
+            channel.queued = true;
+            ready.add(channel);
+        }
+        if (!scheduled) {
+            scheduled = true;
+            executor.execute(this);
+        }
+    }
+
+    /**
+     * Queue of updates from a single test session.
+     */
+    final class Channel {
+
+        private final String name;
+        /** guarded by the dispatcher */
+        private final LinkedList<Runnable> tasks = new LinkedList<Runnable>();
+        /** whether the channel is in the dispatcher's queue, guarded by the dispatcher */
+        private boolean queued;
+
+        private Channel(String name) {
+            this.name = name;
+        }
+
+        /**
+         * Schedules the given update.
+         */
+        void post(Runnable task) {
+            UiDispatcher.this.post(this, task);
+        }
+
+        /**
+         * Returns number of updates not performed yet.
+         */
+        int getPendingCount() {
+            synchronized (UiDispatcher.this) {
+                return tasks.size();
+            }
+        }
+
+        private Runnable poll() {
+            synchronized (UiDispatcher.this) {
+                return tasks.poll();
+            }
+        }
+
+        private boolean isEmpty() {
+            return tasks.isEmpty();
+        }
+    }
+
+}
@@ -108,12 +108,14 @@ final class XmlOutputParser extends DefaultHandler {
     /** */
     private Trouble trouble;
     /** */
-    private StringBuffer charactersBuf;
+    private StringBuilder charactersBuf;
     
     /** */
     private final RegexpUtils regexp;
 
     private TestSession testSession;
+    /** */
+    private final StackTracePool stackTracePool;
     /**
      *
      * @exception  org.xml.sax.SAXException
@@ -146,6 +148,9 @@ final class XmlOutputParser extends DefaultHandler {
     /** Creates a new instance of XMLOutputParser */
     private XmlOutputParser(TestSession session) throws SAXException {
         testSession = session;
+        stackTracePool = (session instanceof JUnitTestSession)
+                         ? ((JUnitTestSession) session).getStackTracePool()
+                         : new StackTracePool();
         xmlReader = XMLUtil.createXMLReader();
         xmlReader.setContentHandler(this);
         
@@ -314,15 +319,12 @@ final class XmlOutputParser extends DefaultHandler {
             case STATE_OUTPUT_ERR:
                 assert (state == STATE_OUTPUT_STD && qName.equals("system-out"))
                    || (state == STATE_OUTPUT_ERR && qName.equals("system-err"));
-                if (charactersBuf != null) {
-                    String[] output = getOutput(charactersBuf.toString());
-                    if (state == STATE_OUTPUT_STD) {
-//kaktus                        report.outputStd = output;
-                    } else {
-//kaktus                        report.outputErr = output;
-                    }
-                    charactersBuf = null;
-                }
+                /*
+                 * The suite-level output is not displayed anywhere - output
+                 * of the tests has been captured while the tests were running.
+                 * So the content of these elements is not even collected
+                 * (see method characters(...)).
+                 */
                 state = STATE_TESTSUITE;
                 break;                                          //</editor-fold>
             //<editor-fold defaultstate="collapsed" desc="default">
@@ -350,6 +352,7 @@ final class XmlOutputParser extends DefaultHandler {
 	    }
 	    charactersBuf = null;
 	}
+	trouble.setStackTrace(stackTracePool.share(trouble.getStackTrace()));
 	testcase.setTrouble(trouble);
 	trouble = null;
 	state = STATE_TESTCASE;
@@ -429,34 +432,14 @@ final class XmlOutputParser extends DefaultHandler {
         switch (state) {
             case STATE_FAILURE:
             case STATE_ERROR:
-            case STATE_OUTPUT_STD:
-            case STATE_OUTPUT_ERR:
                 if (charactersBuf == null) {
-                    charactersBuf = new StringBuffer(512);
+                    charactersBuf = new StringBuilder(512);
                 }
                 charactersBuf.append(ch, start, length);
                 break;
         }
     }
     
-    /**
-     */
-    private String[] getOutput(String string) {
-        String[] lines = string.split("(?:\\r|\\r\\n|\\n)");            //NOI18N
-        
-        /*
-         * The XML output produces an extra empty line at the end of the output:
-         */
-        if ((lines.length >= 1) && (lines[lines.length - 1].length() == 0)) {
-            String[] temp = lines;
-            lines = new String[lines.length - 1];
-            if (lines.length > 0) {
-                System.arraycopy(temp, 0, lines, 0, lines.length);
-            }
-        }
-        return lines;
-    }
-
     private void addStackTraceLine(Trouble tr, String line, boolean validateST){
         if ((tr == null) || (line == null) || (line.length() == 0) || (line.equals("null"))){ //NOI18N
             return;
@@ -479,6 +462,7 @@ final class XmlOutputParser extends DefaultHandler {
             }
         }
  
+        line = stackTracePool.intern(line);
         String[] stArray = tr.getStackTrace();
         if (stArray == null){
             tr.setStackTrace(new String[]{line});
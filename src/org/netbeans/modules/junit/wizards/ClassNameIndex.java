@@ -0,0 +1,405 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright 1997-2010 Oracle and/or its affiliates. All rights reserved.
+ *
+ * Oracle and Java are registered trademarks of Oracle and/or its affiliates.
+ * Other names may be trademarks of their respective owners.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common
+ * Development and Distribution License("CDDL") (collectively, the
+ * "License"). You may not use this file except in compliance with the
+ * License. You can obtain a copy of the License at
+ * http://www.netbeans.org/cddl-gplv2.html
+ * or nbbuild/licenses/CDDL-GPL-2-CP. See the License for the
+ * specific language governing permissions and limitations under the
+ * License.  When distributing the software, include this License Header
+ * Notice in each file and include the License file at
+ * nbbuild/licenses/CDDL-GPL-2-CP.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the GPL Version 2 section of the License file that
+ * accompanied this code. If applicable, add the following below the
+ * License Header, with the fields enclosed by brackets [] replaced by
+ * your own identifying information:
+ * "Portions Copyrighted [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ *
+ * The Original Software is NetBeans. The Initial Developer of the Original
+ * Software is Sun Microsystems, Inc. Portions Copyright 1997-2008 Sun
+ * Microsystems, Inc. All Rights Reserved.
+ *
+ * If you wish your version of this file to be governed by only the CDDL
+ * or only the GPL Version 2, indicate your decision by adding
+ * "[Contributor] elects to include this software in this distribution
+ * under the [CDDL or GPL Version 2] license." If you do not indicate a
+ * single choice of license, a recipient has the option to distribute
+ * your version of this file under either the CDDL, the GPL Version 2 or
+ * to extend the choice of license to its licensees as provided above.
+ * However, if you add GPL Version 2 code and therefore, elected the GPL
+ * Version 2 license, then the option applies only if the new code is
+ * made subject to such option by the copyright holder.
+ */
+
+package org.netbeans.modules.junit.wizards;
+
+import java.lang.ref.Reference;
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedSet;
+import java.util.TreeSet;
+import java.util.WeakHashMap;
+import org.openide.filesystems.FileChangeAdapter;
+import org.openide.filesystems.FileEvent;
+import org.openide.filesystems.FileObject;
+import org.openide.filesystems.FileRenameEvent;
+import org.openide.filesystems.FileUtil;
+import org.openide.util.RequestProcessor;
+
+/**
+ * In-memory index of names of classes defined in a source root.
+ * The index is built in the background the first time it is requested
+ * for a given root and then kept up to date by listening to file changes,
+ * so that the class name entered in a wizard can be validated
+ * and completed without touching the disk.
+ * A file is considered a class if it has extension <code>java</code>;
+ * MIME type resolution is intentionally avoided.
+ */
+final class ClassNameIndex extends FileChangeAdapter {
+
+    private static final String JAVA_EXT = "java";                      //NOI18N
+
+    private static final RequestProcessor RP
+            = new RequestProcessor(ClassNameIndex.class.getName(), 1);
+
+    private static final Map<FileObject, ClassNameIndex> cache
+            = new WeakHashMap<FileObject, ClassNameIndex>();
+
+    /**
+     * source root being indexed - must not be referenced strongly
+     * as it is a key in the {@link #cache}
+     */
+    private final Reference<FileObject> rootRef;
+    /** fully qualified names of classes - guarded by {@code this} */
+    private SortedSet<String> classNames = new TreeSet<String>();
+    /** whether the initial scan has been finished */
+    private volatile boolean ready;
+    /** whether the source root changed during the scan */
+    private volatile boolean changedDuringScan;
+
+    private ClassNameIndex(FileObject root) {
+        this.rootRef = new WeakReference<FileObject>(root);
+    }
+
+    /**
+     * Returns an index of classes for the given source root.
+     * If the index does not exist yet, it is created and scheduled
+     * for building in the background.
+     *
+     * @param  root  source root to get an index for
+     * @return  index for the given root; it may not be
+     *          {@linkplain #isReady ready} yet
+     */
+    static ClassNameIndex forRoot(FileObject root) {
+        ClassNameIndex index;
+        synchronized (cache) {
+            index = cache.get(root);
+            if (index != null) {
+                return index;
+            }
+            index = new ClassNameIndex(root);
+            cache.put(root, index);
+        }
+        final ClassNameIndex newIndex = index;
+        RP.post(new Runnable() {
+            public void run() {
+                newIndex.build();
+            }
+        });
+        return index;
+    }
+
+    /**
+     * Checks whether the index has been built and may be used for lookups.
+     * Until then, the callers should fall back to querying the file system.
+     */
+    boolean isReady() {
+        return ready;
+    }
+
+    /**
+     * Checks whether the source root contains a class of the given name.
+     * The result is only meaningful if the index is {@linkplain #isReady
+     * ready}.
+     *
+     * @param  className  fully qualified name of the class
+     */
+    synchronized boolean contains(String className) {
+        return classNames.contains(className);
+    }
+
+    /**
+     * Finds classes matching the given pattern.
+     * If the pattern contains a dot, it is matched as a prefix of fully
+     * qualified class names. Otherwise it is matched against simple class
+     * names - either as a case-insensitive prefix or as a camel-case
+     * abbreviation (e.g.&nbsp;<code>NPE</code> matches
+     * <code>NullPointerException</code>). Prefix matches are returned
+     * first.
+     *
+     * @param  pattern  pattern to match
+     * @param  maxResults  maximum number of results to return
+     * @return  fully qualified names of the matching classes;
+     *          empty list if the index is not ready yet
+     */
+    List<String> find(String pattern, int maxResults) {
+        if (!ready || (pattern.length() == 0) || (maxResults <= 0)) {
+            return Collections.<String>emptyList();
+        }
+
+        List<String> result = new ArrayList<String>();
+        synchronized (this) {
+            if (pattern.indexOf('.') != -1) {
+                for (String className : classNames.tailSet(pattern)) {
+                    if (!className.startsWith(pattern)
+                            || (result.size() == maxResults)) {
+                        break;
+                    }
+                    result.add(className);
+                }
+                return result;
+            }
+
+            List<String> camelCaseMatches = null;
+            for (String className : classNames) {
+                int simpleNameStart = className.lastIndexOf('.') + 1;
+                if (className.regionMatches(true, simpleNameStart,
+                                            pattern, 0, pattern.length())) {
+                    result.add(className);
+                    if (result.size() == maxResults) {
+                        return result;
+                    }
+                } else if (matchesCamelCase(className, simpleNameStart,
+                                            pattern, 0)) {
+                    if (camelCaseMatches == null) {
+                        camelCaseMatches = new ArrayList<String>();
+                    }
+                    if (camelCaseMatches.size() < maxResults) {
+                        camelCaseMatches.add(className);
+                    }
+                }
+            }
+            if (camelCaseMatches != null) {
+                result.addAll(camelCaseMatches.subList(
+                        0,
+                        Math.min(camelCaseMatches.size(),
+                                 maxResults - result.size())));
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Checks whether the given pattern, starting at the given position,
+     * matches the humps of a class name starting at the given position.
+     * Each upper-case letter of the pattern starts a new hump.
+     */
+    static boolean matchesCamelCase(String name, int namePos,
+                                    String pattern, int patternPos) {
+        final int patternLen = pattern.length();
+        if ((patternPos == patternLen)
+                || !Character.isUpperCase(pattern.charAt(patternPos))) {
+            return false;
+        }
+
+        int humpEnd = patternPos + 1;
+        while ((humpEnd < patternLen)
+                && !Character.isUpperCase(pattern.charAt(humpEnd))) {
+            humpEnd++;
+        }
+        final int humpLen = humpEnd - patternPos;
+        if (!name.regionMatches(namePos, pattern, patternPos, humpLen)) {
+            return false;
+        }
+        if (humpEnd == patternLen) {
+            return true;
+        }
+
+        final int nameLen = name.length();
+        for (int i = namePos + humpLen; i < nameLen; i++) {
+            if (Character.isUpperCase(name.charAt(i))
+                    && matchesCamelCase(name, i, pattern, humpEnd)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Performs the initial scan of the source root.
+     * If the source root changes during the scan, the scan is repeated.
+     */
+    private void build() {
+        FileObject root = rootRef.get();
+        if (root == null) {
+            return;
+        }
+        /*
+         * The listener does not keep the root in memory - the index refers
+         * to the root weakly, so it is released together with the root:
+         */
+        root.addRecursiveListener(this);
+
+        SortedSet<String> scanned;
+        do {
+            changedDuringScan = false;
+            scanned = new TreeSet<String>();
+            addClassNames(root, root, scanned);
+        } while (changedDuringScan);
+
+        synchronized (this) {
+            scanned.addAll(classNames);     //changes applied during the scan
+            classNames = scanned;
+        }
+        ready = true;
+    }
+
+    private static void addClassNames(FileObject root,
+                                      FileObject folder,
+                                      SortedSet<String> classNames) {
+        for (FileObject child : folder.getChildren()) {
+            if (child.isFolder()) {
+                addClassNames(root, child, classNames);
+            } else if (JAVA_EXT.equals(child.getExt())) {
+                classNames.add(getClassName(root, child));
+            }
+        }
+    }
+
+    /**
+     * Returns the fully qualified name of the class defined in the given
+     * file, or the name of the package represented by the given folder.
+     */
+    private static String getClassName(FileObject root, FileObject file) {
+        String path = FileUtil.getRelativePath(root, file);
+        if (!file.isFolder()) {
+            path = path.substring(0, path.length() - file.getExt().length() - 1);
+        }
+        return path.replace('/', '.');
+    }
+
+    /**
+     * Returns the root of the given file, or {@code null} if the file
+     * is the root itself or if the root no longer exists.
+     * The index only listens to changes under its root, so no other
+     * files need to be filtered out.
+     */
+    private FileObject getRootOf(FileObject file) {
+        FileObject root = rootRef.get();
+        return (file != root) ? root : null;
+    }
+
+    /**
+     * Adds classes of the given newly created or renamed folder.
+     * The folder is scanned in the background so that file events
+     * are not delayed by scanning large folders.
+     */
+    private void addFolder(final FileObject folder) {
+        RP.post(new Runnable() {
+            public void run() {
+                FileObject root = rootRef.get();
+                if ((root == null) || !folder.isValid()) {
+                    return;
+                }
+                SortedSet<String> added = new TreeSet<String>();
+                addClassNames(root, folder, added);
+                synchronized (ClassNameIndex.this) {
+                    if (folder.isValid()) {     //not deleted meanwhile
+                        classNames.addAll(added);
+                    }
+                }
+            }
+        });
+    }
+
+    private synchronized void removePackage(String packageName) {
+        String prefix = packageName + '.';
+        classNames.subSet(prefix, prefix + Character.MAX_VALUE).clear();
+    }
+
+    @Override
+    public void fileDataCreated(FileEvent fe) {
+        FileObject file = fe.getFile();
+        if (!JAVA_EXT.equals(file.getExt())) {
+            return;
+        }
+        FileObject root = getRootOf(file);
+        if (root != null) {
+            changedDuringScan = true;
+            String className = getClassName(root, file);
+            synchronized (this) {
+                classNames.add(className);
+            }
+        }
+    }
+
+    @Override
+    public void fileFolderCreated(FileEvent fe) {
+        FileObject folder = fe.getFile();
+        if (getRootOf(folder) != null) {
+            changedDuringScan = true;
+            addFolder(folder);
+        }
+    }
+
+    @Override
+    public void fileDeleted(FileEvent fe) {
+        FileObject file = fe.getFile();
+        FileObject root = getRootOf(file);
+        if (root == null) {
+            return;
+        }
+        changedDuringScan = true;
+        if (file.isFolder()) {
+            removePackage(getClassName(root, file));
+        } else if (JAVA_EXT.equals(file.getExt())) {
+            String className = getClassName(root, file);
+            synchronized (this) {
+                classNames.remove(className);
+            }
+        }
+    }
+
+    @Override
+    public void fileRenamed(FileRenameEvent fe) {
+        FileObject file = fe.getFile();
+        FileObject root = getRootOf(file);
+        if (root == null) {
+            return;
+        }
+        changedDuringScan = true;
+
+        FileObject parent = file.getParent();
+        String parentPackage = (parent == root)
+                               ? ""                                     //NOI18N
+                               : getClassName(root, parent) + '.';
+        if (file.isFolder()) {
+            removePackage(parentPackage + fe.getName());
+            addFolder(file);
+        } else {
+            synchronized (this) {
+                if (JAVA_EXT.equals(fe.getExt())) {
+                    classNames.remove(parentPackage + fe.getName());
+                }
+                if (JAVA_EXT.equals(file.getExt())) {
+                    classNames.add(getClassName(root, file));
+                }
+            }
+        }
+    }
+
+}
@@ -44,44 +44,102 @@
 
 package org.netbeans.modules.junit.wizards;
 
+import java.util.List;
 import org.openide.filesystems.FileObject;
-import org.openide.loaders.DataObject;
+import org.openide.filesystems.FileUtil;
+import org.openide.nodes.ChildFactory;
 import org.openide.nodes.Children;
 import org.openide.nodes.FilterNode;
 import org.openide.nodes.Node;
+import org.openide.nodes.NodeAdapter;
+import org.openide.nodes.NodeListener;
+import org.openide.nodes.NodeMemberEvent;
+import org.openide.util.WeakListeners;
 
 /**
  * Displays folders and Java source files under a source node.
+ * The children are computed in the background, so expanding a package
+ * containing thousands of classes does not block the UI. Note that
+ * the original nodes of a package, and thus data objects of all its
+ * files, are still created at once. Files are checked by their extension
+ * first; MIME type of files with other extensions is only compared to
+ * the Java MIME type.
+ *
  * @author Marian Petras, Jesse Glick
  */
-public class JavaChildren extends FilterNode.Children {
+final class JavaChildren extends ChildFactory<Node> {
 
     private static final String JAVA_MIME_TYPE = "text/x-java";         //NOI18N
+    private static final String JAVA_EXT = "java";                      //NOI18N
 
-    public JavaChildren(Node parent) {
-        super(parent);
+    private final Node parent;
+    private final NodeAdapter parentListener = new NodeAdapter() {
+        @Override
+        public void childrenAdded(NodeMemberEvent ev) {
+            refresh(false);
+        }
+        @Override
+        public void childrenRemoved(NodeMemberEvent ev) {
+            refresh(false);
+        }
+    };
+
+    private JavaChildren(Node parent) {
+        this.parent = parent;
+        parent.addNodeListener(WeakListeners.create(NodeListener.class,
+                                                    parentListener,
+                                                    parent));
+    }
+
+    /**
+     * Creates children displaying folders and Java source files
+     * under the given node.
+     *
+     * @param  parent  node whose children should be filtered
+     * @return  lazily computed children
+     */
+    static Children create(Node parent) {
+        return Children.create(new JavaChildren(parent), true);
+    }
+
+    @Override
+    protected boolean createKeys(List<Node> toPopulate) {
+        for (Node originalNode : parent.getChildren().getNodes(true)) {
+            if (isDisplayed(originalNode)) {
+                toPopulate.add(originalNode);
+            }
+        }
+        return true;
     }
 
     @Override
-    protected Node[] createNodes(Node originalNode) {
-        Node newNode;
-        
+    protected Node createNodeForKey(Node originalNode) {
         FileObject primaryFile = originalNode.getLookup().lookup(FileObject.class);
         if (primaryFile == null) {
-            newNode = copyNode(originalNode);
-        } else {
-            if (primaryFile.isFolder()) {
-                newNode = new FilterNode(originalNode, new JavaChildren(originalNode));
-            } else if (primaryFile.getMIMEType().equals(JAVA_MIME_TYPE)) {
-                newNode = new FilterNode(originalNode, Children.LEAF);
-                newNode.setDisplayName(primaryFile.getName());
-            } else {
-                newNode = null;
-            }
+            return originalNode.cloneNode();
         }
+        if (primaryFile.isFolder()) {
+            return new FilterNode(originalNode, create(originalNode));
+        }
+        Node newNode = new FilterNode(originalNode, Children.LEAF);
+        newNode.setDisplayName(primaryFile.getName());
+        return newNode;
+    }
 
-        return (newNode != null) ? new Node[] {newNode}
-                                 : new Node[0];
+    /**
+     * Checks whether the given node represents a folder or a Java source
+     * file, or does not represent a file at all.
+     */
+    private static boolean isDisplayed(Node originalNode) {
+        FileObject primaryFile = originalNode.getLookup().lookup(FileObject.class);
+        if ((primaryFile == null) || primaryFile.isFolder()) {
+            return true;
+        }
+        if (JAVA_EXT.equals(primaryFile.getExt())) {
+            return true;
+        }
+        return JAVA_MIME_TYPE.equals(
+                        FileUtil.getMIMEType(primaryFile, JAVA_MIME_TYPE));
     }
-    
+
 }
@@ -66,6 +66,7 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Iterator;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.ResourceBundle;
@@ -138,6 +139,9 @@ import org.openide.util.UserCancelException;
  */
 public final class SimpleTestStepLocation implements WizardDescriptor.Panel<WizardDescriptor> {
     
+    /** maximum number of matching classes offered for a non-existing class */
+    private static final int MAX_MATCHING_CLASSES = 3;
+    
     private final String testClassNameSuffix
             = NbBundle.getMessage(TestCreator.class,
                                   "PROP_test_classname_suffix");        //NOI18N
@@ -283,6 +287,8 @@ public final class SimpleTestStepLocation implements WizardDescriptor.Panel<Wiza
     private SourceGroup[] testableSourceGroups;
     /** root folders of {@link #testableSourceGroups} */
     private FileObject[] testableSourceGroupsRoots;
+    /** indexes of classes in {@link #testableSourceGroupsRoots} */
+    private ClassNameIndex[] classNameIndexes;
     /** <!-- PENDING --> */
     private SourceGroup[] allTestSourceGroups;
     /**
@@ -312,6 +318,8 @@ public final class SimpleTestStepLocation implements WizardDescriptor.Panel<Wiza
     private SourceGroup srcGroup = null;
     private String testsRootDirName = "";                               //NOI18N
     private String srcRelFileNameSys = "";                              //NOI18N
+    /** fully qualified name of the class to test */
+    private String srcClassName = "";                                   //NOI18N
     private String testRelFileName = "";                                //NOI18N
     /** */
     private FileObject testRootFolder;
@@ -1002,11 +1010,13 @@ public final class SimpleTestStepLocation implements WizardDescriptor.Panel<Wiza
         if (className.length() != 0) {
             srcRelFileNameSys = className.replace('.', '/')
                                 + ".java";                              //NOI18N
+            srcClassName = className;
             testClassName = className + testClassNameSuffix;
             testRelFileName = testClassName.replace('.', File.separatorChar)
                               + ".java";                                //NOI18N
         } else {
             srcRelFileNameSys = "";                                     //NOI18N
+            srcClassName = "";                                          //NOI18N
             testClassName = "";                                         //NOI18N
             testRelFileName = "";                                       //NOI18N
         }
@@ -1050,9 +1060,7 @@ public final class SimpleTestStepLocation implements WizardDescriptor.Panel<Wiza
         List<SourceGroup> cands = null;
         final int count = testableSourceGroups.length;
         for (int i = sourceGroupParentIndex + 1; i < count; i++) {
-            final FileObject groupRoot = testableSourceGroupsRoots[i];
-            FileObject srcFile = groupRoot.getFileObject(srcRelFileNameSys);
-            if (srcFile != null && testableSourceGroups[i].contains(srcFile)) {
+            if (findSrcFile(i) != null) {
                 if (cands == null) {
                     cands = new ArrayList<SourceGroup>(testableSourceGroups.length - i + 1);
                     cands.add(testableSourceGroups[sourceGroupParentIndex]);
@@ -1114,9 +1122,8 @@ public final class SimpleTestStepLocation implements WizardDescriptor.Panel<Wiza
         
         final int count = testableSourceGroups.length;
         for (int i = 0; i < count; i++) {
-            final FileObject groupRoot = testableSourceGroupsRoots[i];
-            FileObject srcFile = groupRoot.getFileObject(srcRelFileNameSys);
-            if (srcFile != null && testableSourceGroups[i].contains(srcFile)) {
+            FileObject srcFile = findSrcFile(i);
+            if (srcFile != null) {
                 this.srcFile = srcFile;
                 sourceGroupParentIndex = i;
                 break;
@@ -1133,12 +1140,74 @@ public final class SimpleTestStepLocation implements WizardDescriptor.Panel<Wiza
                         SimpleTestStepLocation.class,
                         "MSG_ClassToTestDoesNotExist");                 //NOI18N
             }
-            errMsg = msgClassToTestDoesNotExist;
+            String matchingClasses = findMatchingClasses();
+            errMsg = (matchingClasses == null)
+                     ? msgClassToTestDoesNotExist
+                     : NbBundle.getMessage(
+                             SimpleTestStepLocation.class,
+                             "MSG_ClassToTestDoesNotExist_Matches",     //NOI18N
+                             matchingClasses);
         }
         
         return classExists;
     }
     
+    /**
+     * Finds the file of the entered class in the given source group.
+     * If the class name index of the source group is ready, the file system
+     * is only queried if the index contains the class.
+     *
+     * @param  groupIndex  index of the source group
+     *                     in {@link #testableSourceGroups}
+     * @return  the found file, or <code>null</code> if the source group
+     *          does not contain the class
+     */
+    private FileObject findSrcFile(int groupIndex) {
+        final ClassNameIndex index = classNameIndexes[groupIndex];
+        if (index.isReady() && !index.contains(srcClassName)) {
+            return null;
+        }
+        FileObject srcFile = testableSourceGroupsRoots[groupIndex]
+                             .getFileObject(srcRelFileNameSys);
+        return (srcFile != null
+                && testableSourceGroups[groupIndex].contains(srcFile))
+               ? srcFile
+               : null;
+    }
+    
+    /**
+     * Finds names of classes matching the entered class name
+     * (by prefix or camel-case abbreviation).
+     *
+     * @return  comma-separated list of names of the matching classes,
+     *          or <code>null</code> if no matching class was found
+     */
+    private String findMatchingClasses() {
+        Set<String> matches = new LinkedHashSet<String>();
+        for (ClassNameIndex index : classNameIndexes) {
+            matches.addAll(index.find(srcClassName, MAX_MATCHING_CLASSES));
+            if (matches.size() >= MAX_MATCHING_CLASSES) {
+                break;
+            }
+        }
+        if (matches.isEmpty()) {
+            return null;
+        }
+        
+        StringBuilder buf = new StringBuilder();
+        int count = 0;
+        for (String className : matches) {
+            if (count++ == MAX_MATCHING_CLASSES) {
+                break;
+            }
+            if (buf.length() != 0) {
+                buf.append(", ");                                       //NOI18N
+            }
+            buf.append(className);
+        }
+        return buf.toString();
+    }
+    
     /**
      * Updates the <code>isValid</code> field and notifies all registered
      * <code>ChangeListener</code>s if validity has changed.
@@ -1195,14 +1264,14 @@ public final class SimpleTestStepLocation implements WizardDescriptor.Panel<Wiza
                        = PackageView.createPackageView(testableSourceGroups[i]);
                 sourceGroupNodes[i]
                        = new FilterNode(srcGroupNode,
-                                        new JavaChildren(srcGroupNode));
+                                        JavaChildren.create(srcGroupNode));
             }
             
             Node rootNode;
             if (sourceGroupNodes.length == 1) {
                 rootNode = new FilterNode(
                         sourceGroupNodes[0],
-                        new JavaChildren(sourceGroupNodes[0]));
+                        JavaChildren.create(sourceGroupNodes[0]));
             } else {
                 Children children = new Children.Array();
                 children.add(sourceGroupNodes);
@@ -1450,6 +1519,7 @@ public final class SimpleTestStepLocation implements WizardDescriptor.Panel<Wiza
         
         testableSourceGroups = new SourceGroup[sourceGroupsCnt];
         testableSourceGroupsRoots = new FileObject[sourceGroupsCnt];
+        classNameIndexes = new ClassNameIndex[sourceGroupsCnt];
         multipleSourceRoots = (sourceGroupsCnt > 1);
         
         Iterator<Map.Entry<SourceGroup,Object[]>> iterator = mapEntries.iterator();
@@ -1459,6 +1529,8 @@ public final class SimpleTestStepLocation implements WizardDescriptor.Panel<Wiza
             
             testableSourceGroups[i] = srcGroup;
             testableSourceGroupsRoots[i] = srcGroup.getRootFolder();
+            classNameIndexes[i] = ClassNameIndex.forRoot(
+                                                testableSourceGroupsRoots[i]);
             
             Object[] testGroupsSubset = entry.getValue();
             for (int j = 0; j < testGroupsSubset.length; j++) {
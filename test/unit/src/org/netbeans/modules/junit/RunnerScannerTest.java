@@ -0,0 +1,110 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright 1997-2010 Oracle and/or its affiliates. All rights reserved.
+ *
+ * Oracle and Java are registered trademarks of Oracle and/or its affiliates.
+ * Other names may be trademarks of their respective owners.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common
+ * Development and Distribution License("CDDL") (collectively, the
+ * "License"). You may not use this file except in compliance with the
+ * License. You can obtain a copy of the License at
+ * http://www.netbeans.org/cddl-gplv2.html
+ * or nbbuild/licenses/CDDL-GPL-2-CP. See the License for the
+ * specific language governing permissions and limitations under the
+ * License.  When distributing the software, include this License Header
+ * Notice in each file and include the License file at
+ * nbbuild/licenses/CDDL-GPL-2-CP.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the GPL Version 2 section of the License file that
+ * accompanied this code. If applicable, add the following below the
+ * License Header, with the fields enclosed by brackets [] replaced by
+ * your own identifying information:
+ * "Portions Copyrighted [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ *
+ * The Original Software is NetBeans. The Initial Developer of the Original
+ * Software is Sun Microsystems, Inc. Portions Copyright 1997-2008 Sun
+ * Microsystems, Inc. All Rights Reserved.
+ *
+ * If you wish your version of this file to be governed by only the CDDL
+ * or only the GPL Version 2, indicate your decision by adding
+ * "[Contributor] elects to include this software in this distribution
+ * under the [CDDL or GPL Version 2] license." If you do not indicate a
+ * single choice of license, a recipient has the option to distribute
+ * your version of this file under either the CDDL, the GPL Version 2 or
+ * to extend the choice of license to its licensees as provided above.
+ * However, if you add GPL Version 2 code and therefore, elected the GPL
+ * Version 2 license, then the option applies only if the new code is
+ * made subject to such option by the copyright holder.
+ */
+
+package org.netbeans.modules.junit;
+
+import junit.framework.TestCase;
+
+/**
+ * Tests detection of JUnit runners in test sources.
+ */
+public class RunnerScannerTest extends TestCase {
+
+    public RunnerScannerTest(String testName) {
+        super(testName);
+    }
+
+    public void testNoRunner() {
+        System.out.println("noRunner");
+
+        assertNull(RunnerScanner.findRunner(""));
+        assertNull(RunnerScanner.findRunner(
+                "public class FooTest {\n"
+                + "    @Test public void testFoo() {}\n"
+                + "}\n"));
+    }
+
+    public void testSimpleRunner() {
+        System.out.println("simpleRunner");
+
+        assertEquals("Parameterized", RunnerScanner.findRunner(
+                "@RunWith(Parameterized.class)\n"
+                + "public class FooTest {}\n"));
+        assertEquals("Suite", RunnerScanner.findRunner(
+                "@RunWith( Suite.class )\n"
+                + "public class FooTest {}\n"));
+    }
+
+    public void testQualifiedRunner() {
+        System.out.println("qualifiedRunner");
+
+        assertEquals("org.junit.runners.Parameterized", RunnerScanner.findRunner(
+                "@org.junit.runner.RunWith(\n"
+                + "\torg.junit.runners.Parameterized.class)\n"
+                + "public class FooTest {}\n"));
+    }
+
+    public void testScanInChunks() {
+        System.out.println("scanInChunks");
+
+        char[] text = ("import org.junit.runner.RunWith;\n"
+                       + "@RunWith (\n"
+                       + "    Parameterized.class)\n"
+                       + "public class FooTest {}\n").toCharArray();
+        for (int chunk = 1; chunk <= text.length; chunk++) {
+            RunnerScanner scanner = new RunnerScanner();
+            for (int offset = 0; offset < text.length; offset += chunk) {
+                if (!scanner.scan(text, offset,
+                                  Math.min(chunk, text.length - offset))) {
+                    break;
+                }
+            }
+            assertEquals("chunk " + chunk,
+                         "Parameterized", scanner.getRunner());
+            assertTrue(RunnerScanner.isParameterized(scanner.getRunner()));
+        }
+        assertFalse(RunnerScanner.isParameterized(null));
+    }
+
+}
@@ -0,0 +1,138 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright 1997-2010 Oracle and/or its affiliates. All rights reserved.
+ *
+ * Oracle and Java are registered trademarks of Oracle and/or its affiliates.
+ * Other names may be trademarks of their respective owners.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common
+ * Development and Distribution License("CDDL") (collectively, the
+ * "License"). You may not use this file except in compliance with the
+ * License. You can obtain a copy of the License at
+ * http://www.netbeans.org/cddl-gplv2.html
+ * or nbbuild/licenses/CDDL-GPL-2-CP. See the License for the
+ * specific language governing permissions and limitations under the
+ * License.  When distributing the software, include this License Header
+ * Notice in each file and include the License file at
+ * nbbuild/licenses/CDDL-GPL-2-CP.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the GPL Version 2 section of the License file that
+ * accompanied this code. If applicable, add the following below the
+ * License Header, with the fields enclosed by brackets [] replaced by
+ * your own identifying information:
+ * "Portions Copyrighted [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ *
+ * The Original Software is NetBeans. The Initial Developer of the Original
+ * Software is Sun Microsystems, Inc. Portions Copyright 1997-2008 Sun
+ * Microsystems, Inc. All Rights Reserved.
+ *
+ * If you wish your version of this file to be governed by only the CDDL
+ * or only the GPL Version 2, indicate your decision by adding
+ * "[Contributor] elects to include this software in this distribution
+ * under the [CDDL or GPL Version 2] license." If you do not indicate a
+ * single choice of license, a recipient has the option to distribute
+ * your version of this file under either the CDDL, the GPL Version 2 or
+ * to extend the choice of license to its licensees as provided above.
+ * However, if you add GPL Version 2 code and therefore, elected the GPL
+ * Version 2 license, then the option applies only if the new code is
+ * made subject to such option by the copyright holder.
+ */
+
+package org.netbeans.modules.junit;
+
+import junit.framework.TestCase;
+import org.openide.nodes.AbstractNode;
+import org.openide.nodes.Children;
+import org.openide.nodes.Node;
+
+/**
+ * Tests analysis of large selections of nodes.
+ */
+public class SelectionAnalysisTest extends TestCase {
+
+    private static final int FOLDERS_COUNT = 100;
+    private static final int FILES_PER_FOLDER = 100;
+
+    private Node[] folders;
+    private Node[] files;
+
+    public SelectionAnalysisTest(String testName) {
+        super(testName);
+    }
+
+    @Override
+    protected void setUp() throws Exception {
+        folders = new Node[FOLDERS_COUNT];
+        files = new Node[FOLDERS_COUNT * FILES_PER_FOLDER];
+        for (int i = 0; i < FOLDERS_COUNT; i++) {
+            Node[] folderFiles = new Node[FILES_PER_FOLDER];
+            for (int j = 0; j < FILES_PER_FOLDER; j++) {
+                folderFiles[j] = new AbstractNode(Children.LEAF);
+            }
+            Children.Array children = new Children.Array();
+            children.add(folderFiles);
+            folders[i] = new AbstractNode(children);
+            System.arraycopy(folderFiles, 0,
+                             files, i * FILES_PER_FOLDER, FILES_PER_FOLDER);
+        }
+        Children.Array children = new Children.Array();
+        children.add(folders);
+        new AbstractNode(children);
+    }
+
+    public void testFindNestedNodes() {
+        System.out.println("findNestedNodes");
+
+        Node[] selection = new Node[] {files[0], folders[0], files[1],
+                                       folders[1], files[FILES_PER_FOLDER * 2]};
+        boolean[] nested = SelectionAnalysis.findNestedNodes(selection);
+        assertEquals(selection.length, nested.length);
+        assertTrue(nested[0]);
+        assertFalse(nested[1]);
+        assertTrue(nested[2]);
+        assertFalse(nested[3]);
+        assertFalse(nested[4]);
+
+        nested = SelectionAnalysis.findNestedNodes(new Node[] {files[0]});
+        assertEquals(1, nested.length);
+        assertFalse(nested[0]);
+    }
+
+    /**
+     * Checks that a selection of ten thousand files, together with their
+     * folders, is analysed in time linear in the size of the selection.
+     */
+    public void testFindNestedNodesInLargeSelection() {
+        System.out.println("findNestedNodesInLargeSelection");
+
+        Node[] selection = new Node[folders.length + files.length];
+        System.arraycopy(files, 0, selection, 0, files.length);
+        System.arraycopy(folders, 0, selection, files.length, folders.length);
+
+        SelectionAnalysis.findNestedNodes(selection);       //warm-up
+        long start = System.nanoTime();
+        boolean[] nested = SelectionAnalysis.findNestedNodes(selection);
+        long time = System.nanoTime() - start;
+        System.out.println("  " + selection.length + " nodes analysed in "
+                           + (time / 1000) + " us");
+
+        for (int i = 0; i < files.length; i++) {
+            assertTrue(nested[i]);
+        }
+        for (int i = files.length; i < selection.length; i++) {
+            assertFalse(nested[i]);
+        }
+
+        nested = SelectionAnalysis.findNestedNodes(files);
+        for (int i = 0; i < files.length; i++) {
+            assertFalse(nested[i]);
+        }
+        assertTrue("too slow: " + (time / 1000000) + " ms",
+                   time < 1000L * 1000000L);
+    }
+
+}
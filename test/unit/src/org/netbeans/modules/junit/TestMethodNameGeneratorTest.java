@@ -0,0 +1,228 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright 1997-2010 Oracle and/or its affiliates. All rights reserved.
+ *
+ * Oracle and Java are registered trademarks of Oracle and/or its affiliates.
+ * Other names may be trademarks of their respective owners.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common
+ * Development and Distribution License("CDDL") (collectively, the
+ * "License"). You may not use this file except in compliance with the
+ * License. You can obtain a copy of the License at
+ * http://www.netbeans.org/cddl-gplv2.html
+ * or nbbuild/licenses/CDDL-GPL-2-CP. See the License for the
+ * specific language governing permissions and limitations under the
+ * License.  When distributing the software, include this License Header
+ * Notice in each file and include the License file at
+ * nbbuild/licenses/CDDL-GPL-2-CP.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the GPL Version 2 section of the License file that
+ * accompanied this code. If applicable, add the following below the
+ * License Header, with the fields enclosed by brackets [] replaced by
+ * your own identifying information:
+ * "Portions Copyrighted [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ *
+ * The Original Software is NetBeans. The Initial Developer of the Original
+ * Software is Sun Microsystems, Inc. Portions Copyright 1997-2008 Sun
+ * Microsystems, Inc. All Rights Reserved.
+ *
+ * If you wish your version of this file to be governed by only the CDDL
+ * or only the GPL Version 2, indicate your decision by adding
+ * "[Contributor] elects to include this software in this distribution
+ * under the [CDDL or GPL Version 2] license." If you do not indicate a
+ * single choice of license, a recipient has the option to distribute
+ * your version of this file under either the CDDL, the GPL Version 2 or
+ * to extend the choice of license to its licensees as provided above.
+ * However, if you add GPL Version 2 code and therefore, elected the GPL
+ * Version 2 license, then the option applies only if the new code is
+ * made subject to such option by the copyright holder.
+ */
+
+package org.netbeans.modules.junit;
+
+import com.sun.source.util.JavacTask;
+import java.io.IOException;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.util.ElementFilter;
+import javax.tools.JavaCompiler;
+import javax.tools.JavaFileObject;
+import javax.tools.SimpleJavaFileObject;
+import javax.tools.ToolProvider;
+import junit.framework.TestCase;
+
+/**
+ * Tests generation of test method names for classes with many overloaded
+ * methods.
+ */
+public class TestMethodNameGeneratorTest extends TestCase {
+
+    private static final int OVERLOADS_COUNT = 1000;
+
+    private JavacTask task;
+
+    public TestMethodNameGeneratorTest(String testName) {
+        super(testName);
+    }
+
+    public void testUniqueNamesOfOverloads() throws IOException {
+        System.out.println("uniqueNamesOfOverloads");
+
+        List<ExecutableElement> methods = getMethods(
+                "Builder", generateOverloads("Builder", OVERLOADS_COUNT));
+        assertEquals(OVERLOADS_COUNT, methods.size());
+
+        TypeNameCache cache = new TypeNameCache(task.getElements(),
+                                                task.getTypes());
+        List<String> names = TestMethodNameGenerator.getTestMethodNames(
+                                                methods, null, null, cache);
+        assertEquals(OVERLOADS_COUNT, names.size());
+        assertEquals(OVERLOADS_COUNT, new HashSet<String>(names).size());
+        for (String name : names) {
+            assertTrue(name, name.startsWith("testSet"));
+        }
+    }
+
+    public void testSharedCacheGivesSameNames() throws IOException {
+        System.out.println("sharedCacheGivesSameNames");
+
+        List<ExecutableElement> methods = getMethods(
+                "Builder", generateOverloads("Builder", 50));
+
+        TypeNameCache cache = new TypeNameCache(task.getElements(),
+                                                task.getTypes());
+        List<String> first = TestMethodNameGenerator.getTestMethodNames(
+                                                methods, null, null, cache);
+        List<String> second = TestMethodNameGenerator.getTestMethodNames(
+                                                methods, null, null, cache);
+        List<String> fresh = TestMethodNameGenerator.getTestMethodNames(
+                methods, null, null,
+                new TypeNameCache(task.getElements(), task.getTypes()));
+        assertEquals(first, second);
+        assertEquals(first, fresh);
+    }
+
+    public void testNamesOfSimpleOverloads() throws IOException {
+        System.out.println("namesOfSimpleOverloads");
+
+        String src = "public class Simple {\n"
+                     + "    public void run() {}\n"
+                     + "    public void run(int a) {}\n"
+                     + "    public void run(String a) {}\n"
+                     + "    public void run(java.util.List a, int b) {}\n"
+                     + "    public void run(int a, int b, int c) {}\n"
+                     + "    public void stop() {}\n"
+                     + "}\n";
+        List<ExecutableElement> methods = getMethods("Simple", src);
+        List<String> names = TestMethodNameGenerator.getTestMethodNames(
+                methods, null, null,
+                new TypeNameCache(task.getElements(), task.getTypes()));
+        assertEquals(new ArrayList<String>(java.util.Arrays.asList(
+                             "testRun_0args",
+                             "testRun_int",
+                             "testRun_String",
+                             "testRun_List_int",
+                             "testRun_3args",
+                             "testStop")),
+                     names);
+    }
+
+    /**
+     * Measures generation of names of test methods for overloaded methods.
+     * Run it with system property {@code junit.names.bench} set to
+     * {@code true} to get the timings printed.
+     */
+    public void testOverloadsPerformance() throws IOException {
+        List<ExecutableElement> methods = getMethods(
+                "Builder", generateOverloads("Builder", OVERLOADS_COUNT));
+        TypeNameCache cache = new TypeNameCache(task.getElements(),
+                                                task.getTypes());
+
+        final int rounds = Boolean.getBoolean("junit.names.bench") ? 50 : 3;
+        long start = System.nanoTime();
+        for (int i = 0; i < rounds; i++) {
+            TestMethodNameGenerator.getTestMethodNames(methods, null, null,
+                                                       cache);
+        }
+        long avgMicros = (System.nanoTime() - start) / rounds / 1000;
+        System.out.println("overloadsPerformance: " + OVERLOADS_COUNT
+                           + " overloads, " + avgMicros + " us per class");
+    }
+
+    /**
+     * Generates source of a class with the given number of overloads
+     * of method {@code set}. Most overloads have one or two parameters
+     * whose types come from several packages so that all the rounds
+     * of the name generator are exercised.
+     */
+    private static String generateOverloads(String className, int count) {
+        final String[] paramTypes = {
+            "int", "long", "String", "java.util.List", "java.awt.List",
+            "java.util.Date", "java.sql.Date", "Object", "int[]", "String[][]",
+            "java.util.Map.Entry", "Inner", "Inner.Nested", "double", "Long",
+        };
+        StringBuilder buf = new StringBuilder(count * 64);
+        buf.append("public class ").append(className).append(" {\n");
+        buf.append("    public static class Inner {\n");
+        buf.append("        public static class Nested {}\n");
+        buf.append("    }\n");
+        Set<String> signatures = new HashSet<String>(count * 2);
+        for (int i = 0; signatures.size() < count; i++) {
+            StringBuilder params = new StringBuilder(64);
+            StringBuilder sig = new StringBuilder(64);
+            int paramCount = (i % 7 == 6) ? 3 + (i % 4) : 1 + (i % 2);
+            int seed = i;
+            for (int p = 0; p < paramCount; p++) {
+                String type = paramTypes[seed % paramTypes.length];
+                seed /= paramTypes.length;
+                if (p != 0) {
+                    params.append(", ");
+                    sig.append(',');
+                }
+                params.append(type).append(" p").append(p);
+                sig.append(type);
+            }
+            if (!signatures.add(sig.toString())) {
+                continue;
+            }
+            buf.append("    public void set(").append(params)
+               .append(") {}\n");
+        }
+        buf.append("}\n");
+        return buf.toString();
+    }
+
+    private List<ExecutableElement> getMethods(final String className,
+                                               final String source)
+                                                        throws IOException {
+        JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+        JavaFileObject file = new SimpleJavaFileObject(
+                    URI.create("string:///" + className + ".java"),
+                    JavaFileObject.Kind.SOURCE) {
+            @Override
+            public CharSequence getCharContent(boolean ignoreEncodingErrors) {
+                return source;
+            }
+        };
+        task = (JavacTask) compiler.getTask(null, null, null,
+                                            Collections.singletonList("-proc:none"),
+                                            null,
+                                            Collections.singletonList(file));
+        task.analyze();
+        TypeElement clazz = task.getElements().getTypeElement(className);
+        assertNotNull(clazz);
+        return new ArrayList<ExecutableElement>(
+                ElementFilter.methodsIn(clazz.getEnclosedElements()));
+    }
+
+}
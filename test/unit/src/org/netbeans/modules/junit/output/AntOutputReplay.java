@@ -0,0 +1,440 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright 1997-2010 Oracle and/or its affiliates. All rights reserved.
+ *
+ * Oracle and Java are registered trademarks of Oracle and/or its affiliates.
+ * Other names may be trademarks of their respective owners.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common
+ * Development and Distribution License("CDDL") (collectively, the
+ * "License"). You may not use this file except in compliance with the
+ * License. You can obtain a copy of the License at
+ * http://www.netbeans.org/cddl-gplv2.html
+ * or nbbuild/licenses/CDDL-GPL-2-CP. See the License for the
+ * specific language governing permissions and limitations under the
+ * License.  When distributing the software, include this License Header
+ * Notice in each file and include the License file at
+ * nbbuild/licenses/CDDL-GPL-2-CP.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the GPL Version 2 section of the License file that
+ * accompanied this code. If applicable, add the following below the
+ * License Header, with the fields enclosed by brackets [] replaced by
+ * your own identifying information:
+ * "Portions Copyrighted [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ *
+ * The Original Software is NetBeans. The Initial Developer of the Original
+ * Software is Sun Microsystems, Inc. Portions Copyright 1997-2008 Sun
+ * Microsystems, Inc. All Rights Reserved.
+ *
+ * If you wish your version of this file to be governed by only the CDDL
+ * or only the GPL Version 2, indicate your decision by adding
+ * "[Contributor] elects to include this software in this distribution
+ * under the [CDDL or GPL Version 2] license." If you do not indicate a
+ * single choice of license, a recipient has the option to distribute
+ * your version of this file under either the CDDL, the GPL Version 2 or
+ * to extend the choice of license to its licensees as provided above.
+ * However, if you add GPL Version 2 code and therefore, elected the GPL
+ * Version 2 license, then the option applies only if the new code is
+ * made subject to such option by the copyright holder.
+ */
+
+package org.netbeans.modules.junit.output;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.Reader;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import org.netbeans.api.project.Project;
+import org.netbeans.modules.gsf.testrunner.api.Report;
+import org.netbeans.modules.gsf.testrunner.api.TestSession;
+import org.netbeans.modules.gsf.testrunner.api.TestSession.SessionType;
+import org.netbeans.modules.gsf.testrunner.api.TestSuite;
+import org.openide.filesystems.FileObject;
+import org.openide.filesystems.FileUtil;
+import org.openide.util.Lookup;
+import static org.netbeans.modules.junit.output.RegexpUtils.END_OF_TEST_PREFIX;
+import static org.netbeans.modules.junit.output.RegexpUtils.START_OF_TEST_PREFIX;
+import static org.netbeans.modules.junit.output.RegexpUtils.TESTCASE_PREFIX;
+import static org.netbeans.modules.junit.output.RegexpUtils.TESTSUITE_PREFIX;
+import static org.netbeans.modules.junit.output.RegexpUtils.TESTSUITE_STATS_PREFIX;
+import static org.netbeans.modules.junit.output.RegexpUtils.TEST_LISTENER_PREFIX;
+
+/**
+ * Replays streams of Ant messages produced by the {@code junit} task
+ * through the {@link JUnitOutputReader}. The reader is not connected
+ * to any Ant session and its updates of the results window are only
+ * counted, not displayed.
+ * <p>
+ * Recorded streams have one event per line, in the form
+ * <code><i>level</i>|<i>task</i>|<i>message</i></code>. Streams for
+ * the brief, plain and XML formatters can also be generated.
+ */
+final class AntOutputReplay {
+
+    /** Ant log level of verbose messages (see {@code AntEvent}) */
+    static final int LOG_VERBOSE = 3;
+    /** Ant log level of informational messages (see {@code AntEvent}) */
+    static final int LOG_INFO = 2;
+
+    /** Formatters configured for the generated stream. */
+    enum Formatter { BRIEF, PLAIN, XML }
+
+    /** A single message logged by Ant. */
+    static final class Event {
+        final int level;
+        final String taskName;
+        final String message;
+
+        Event(int level, String taskName, String message) {
+            this.level = level;
+            this.taskName = taskName;
+            this.message = message;
+        }
+    }
+
+    /** Statistics of a single replay. */
+    static final class Result {
+        int lines;
+        int suites;
+        int testcases;
+        int troubles;
+        long nanos;
+        long allocatedBytes = -1;
+        long maxEndOfSuiteNanos;
+        /** number of characters passed to the output window */
+        long displayedChars;
+        /** number of test durations recorded for the project's timings */
+        int timedTests;
+        TestOutputStore outputStore;
+        StackTracePool stackTraces;
+
+        double getLinesPerSecond() {
+            return lines * 1e9 / Math.max(nanos, 1);
+        }
+
+        long getAllocatedBytesPerLine() {
+            return (allocatedBytes < 0) ? -1 : allocatedBytes / Math.max(lines, 1);
+        }
+
+        @Override
+        public String toString() {
+            return lines + " lines, " + suites + " suites, "
+                   + testcases + " tests, " + troubles + " failures; "
+                   + Math.round(getLinesPerSecond()) + " lines/s, "
+                   + getAllocatedBytesPerLine() + " B/line, end of suite max "
+                   + (maxEndOfSuiteNanos / 1000) + " us";
+        }
+    }
+
+    private AntOutputReplay() {
+    }
+
+    /**
+     * Reads a recorded stream of events.
+     */
+    static List<Event> read(Reader reader) throws IOException {
+        List<Event> events = new ArrayList<Event>();
+        BufferedReader in = new BufferedReader(reader);
+        String line;
+        while ((line = in.readLine()) != null) {
+            int first = line.indexOf('|');
+            int second = line.indexOf('|', first + 1);
+            if ((first == -1) || (second == -1)) {
+                continue;
+            }
+            events.add(new Event(Integer.parseInt(line.substring(0, first)),
+                                 line.substring(first + 1, second),
+                                 line.substring(second + 1)));
+        }
+        return events;
+    }
+
+    /**
+     * Generates events logged by a {@code junit} task running the given
+     * number of suites, with output going through the given formatter.
+     *
+     * @param  failEvery  every n-th test fails
+     * @param  outputLines  number of lines printed by each test
+     */
+    static List<Event> generate(Formatter formatter, int suites, int tests,
+                                int failEvery, int outputLines) {
+        List<Event> events = new ArrayList<Event>();
+        for (int s = 0; s < suites; s++) {
+            String suite = "org.example.Suite" + s + "Test";
+            events.add(info(TESTSUITE_PREFIX + suite));
+            events.add(verbose(TEST_LISTENER_PREFIX + "tests to run: " + tests));
+            int failures = 0;
+            for (int t = 0; t < tests; t++) {
+                String test = "testMethod" + t;
+                events.add(verbose(TEST_LISTENER_PREFIX + START_OF_TEST_PREFIX
+                                   + '(' + test + ')'));
+                for (int o = 0; o < outputLines; o++) {
+                    events.add(info("DEBUG " + suite + " step " + o));
+                }
+                boolean fail = (failEvery > 0) && (t % failEvery == 0);
+                if (fail) {
+                    failures++;
+                    events.add(verbose(TEST_LISTENER_PREFIX + "addFailure("
+                                       + test + ", expected:<1> but was:<2>)"));
+                }
+                events.add(verbose(TEST_LISTENER_PREFIX + END_OF_TEST_PREFIX
+                                   + '(' + test + ')'));
+            }
+            events.add(info(TESTSUITE_STATS_PREFIX + tests + ", Failures: "
+                            + failures + ", Errors: 0, Time elapsed: 1.234 sec"));
+            if (formatter == Formatter.XML) {
+                continue;
+            }
+            events.add(info("------------- Standard Output ---------------"));
+            for (int t = 0; t < tests; t++) {
+                events.add(info("suite output " + t));
+            }
+            events.add(info("------------- ---------------- ---------------"));
+            for (int t = 0; t < tests; t++) {
+                boolean fail = (failEvery > 0) && (t % failEvery == 0);
+                if (formatter == Formatter.PLAIN) {
+                    events.add(info(TESTCASE_PREFIX + "testMethod" + t
+                                    + " took 0.012 sec"));
+                }
+                if (fail) {
+                    events.add(info(TESTCASE_PREFIX + "testMethod" + t + '('
+                                    + suite + "):\tFAILED"));
+                    events.add(info("expected:<1> but was:<2>"));
+                    events.add(info("junit.framework.AssertionFailedError: expected:<1> but was:<2>"));
+                    events.add(info("\tat " + suite + ".testMethod" + t
+                                    + '(' + "Suite" + s + "Test.java:" + (40 + t) + ')'));
+                    events.add(info("\tat org.example.Fixture.check(Fixture.java:17)"));
+                    events.add(info(""));
+                }
+            }
+        }
+        return events;
+    }
+
+    /**
+     * Creates an XML report of a suite, as written by the XML formatter.
+     */
+    static String generateReport(String suite, int tests, int failEvery) {
+        StringBuilder buf = new StringBuilder(tests * 128);
+        buf.append("<?xml version=\"1.0\" encoding=\"UTF-8\" ?>\n")
+           .append("<testsuite name=\"").append(suite).append("\" tests=\"")
+           .append(tests).append("\" time=\"1.234\">\n");
+        for (int t = 0; t < tests; t++) {
+            buf.append("  <testcase classname=\"").append(suite)
+               .append("\" name=\"testMethod").append(t).append("\" time=\"0.012\"");
+            if ((failEvery > 0) && (t % failEvery == 0)) {
+                buf.append(">\n    <failure message=\"expected:&lt;1&gt; but was:&lt;2&gt;\"")
+                   .append(" type=\"junit.framework.AssertionFailedError\">")
+                   .append("junit.framework.AssertionFailedError: expected:&lt;1&gt; but was:&lt;2&gt;\n")
+                   .append("\tat org.example.Fixture.check(Fixture.java:17)\n")
+                   .append("\tat ").append(suite).append(".testMethod").append(t)
+                   .append("(Test.java:42)\n")
+                   .append("</failure>\n  </testcase>\n");
+            } else {
+                buf.append(" />\n");
+            }
+        }
+        buf.append("  <system-out><![CDATA[]]></system-out>\n")
+           .append("  <system-err><![CDATA[]]></system-err>\n")
+           .append("</testsuite>\n");
+        return buf.toString();
+    }
+
+    /**
+     * Replays the given events.
+     *
+     * @param  reportTests  number of tests in XML reports of suites, read
+     *                      by the reader at the end of each suite,
+     *                      or {@code 0} if no XML reports should be written
+     */
+    static Result replay(List<Event> events, int reportTests, int failEvery)
+                                                            throws Exception {
+        return replayTasks(Collections.singletonList(events),
+                           reportTests,
+                           failEvery);
+    }
+
+    /**
+     * Replays events of several {@code junit} tasks run within a single
+     * Ant session.
+     *
+     * @param  tasks  events of the individual tasks
+     * @see  #replay
+     */
+    static Result replayTasks(List<List<Event>> tasks,
+                              int reportTests,
+                              int failEvery) throws Exception {
+        List<Event> events = new ArrayList<Event>();
+        for (List<Event> taskEvents : tasks) {
+            events.addAll(taskEvents);
+        }
+        final Result result = new Result();
+        JUnitTestSession session = new JUnitTestSession(
+                "replay", new ReplayProject(), SessionType.TEST,        //NOI18N
+                new JUnitTestRunnerNodeFactory());
+        JUnitOutputReader reader = new JUnitOutputReader(session,
+                                                         new Counter(result));
+        result.outputStore = session.getOutputStore();
+        result.stackTraces = session.getStackTracePool();
+
+        File resultsDir = null;
+        if (reportTests > 0) {
+            /* after the reader has been created - see isValidReportFile() */
+            resultsDir = writeReports(events, reportTests, failEvery);
+            reader.setResultsDir(resultsDir);
+        }
+
+        try {
+            long allocatedBefore = getAllocatedBytes();
+            long start = System.nanoTime();
+            for (List<Event> taskEvents : tasks) {
+                reader.testTaskStarted(0, reportTests > 0);
+                for (Event event : taskEvents) {
+                    int suites = result.suites;
+                    long eventStart = System.nanoTime();
+                    if (event.level == LOG_VERBOSE) {
+                        reader.verboseMessageLogged(event.message);
+                    } else {
+                        reader.messageLogged(event.message, event.level);
+                    }
+                    if (result.suites != suites) {
+                        /* the start of a suite finishes the previous one */
+                        result.maxEndOfSuiteNanos = Math.max(
+                                                result.maxEndOfSuiteNanos,
+                                                System.nanoTime() - eventStart);
+                    }
+                }
+                reader.testTaskFinished();
+            }
+            result.nanos = System.nanoTime() - start;
+            long allocatedAfter = getAllocatedBytes();
+            if ((allocatedBefore >= 0) && (allocatedAfter >= 0)) {
+                result.allocatedBytes = allocatedAfter - allocatedBefore;
+            }
+        } finally {
+            if (resultsDir != null) {
+                for (File file : resultsDir.listFiles()) {
+                    file.delete();
+                }
+                resultsDir.delete();
+            }
+        }
+        result.lines = events.size();
+        result.timedTests = reader.getTimings().size();
+        return result;
+    }
+
+    /**
+     * Writes XML reports of all suites started by the given events
+     * to a new temporary directory.
+     */
+    private static File writeReports(List<Event> events,
+                                     int reportTests,
+                                     int failEvery) throws IOException {
+        File dir = File.createTempFile("junit-replay", "");             //NOI18N
+        dir.delete();
+        dir.mkdir();
+        for (Event event : events) {
+            if (event.message.startsWith(TESTSUITE_PREFIX)) {
+                String suite = event.message.substring(TESTSUITE_PREFIX.length());
+                OutputStream out = new FileOutputStream(
+                        new File(dir, "TEST-" + suite + ".xml"));       //NOI18N
+                try {
+                    out.write(generateReport(suite, reportTests, failEvery)
+                              .getBytes("UTF-8"));                      //NOI18N
+                } finally {
+                    out.close();
+                }
+            }
+        }
+        return dir;
+    }
+
+    /**
+     * Returns number of bytes allocated by the current thread so far,
+     * or {@code -1} if not supported by the JVM.
+     */
+    private static long getAllocatedBytes() {
+        try {
+            ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+            Method method = Class.forName("com.sun.management.ThreadMXBean")
+                            .getMethod("getThreadAllocatedBytes", long.class);
+            return (Long) method.invoke(bean, Thread.currentThread().getId());
+        } catch (Exception ex) {
+            return -1;
+        }
+    }
+
+    private static Event info(String message) {
+        return new Event(LOG_INFO, "junit", message);
+    }
+
+    private static Event verbose(String message) {
+        return new Event(LOG_VERBOSE, "junit", message);
+    }
+
+    /**
+     * Counts updates of the results window made by the reader.
+     */
+    private static final class Counter implements JUnitOutputReader.Display {
+
+        private final Result result;
+
+        Counter(Result result) {
+            this.result = result;
+        }
+
+        public void testStarted(TestSession session) {
+        }
+
+        public void displaySuiteRunning(TestSession session, TestSuite suite) {
+            result.suites++;
+        }
+
+        public void displayReport(TestSession session, Report report,
+                                  boolean completed) {
+            if (completed) {
+                result.testcases += report.getTotalTests();
+                result.troubles += report.getFailures() + report.getErrors();
+            }
+        }
+
+        public void displayOutput(TestSession session, String text,
+                                  boolean error) {
+            result.displayedChars += text.length();
+        }
+
+        public void sessionFinished(TestSession session) {
+        }
+    }
+
+    /**
+     * Project owning the replayed session.
+     */
+    private static final class ReplayProject implements Project {
+
+        private final FileObject projectDir
+                = FileUtil.createMemoryFileSystem().getRoot();
+
+        public FileObject getProjectDirectory() {
+            return projectDir;
+        }
+
+        public Lookup getLookup() {
+            return Lookup.EMPTY;
+        }
+    }
+
+}
@@ -0,0 +1,138 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright 1997-2010 Oracle and/or its affiliates. All rights reserved.
+ *
+ * Oracle and Java are registered trademarks of Oracle and/or its affiliates.
+ * Other names may be trademarks of their respective owners.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common
+ * Development and Distribution License("CDDL") (collectively, the
+ * "License"). You may not use this file except in compliance with the
+ * License. You can obtain a copy of the License at
+ * http://www.netbeans.org/cddl-gplv2.html
+ * or nbbuild/licenses/CDDL-GPL-2-CP. See the License for the
+ * specific language governing permissions and limitations under the
+ * License.  When distributing the software, include this License Header
+ * Notice in each file and include the License file at
+ * nbbuild/licenses/CDDL-GPL-2-CP.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the GPL Version 2 section of the License file that
+ * accompanied this code. If applicable, add the following below the
+ * License Header, with the fields enclosed by brackets [] replaced by
+ * your own identifying information:
+ * "Portions Copyrighted [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ *
+ * The Original Software is NetBeans. The Initial Developer of the Original
+ * Software is Sun Microsystems, Inc. Portions Copyright 1997-2008 Sun
+ * Microsystems, Inc. All Rights Reserved.
+ *
+ * If you wish your version of this file to be governed by only the CDDL
+ * or only the GPL Version 2, indicate your decision by adding
+ * "[Contributor] elects to include this software in this distribution
+ * under the [CDDL or GPL Version 2] license." If you do not indicate a
+ * single choice of license, a recipient has the option to distribute
+ * your version of this file under either the CDDL, the GPL Version 2 or
+ * to extend the choice of license to its licensees as provided above.
+ * However, if you add GPL Version 2 code and therefore, elected the GPL
+ * Version 2 license, then the option applies only if the new code is
+ * made subject to such option by the copyright holder.
+ */
+
+package org.netbeans.modules.junit.output;
+
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+import junit.framework.TestCase;
+import org.netbeans.modules.junit.output.AntOutputReplay.Event;
+import org.netbeans.modules.junit.output.AntOutputReplay.Formatter;
+import org.netbeans.modules.junit.output.AntOutputReplay.Result;
+
+/**
+ * Replays streams of Ant messages through the {@link JUnitOutputReader}
+ * and prints throughput of the reader.
+ */
+public class AntOutputReplayTest extends TestCase {
+
+    private static final int SUITES = 20;
+    private static final int TESTS = 500;
+    private static final int FAIL_EVERY = 10;
+    private static final int OUTPUT_LINES = 20;
+
+    public AntOutputReplayTest(String testName) {
+        super(testName);
+    }
+
+    public void testReadRecordedStream() throws Exception {
+        System.out.println("readRecordedStream");
+
+        List<Event> events = AntOutputReplay.read(new StringReader(
+                "2|junit|Testsuite: foo.BarTest\n"
+                + "3|junit|junit.framework.TestListener: startTest(testBaz)\n"
+                + "2|junit|some output | with a bar\n"
+                + "3|junit|junit.framework.TestListener: endTest(testBaz)\n"
+                + "2|junit|Tests run: 1, Failures: 0, Errors: 0, Time elapsed: 0.1 sec\n"));
+        assertEquals(5, events.size());
+        assertEquals("some output | with a bar", events.get(2).message);
+
+        Result result = AntOutputReplay.replay(events, 0, 0);
+        assertEquals(1, result.suites);
+        assertEquals(1, result.testcases);
+        assertEquals(1, result.outputStore.getLineCount());
+    }
+
+    public void testBriefFormatter() throws Exception {
+        System.out.println("briefFormatter");
+        Result result = replay(Formatter.BRIEF, 0);
+        assertEquals(SUITES * TESTS / FAIL_EVERY, result.troubles);
+    }
+
+    public void testPlainFormatter() throws Exception {
+        System.out.println("plainFormatter");
+        Result result = replay(Formatter.PLAIN, 0);
+        assertEquals(SUITES * TESTS / FAIL_EVERY, result.troubles);
+    }
+
+    public void testXmlFormatter() throws Exception {
+        System.out.println("xmlFormatter");
+        Result result = replay(Formatter.XML, TESTS);
+        assertEquals(SUITES * TESTS / FAIL_EVERY, result.troubles);
+    }
+
+    public void testSeveralTasks() throws Exception {
+        System.out.println("severalTasks");
+
+        List<Event> task = AntOutputReplay.generate(Formatter.BRIEF, 3, 4,
+                                                    FAIL_EVERY, 1);
+        List<List<Event>> tasks = new ArrayList<List<Event>>();
+        tasks.add(task);
+        tasks.add(task);
+        Result result = AntOutputReplay.replayTasks(tasks, 0, 0);
+
+        /* the last suite of the first task must be recorded only once: */
+        assertEquals(2 * 3, result.suites);
+        assertEquals(2 * 3 * 4, result.testcases);
+        assertEquals(2 * 3 * 4, result.timedTests);
+        result.outputStore.dispose();
+    }
+
+    private Result replay(Formatter formatter, int reportTests) throws Exception {
+        List<Event> events = AntOutputReplay.generate(formatter, SUITES, TESTS,
+                                                      FAIL_EVERY, OUTPUT_LINES);
+        AntOutputReplay.replay(events, reportTests, FAIL_EVERY);    //warm-up
+        Result result = AntOutputReplay.replay(events, reportTests, FAIL_EVERY);
+        System.out.println("  " + formatter + ": " + result);
+
+        assertEquals(SUITES, result.suites);
+        assertEquals(SUITES * TESTS, result.testcases);
+        assertEquals(SUITES * TESTS * OUTPUT_LINES,
+                     result.outputStore.getLineCount());
+        result.outputStore.dispose();
+        return result;
+    }
+
+}
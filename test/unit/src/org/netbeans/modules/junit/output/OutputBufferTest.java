@@ -0,0 +1,106 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright 1997-2010 Oracle and/or its affiliates. All rights reserved.
+ *
+ * Oracle and Java are registered trademarks of Oracle and/or its affiliates.
+ * Other names may be trademarks of their respective owners.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common
+ * Development and Distribution License("CDDL") (collectively, the
+ * "License"). You may not use this file except in compliance with the
+ * License. You can obtain a copy of the License at
+ * http://www.netbeans.org/cddl-gplv2.html
+ * or nbbuild/licenses/CDDL-GPL-2-CP. See the License for the
+ * specific language governing permissions and limitations under the
+ * License.  When distributing the software, include this License Header
+ * Notice in each file and include the License file at
+ * nbbuild/licenses/CDDL-GPL-2-CP.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the GPL Version 2 section of the License file that
+ * accompanied this code. If applicable, add the following below the
+ * License Header, with the fields enclosed by brackets [] replaced by
+ * your own identifying information:
+ * "Portions Copyrighted [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ *
+ * The Original Software is NetBeans. The Initial Developer of the Original
+ * Software is Sun Microsystems, Inc. Portions Copyright 1997-2008 Sun
+ * Microsystems, Inc. All Rights Reserved.
+ *
+ * If you wish your version of this file to be governed by only the CDDL
+ * or only the GPL Version 2, indicate your decision by adding
+ * "[Contributor] elects to include this software in this distribution
+ * under the [CDDL or GPL Version 2] license." If you do not indicate a
+ * single choice of license, a recipient has the option to distribute
+ * your version of this file under either the CDDL, the GPL Version 2 or
+ * to extend the choice of license to its licensees as provided above.
+ * However, if you add GPL Version 2 code and therefore, elected the GPL
+ * Version 2 license, then the option applies only if the new code is
+ * made subject to such option by the copyright holder.
+ */
+
+package org.netbeans.modules.junit.output;
+
+import java.util.ArrayList;
+import java.util.List;
+import junit.framework.TestCase;
+
+/**
+ * Tests grouping of output lines passed to the output window.
+ */
+public class OutputBufferTest extends TestCase {
+
+    private List<String> displayed;
+    private OutputBuffer buffer;
+
+    public OutputBufferTest(String testName) {
+        super(testName);
+    }
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        displayed = new ArrayList<String>();
+        buffer = new OutputBuffer() {
+            @Override
+            protected void display(String text, boolean error) {
+                displayed.add((error ? "err:" : "out:") + text);
+            }
+        };
+    }
+
+    public void testStreamOrderingIsKept() {
+        System.out.println("streamOrderingIsKept");
+
+        buffer.append("a", false);
+        buffer.append("b", false);
+        buffer.append("c", true);
+        buffer.append("d", false);
+        assertEquals(2, displayed.size());
+        buffer.flush();
+        buffer.flush();
+
+        assertEquals(3, displayed.size());
+        assertEquals("out:a\nb", displayed.get(0));
+        assertEquals("err:c", displayed.get(1));
+        assertEquals("out:d", displayed.get(2));
+        assertEquals(4, buffer.getLineCount());
+        assertEquals(3, buffer.getFlushCount());
+    }
+
+    public void testFlushOnSize() {
+        System.out.println("flushOnSize");
+
+        for (int i = 0; i < OutputBuffer.MAX_LINES * 3; i++) {
+            buffer.append("line", false);
+        }
+        assertTrue(displayed.size() >= 3);
+        buffer.flush();
+        assertEquals(OutputBuffer.MAX_LINES * 3, buffer.getLineCount());
+        assertEquals(displayed.size(), buffer.getFlushCount());
+    }
+
+}
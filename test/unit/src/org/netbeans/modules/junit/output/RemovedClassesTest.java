@@ -0,0 +1,104 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright 1997-2010 Oracle and/or its affiliates. All rights reserved.
+ *
+ * Oracle and Java are registered trademarks of Oracle and/or its affiliates.
+ * Other names may be trademarks of their respective owners.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common
+ * Development and Distribution License("CDDL") (collectively, the
+ * "License"). You may not use this file except in compliance with the
+ * License. You can obtain a copy of the License at
+ * http://www.netbeans.org/cddl-gplv2.html
+ * or nbbuild/licenses/CDDL-GPL-2-CP. See the License for the
+ * specific language governing permissions and limitations under the
+ * License.  When distributing the software, include this License Header
+ * Notice in each file and include the License file at
+ * nbbuild/licenses/CDDL-GPL-2-CP.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the GPL Version 2 section of the License file that
+ * accompanied this code. If applicable, add the following below the
+ * License Header, with the fields enclosed by brackets [] replaced by
+ * your own identifying information:
+ * "Portions Copyrighted [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ *
+ * The Original Software is NetBeans. The Initial Developer of the Original
+ * Software is Sun Microsystems, Inc. Portions Copyright 1997-2008 Sun
+ * Microsystems, Inc. All Rights Reserved.
+ *
+ * If you wish your version of this file to be governed by only the CDDL
+ * or only the GPL Version 2, indicate your decision by adding
+ * "[Contributor] elects to include this software in this distribution
+ * under the [CDDL or GPL Version 2] license." If you do not indicate a
+ * single choice of license, a recipient has the option to distribute
+ * your version of this file under either the CDDL, the GPL Version 2 or
+ * to extend the choice of license to its licensees as provided above.
+ * However, if you add GPL Version 2 code and therefore, elected the GPL
+ * Version 2 license, then the option applies only if the new code is
+ * made subject to such option by the copyright holder.
+ */
+package org.netbeans.modules.junit.output;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Map;
+import junit.framework.TestCase;
+
+/**
+ * Tests detection of removed classes.
+ */
+public class RemovedClassesTest extends TestCase {
+
+    private File file;
+
+    public RemovedClassesTest(String testName) {
+        super(testName);
+    }
+
+    @Override
+    protected void setUp() throws Exception {
+        file = File.createTempFile("junit-classes", ".properties");
+        file.delete();
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        file.delete();
+    }
+
+    public void testRemoved() throws IOException {
+        System.out.println("removed");
+
+        RemovedClasses classes = RemovedClasses.read(file);
+        assertTrue(classes.update(Arrays.asList("a.A", "a.B", "a.C"), 1000, 0)
+                          .isEmpty());
+        classes.write(file);
+
+        classes = RemovedClasses.read(file);
+        Map<String, Long> removed = classes.update(Arrays.asList("a.A", "a.D"),
+                                                   2000, 500);
+        assertEquals(2, removed.size());
+        assertEquals(Long.valueOf(2000), removed.get("a.B"));
+        assertEquals(Long.valueOf(2000), removed.get("a.C"));
+        classes.write(file);
+
+        /* the time the removal was noticed first is kept: */
+        classes = RemovedClasses.read(file);
+        removed = classes.update(Arrays.asList("a.A", "a.C", "a.D"), 3000, 1500);
+        assertEquals(Collections.singletonMap("a.B", Long.valueOf(2000)),
+                     removed);
+
+        /* removals older than all passes are forgotten: */
+        assertTrue(classes.update(Arrays.asList("a.A", "a.C", "a.D"), 4000, 2500)
+                          .isEmpty());
+        assertTrue(classes.update(Collections.<String>emptyList(), 5000, 2500)
+                          .keySet().containsAll(Arrays.asList("a.A", "a.C", "a.D")));
+    }
+
+}
@@ -0,0 +1,88 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright 1997-2010 Oracle and/or its affiliates. All rights reserved.
+ *
+ * Oracle and Java are registered trademarks of Oracle and/or its affiliates.
+ * Other names may be trademarks of their respective owners.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common
+ * Development and Distribution License("CDDL") (collectively, the
+ * "License"). You may not use this file except in compliance with the
+ * License. You can obtain a copy of the License at
+ * http://www.netbeans.org/cddl-gplv2.html
+ * or nbbuild/licenses/CDDL-GPL-2-CP. See the License for the
+ * specific language governing permissions and limitations under the
+ * License.  When distributing the software, include this License Header
+ * Notice in each file and include the License file at
+ * nbbuild/licenses/CDDL-GPL-2-CP.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the GPL Version 2 section of the License file that
+ * accompanied this code. If applicable, add the following below the
+ * License Header, with the fields enclosed by brackets [] replaced by
+ * your own identifying information:
+ * "Portions Copyrighted [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ *
+ * The Original Software is NetBeans. The Initial Developer of the Original
+ * Software is Sun Microsystems, Inc. Portions Copyright 1997-2008 Sun
+ * Microsystems, Inc. All Rights Reserved.
+ *
+ * If you wish your version of this file to be governed by only the CDDL
+ * or only the GPL Version 2, indicate your decision by adding
+ * "[Contributor] elects to include this software in this distribution
+ * under the [CDDL or GPL Version 2] license." If you do not indicate a
+ * single choice of license, a recipient has the option to distribute
+ * your version of this file under either the CDDL, the GPL Version 2 or
+ * to extend the choice of license to its licensees as provided above.
+ * However, if you add GPL Version 2 code and therefore, elected the GPL
+ * Version 2 license, then the option applies only if the new code is
+ * made subject to such option by the copyright holder.
+ */
+
+package org.netbeans.modules.junit.output;
+
+import junit.framework.TestCase;
+
+/**
+ * Tests sharing of stack traces.
+ */
+public class StackTracePoolTest extends TestCase {
+
+    public StackTracePoolTest(String testName) {
+        super(testName);
+    }
+
+    public void testShare() {
+        System.out.println("share");
+
+        StackTracePool pool = new StackTracePool();
+        assertNull(pool.share(null));
+
+        String[] first = trace("boom");
+        String[] shared = pool.share(first);
+        assertSame(first[1], pool.intern(new String(first[1])));
+
+        String[] second = pool.share(trace("boom"));
+        assertSame(shared, second);
+
+        String[] third = pool.share(trace("bang"));
+        assertNotSame(shared, third);
+        assertSame(shared[1], third[1]);
+
+        assertEquals(2, pool.getTraceCount());
+        assertEquals(1, pool.getSharedTraceCount());
+        assertEquals(4, pool.getFrameCount());
+    }
+
+    private static String[] trace(String message) {
+        return new String[] {
+            new String("java.lang.IllegalStateException: " + message),
+            new String("at foo.Bar.baz(Bar.java:42)"),
+            new String("at foo.BarTest.testBaz(BarTest.java:17)")
+        };
+    }
+
+}
@@ -0,0 +1,154 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright 1997-2010 Oracle and/or its affiliates. All rights reserved.
+ *
+ * Oracle and Java are registered trademarks of Oracle and/or its affiliates.
+ * Other names may be trademarks of their respective owners.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common
+ * Development and Distribution License("CDDL") (collectively, the
+ * "License"). You may not use this file except in compliance with the
+ * License. You can obtain a copy of the License at
+ * http://www.netbeans.org/cddl-gplv2.html
+ * or nbbuild/licenses/CDDL-GPL-2-CP. See the License for the
+ * specific language governing permissions and limitations under the
+ * License.  When distributing the software, include this License Header
+ * Notice in each file and include the License file at
+ * nbbuild/licenses/CDDL-GPL-2-CP.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the GPL Version 2 section of the License file that
+ * accompanied this code. If applicable, add the following below the
+ * License Header, with the fields enclosed by brackets [] replaced by
+ * your own identifying information:
+ * "Portions Copyrighted [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ *
+ * The Original Software is NetBeans. The Initial Developer of the Original
+ * Software is Sun Microsystems, Inc. Portions Copyright 1997-2008 Sun
+ * Microsystems, Inc. All Rights Reserved.
+ *
+ * If you wish your version of this file to be governed by only the CDDL
+ * or only the GPL Version 2, indicate your decision by adding
+ * "[Contributor] elects to include this software in this distribution
+ * under the [CDDL or GPL Version 2] license." If you do not indicate a
+ * single choice of license, a recipient has the option to distribute
+ * your version of this file under either the CDDL, the GPL Version 2 or
+ * to extend the choice of license to its licensees as provided above.
+ * However, if you add GPL Version 2 code and therefore, elected the GPL
+ * Version 2 license, then the option applies only if the new code is
+ * made subject to such option by the copyright holder.
+ */
+
+package org.netbeans.modules.junit.output;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+import junit.framework.TestCase;
+
+/**
+ * Tests ordering of test classes by their history.
+ */
+public class TestHistoryTest extends TestCase {
+
+    private File file;
+
+    public TestHistoryTest(String testName) {
+        super(testName);
+    }
+
+    @Override
+    protected void setUp() throws Exception {
+        file = File.createTempFile("junit-history", ".properties");
+        file.delete();
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        file.delete();
+    }
+
+    public void testOrder() throws IOException {
+        System.out.println("order");
+
+        TestHistory.Results results = new TestHistory.Results(1000);
+        results.add("a.FastTest", 10, false);
+        results.add("a.SlowTest", 5000, false);
+        results.add("a.FailingTest", 100, true);
+        results.add("a.FixedTest", 200, true);
+        TestHistory history = TestHistory.read(file);
+        history.addRun(results);
+
+        results = new TestHistory.Results(2000);
+        results.add("a.FixedTest", 300, false);
+        results.add("a.BrokenTest", 1, true);
+        history.addRun(results);
+        history.write(file);
+
+        history = TestHistory.read(file);
+        assertEquals(2, history.getRunCount());
+        assertEquals(1000, history.getLastPassTime("a.FastTest"));
+        assertEquals(2000, history.getLastPassTime("a.FixedTest"));
+        assertEquals(0, history.getLastPassTime("a.FailingTest"));
+        assertEquals(0, history.getLastPassTime("a.NewTest"));
+        List<String> order = history.order(Arrays.asList(
+                "a.FastTest", "a.NewTest", "a.SlowTest", "a.FixedTest",
+                "a.FailingTest", "a.BrokenTest"));
+        assertEquals(Arrays.asList(
+                "a.BrokenTest", "a.FixedTest", "a.FailingTest", "a.NewTest",
+                "a.SlowTest", "a.FastTest"), order);
+    }
+
+    public void testOldFailuresForgotten() {
+        System.out.println("oldFailuresForgotten");
+
+        TestHistory.Results results = new TestHistory.Results(1000);
+        results.add("a.FailedLongAgoTest", 1, true);
+        results.add("a.SlowTest", 10, false);
+        TestHistory history = TestHistory.read(null);
+        history.addRun(results);
+        for (int i = 0; i < TestHistory.RECENT_FAILURE_RUNS; i++) {
+            history.addRun(new TestHistory.Results(1000));
+        }
+        assertEquals(Arrays.asList("a.SlowTest", "a.FailedLongAgoTest"),
+                     history.order(Arrays.asList("a.FailedLongAgoTest",
+                                                 "a.SlowTest")));
+    }
+
+    public void testRewrite() throws IOException {
+        System.out.println("rewrite");
+
+        TestHistory.Results results = new TestHistory.Results(1000);
+        results.add("a.FailingTest", 100, true);
+        TestHistory history = TestHistory.read(file);
+        history.addRun(results);
+        history.write(file);
+
+        results = new TestHistory.Results(2000);
+        results.add("a.FailingTest", 100, false);
+        history.addRun(results);
+        history.write(file);
+
+        assertFalse(new File(file.getParentFile(),
+                             file.getName() + ".tmp").exists());
+        history = TestHistory.read(file);
+        assertEquals(2, history.getRunCount());
+        assertEquals(2000, history.getLastPassTime("a.FailingTest"));
+    }
+
+    public void testDigest() {
+        System.out.println("digest");
+
+        /* the two strings have the same String.hashCode(): */
+        assertEquals("Aa".hashCode(), "BB".hashCode());
+        String digest = TestHistory.getDigest("Aa");
+        assertFalse(digest.equals(TestHistory.getDigest("BB")));
+        assertEquals(digest, TestHistory.getDigest("Aa"));
+        assertEquals(40, digest.length());
+    }
+
+}
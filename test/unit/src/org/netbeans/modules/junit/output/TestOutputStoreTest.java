@@ -0,0 +1,156 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright 1997-2010 Oracle and/or its affiliates. All rights reserved.
+ *
+ * Oracle and Java are registered trademarks of Oracle and/or its affiliates.
+ * Other names may be trademarks of their respective owners.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common
+ * Development and Distribution License("CDDL") (collectively, the
+ * "License"). You may not use this file except in compliance with the
+ * License. You can obtain a copy of the License at
+ * http://www.netbeans.org/cddl-gplv2.html
+ * or nbbuild/licenses/CDDL-GPL-2-CP. See the License for the
+ * specific language governing permissions and limitations under the
+ * License.  When distributing the software, include this License Header
+ * Notice in each file and include the License file at
+ * nbbuild/licenses/CDDL-GPL-2-CP.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the GPL Version 2 section of the License file that
+ * accompanied this code. If applicable, add the following below the
+ * License Header, with the fields enclosed by brackets [] replaced by
+ * your own identifying information:
+ * "Portions Copyrighted [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ *
+ * The Original Software is NetBeans. The Initial Developer of the Original
+ * Software is Sun Microsystems, Inc. Portions Copyright 1997-2008 Sun
+ * Microsystems, Inc. All Rights Reserved.
+ *
+ * If you wish your version of this file to be governed by only the CDDL
+ * or only the GPL Version 2, indicate your decision by adding
+ * "[Contributor] elects to include this software in this distribution
+ * under the [CDDL or GPL Version 2] license." If you do not indicate a
+ * single choice of license, a recipient has the option to distribute
+ * your version of this file under either the CDDL, the GPL Version 2 or
+ * to extend the choice of license to its licensees as provided above.
+ * However, if you add GPL Version 2 code and therefore, elected the GPL
+ * Version 2 license, then the option applies only if the new code is
+ * made subject to such option by the copyright holder.
+ */
+
+package org.netbeans.modules.junit.output;
+
+import java.lang.ref.Reference;
+import java.lang.ref.WeakReference;
+import java.util.List;
+import junit.framework.TestCase;
+
+/**
+ * Tests storing of captured test output.
+ */
+public class TestOutputStoreTest extends TestCase {
+
+    private TestOutputStore store;
+
+    public TestOutputStoreTest(String testName) {
+        super(testName);
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        if (store != null) {
+            store.dispose();
+        }
+        super.tearDown();
+    }
+
+    public void testShortOutputStaysInMemory() {
+        System.out.println("shortOutputStaysInMemory");
+
+        store = new TestOutputStore(10);
+        TestOutputStore.Entry entry = store.createEntry();
+        assertTrue(entry.isEmpty());
+        for (int i = 0; i < 10; i++) {
+            entry.addLine("line " + i);
+        }
+        assertEquals(10, entry.getLineCount());
+        assertEquals(0, store.getSpilledBytes());
+        assertEquals("line 9", entry.getLines().get(9));
+    }
+
+    public void testLongOutputIsSpilled() {
+        System.out.println("longOutputIsSpilled");
+
+        store = new TestOutputStore(10);
+        TestOutputStore.Entry first = store.createEntry();
+        TestOutputStore.Entry second = store.createEntry();
+        for (int i = 0; i < 1000; i++) {
+            first.addLine("first " + i);
+            second.addLine("second \u00e8 " + i);
+        }
+        assertEquals(2000, store.getLineCount());
+        assertTrue(store.getSpilledLineCount() >= 2000 - 2 * 10);
+        assertTrue(store.getSpilledBytes() > 0);
+        assertTrue(store.getHeapFootprint() < 2 * 10 * 2 * "second \u00e8 999".length());
+
+        List<String> lines = second.getLines();
+        assertEquals(1000, lines.size());
+        for (int i = 0; i < 1000; i++) {
+            assertEquals("second \u00e8 " + i, lines.get(i));
+        }
+        assertEquals("first 0", first.getLines().get(0));
+    }
+
+    public void testDispose() {
+        System.out.println("dispose");
+
+        store = new TestOutputStore(10);
+        TestOutputStore.Entry entry = store.createEntry();
+        for (int i = 0; i < 100; i++) {
+            entry.addLine("line " + i);
+        }
+        assertTrue(store.getSpilledBytes() > 0);
+        assertFalse(store.isDisposed());
+
+        store.dispose();
+        assertTrue(store.isDisposed());
+        long spilledBytes = store.getSpilledBytes();
+        for (int i = 100; i < 200; i++) {
+            entry.addLine("line " + i);
+        }
+        assertEquals(spilledBytes, store.getSpilledBytes());
+
+        /* lines that cannot be read back are replaced with a note: */
+        List<String> lines = entry.getLines();
+        assertTrue(lines.size() < 200);
+        assertFalse(lines.get(0).startsWith("line "));
+        assertEquals("line 199", lines.get(lines.size() - 1));
+    }
+
+    public void testStoreIsDisposedWhenOwnerIsReleased() throws Exception {
+        System.out.println("storeIsDisposedWhenOwnerIsReleased");
+
+        store = new TestOutputStore(10);
+        Object owner = new Object();
+        TestOutputStore.disposeWhenReleased(owner, store);
+        TestOutputStore.Entry entry = store.createEntry();
+        for (int i = 0; i < 100; i++) {
+            entry.addLine("line " + i);
+        }
+        assertFalse(store.isDisposed());
+
+        Reference<Object> ownerRef = new WeakReference<Object>(owner);
+        owner = null;
+        for (int i = 0; (i < 100) && !store.isDisposed(); i++) {
+            System.gc();
+            Thread.sleep(50);
+        }
+        assertNull(ownerRef.get());
+        assertTrue(store.isDisposed());
+    }
+
+}
@@ -0,0 +1,146 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright 1997-2010 Oracle and/or its affiliates. All rights reserved.
+ *
+ * Oracle and Java are registered trademarks of Oracle and/or its affiliates.
+ * Other names may be trademarks of their respective owners.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common
+ * Development and Distribution License("CDDL") (collectively, the
+ * "License"). You may not use this file except in compliance with the
+ * License. You can obtain a copy of the License at
+ * http://www.netbeans.org/cddl-gplv2.html
+ * or nbbuild/licenses/CDDL-GPL-2-CP. See the License for the
+ * specific language governing permissions and limitations under the
+ * License.  When distributing the software, include this License Header
+ * Notice in each file and include the License file at
+ * nbbuild/licenses/CDDL-GPL-2-CP.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the GPL Version 2 section of the License file that
+ * accompanied this code. If applicable, add the following below the
+ * License Header, with the fields enclosed by brackets [] replaced by
+ * your own identifying information:
+ * "Portions Copyrighted [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ *
+ * The Original Software is NetBeans. The Initial Developer of the Original
+ * Software is Sun Microsystems, Inc. Portions Copyright 1997-2008 Sun
+ * Microsystems, Inc. All Rights Reserved.
+ *
+ * If you wish your version of this file to be governed by only the CDDL
+ * or only the GPL Version 2, indicate your decision by adding
+ * "[Contributor] elects to include this software in this distribution
+ * under the [CDDL or GPL Version 2] license." If you do not indicate a
+ * single choice of license, a recipient has the option to distribute
+ * your version of this file under either the CDDL, the GPL Version 2 or
+ * to extend the choice of license to its licensees as provided above.
+ * However, if you add GPL Version 2 code and therefore, elected the GPL
+ * Version 2 license, then the option applies only if the new code is
+ * made subject to such option by the copyright holder.
+ */
+
+package org.netbeans.modules.junit.output;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.List;
+import junit.framework.TestCase;
+import org.netbeans.modules.gsf.testrunner.api.Status;
+
+/**
+ * Tests the store of test durations.
+ */
+public class TestTimingsTest extends TestCase {
+
+    private File file;
+
+    public TestTimingsTest(String testName) {
+        super(testName);
+    }
+
+    @Override
+    protected void setUp() throws Exception {
+        file = File.createTempFile("junit-timings", ".bin");
+        file.delete();
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        file.delete();
+        new File(file.getPath() + ".old").delete();
+    }
+
+    public void testReport() throws IOException {
+        System.out.println("report");
+
+        for (int i = 0; i < 6; i++) {
+            TestTimings.Session session = new TestTimings.Session(i);
+            session.add("a.FooTest.testFast", 10, Status.PASSED);
+            session.add("a.FooTest.testSlow", 5000, Status.PASSED);
+            session.add("a.FooTest.testSlower", i < 3 ? 100 : 700, Status.PASSED);
+            session.add("a.FooTest.testBroken", 9000, Status.FAILED);
+            TestTimings.append(file, session);
+        }
+
+        TestTimings.Report report = TestTimings.readReport(file, 2);
+        List<TestTimings.TestStats> slowest = report.getSlowest();
+        assertEquals(2, slowest.size());
+        assertEquals("a.FooTest.testSlow", slowest.get(0).getTestId());
+        assertEquals(5000, slowest.get(0).getRecentMillis());
+        assertEquals("a.FooTest.testSlower", slowest.get(1).getTestId());
+
+        List<TestTimings.TestStats> slowdowns = report.getSlowdowns();
+        assertEquals(1, slowdowns.size());
+        assertEquals("a.FooTest.testSlower", slowdowns.get(0).getTestId());
+        assertEquals(100, slowdowns.get(0).getOlderMillis());
+        assertEquals(600, slowdowns.get(0).getSlowdownMillis());
+    }
+
+    public void testIncompleteRecordRemoved() throws IOException {
+        System.out.println("incompleteRecordRemoved");
+
+        TestTimings.Session session = new TestTimings.Session(1);
+        session.add("a.FooTest.testFoo", 100, Status.PASSED);
+        TestTimings.append(file, session);
+
+        /* simulate an interrupted write: */
+        RandomAccessFile raf = new RandomAccessFile(file, "rw");
+        try {
+            raf.setLength(raf.length() - 3);
+        } finally {
+            raf.close();
+        }
+        session = new TestTimings.Session(2);
+        session.add("a.FooTest.testFoo", 300, Status.PASSED);
+        TestTimings.append(file, session);
+
+        List<TestTimings.TestStats> slowest
+                = TestTimings.readReport(file, 10).getSlowest();
+        assertEquals(1, slowest.size());
+        assertEquals(300, slowest.get(0).getRecentMillis());
+    }
+
+    public void testSegmentsRolled() throws IOException {
+        System.out.println("segmentsRolled");
+
+        int sessions = 0;
+        while (!new File(file.getPath() + ".old").exists()) {
+            TestTimings.Session session = new TestTimings.Session(sessions++);
+            for (int i = 0; i < 1000; i++) {
+                session.add("a.FooTest.test" + i, i, Status.PASSED);
+            }
+            TestTimings.append(file, session);
+        }
+        assertTrue(file.length() < TestTimings.MAX_SEGMENT_SIZE);
+
+        List<TestTimings.TestStats> slowest
+                = TestTimings.readReport(file, 1).getSlowest();
+        assertEquals("a.FooTest.test999", slowest.get(0).getTestId());
+        assertEquals(999, slowest.get(0).getRecentMillis());
+    }
+
+}
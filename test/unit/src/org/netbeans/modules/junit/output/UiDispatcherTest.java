@@ -0,0 +1,175 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright 1997-2010 Oracle and/or its affiliates. All rights reserved.
+ *
+ * Oracle and Java are registered trademarks of Oracle and/or its affiliates.
+ * Other names may be trademarks of their respective owners.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common
+ * Development and Distribution License("CDDL") (collectively, the
+ * "License"). You may not use this file except in compliance with the
+ * License. You can obtain a copy of the License at
+ * http://www.netbeans.org/cddl-gplv2.html
+ * or nbbuild/licenses/CDDL-GPL-2-CP. See the License for the
+ * specific language governing permissions and limitations under the
+ * License.  When distributing the software, include this License Header
+ * Notice in each file and include the License file at
+ * nbbuild/licenses/CDDL-GPL-2-CP.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the GPL Version 2 section of the License file that
+ * accompanied this code. If applicable, add the following below the
+ * License Header, with the fields enclosed by brackets [] replaced by
+ * your own identifying information:
+ * "Portions Copyrighted [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ *
+ * The Original Software is NetBeans. The Initial Developer of the Original
+ * Software is Sun Microsystems, Inc. Portions Copyright 1997-2008 Sun
+ * Microsystems, Inc. All Rights Reserved.
+ *
+ * If you wish your version of this file to be governed by only the CDDL
+ * or only the GPL Version 2, indicate your decision by adding
+ * "[Contributor] elects to include this software in this distribution
+ * under the [CDDL or GPL Version 2] license." If you do not indicate a
+ * single choice of license, a recipient has the option to distribute
+ * your version of this file under either the CDDL, the GPL Version 2 or
+ * to extend the choice of license to its licensees as provided above.
+ * However, if you add GPL Version 2 code and therefore, elected the GPL
+ * Version 2 license, then the option applies only if the new code is
+ * made subject to such option by the copyright holder.
+ */
+
+package org.netbeans.modules.junit.output;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import junit.framework.TestCase;
+
+/**
+ * Tests dispatching of updates of the results window from concurrently
+ * running test sessions.
+ */
+public class UiDispatcherTest extends TestCase {
+
+    private ExecutorService executor;
+    private UiDispatcher dispatcher;
+
+    public UiDispatcherTest(String testName) {
+        super(testName);
+    }
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        executor = Executors.newSingleThreadExecutor();
+        dispatcher = new UiDispatcher(executor);
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        executor.shutdownNow();
+        super.tearDown();
+    }
+
+    public void testNoisySessionDoesNotStarveOthers() throws Exception {
+        System.out.println("noisySessionDoesNotStarveOthers");
+
+        final List<String> performed
+                = Collections.synchronizedList(new ArrayList<String>());
+        final CountDownLatch blocker = new CountDownLatch(1);
+        final CountDownLatch done = new CountDownLatch(1);
+
+        UiDispatcher.Channel noisy = dispatcher.createChannel("noisy");
+        UiDispatcher.Channel quiet = dispatcher.createChannel("quiet");
+        noisy.post(new Runnable() {
+            public void run() {
+                try {
+                    blocker.await();
+                } catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        });
+        for (int i = 0; i < 10 * UiDispatcher.QUANTUM; i++) {
+            noisy.post(record(performed, "noisy" + i));
+        }
+        quiet.post(record(performed, "quiet"));
+        quiet.post(new Runnable() {
+            public void run() {
+                done.countDown();
+            }
+        });
+        blocker.countDown();
+
+        assertTrue(done.await(10, TimeUnit.SECONDS));
+        int quietIndex = performed.indexOf("quiet");
+        assertTrue("quiet session served after " + quietIndex + " updates",
+                   quietIndex <= UiDispatcher.QUANTUM);
+        for (int i = 0; i < quietIndex; i++) {
+            assertEquals("noisy" + i, performed.get(i));
+        }
+    }
+
+    public void testConcurrentSessions() throws Exception {
+        System.out.println("concurrentSessions");
+
+        final int updates = 20000;
+        for (int sessions = 1; sessions <= 8; sessions *= 2) {
+            final CountDownLatch done = new CountDownLatch(sessions);
+            final int[][] order = new int[sessions][1];
+            final boolean[] ordered = new boolean[] {true};
+            Thread[] threads = new Thread[sessions];
+            long start = System.nanoTime();
+            for (int s = 0; s < sessions; s++) {
+                final int session = s;
+                final UiDispatcher.Channel channel
+                        = dispatcher.createChannel("session" + s);
+                threads[s] = new Thread() {
+                    @Override
+                    public void run() {
+                        for (int i = 0; i < updates; i++) {
+                            final int expected = i;
+                            channel.post(new Runnable() {
+                                public void run() {
+                                    if (order[session][0]++ != expected) {
+                                        ordered[0] = false;
+                                    }
+                                }
+                            });
+                        }
+                        channel.post(new Runnable() {
+                            public void run() {
+                                done.countDown();
+                            }
+                        });
+                    }
+                };
+                threads[s].start();
+            }
+            assertTrue(done.await(30, TimeUnit.SECONDS));
+            long time = (System.nanoTime() - start) / 1000000;
+            System.out.println("  " + sessions + " sessions, "
+                               + (sessions * updates) + " updates: "
+                               + time + " ms");
+            assertTrue(ordered[0]);
+        }
+    }
+
+    private static Runnable record(final List<String> performed,
+                                   final String name) {
+        return new Runnable() {
+            public void run() {
+                performed.add(name);
+            }
+        };
+    }
+
+}
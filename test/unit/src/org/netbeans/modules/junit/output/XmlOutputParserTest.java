@@ -0,0 +1,167 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright 1997-2010 Oracle and/or its affiliates. All rights reserved.
+ *
+ * Oracle and Java are registered trademarks of Oracle and/or its affiliates.
+ * Other names may be trademarks of their respective owners.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common
+ * Development and Distribution License("CDDL") (collectively, the
+ * "License"). You may not use this file except in compliance with the
+ * License. You can obtain a copy of the License at
+ * http://www.netbeans.org/cddl-gplv2.html
+ * or nbbuild/licenses/CDDL-GPL-2-CP. See the License for the
+ * specific language governing permissions and limitations under the
+ * License.  When distributing the software, include this License Header
+ * Notice in each file and include the License file at
+ * nbbuild/licenses/CDDL-GPL-2-CP.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the GPL Version 2 section of the License file that
+ * accompanied this code. If applicable, add the following below the
+ * License Header, with the fields enclosed by brackets [] replaced by
+ * your own identifying information:
+ * "Portions Copyrighted [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ *
+ * The Original Software is NetBeans. The Initial Developer of the Original
+ * Software is Sun Microsystems, Inc. Portions Copyright 1997-2008 Sun
+ * Microsystems, Inc. All Rights Reserved.
+ *
+ * If you wish your version of this file to be governed by only the CDDL
+ * or only the GPL Version 2, indicate your decision by adding
+ * "[Contributor] elects to include this software in this distribution
+ * under the [CDDL or GPL Version 2] license." If you do not indicate a
+ * single choice of license, a recipient has the option to distribute
+ * your version of this file under either the CDDL, the GPL Version 2 or
+ * to extend the choice of license to its licensees as provided above.
+ * However, if you add GPL Version 2 code and therefore, elected the GPL
+ * Version 2 license, then the option applies only if the new code is
+ * made subject to such option by the copyright holder.
+ */
+
+package org.netbeans.modules.junit.output;
+
+import java.io.IOException;
+import java.io.Reader;
+import junit.framework.TestCase;
+import org.netbeans.modules.gsf.testrunner.api.Testcase;
+
+/**
+ * Tests parsing of XML reports with large captured output.
+ */
+public class XmlOutputParserTest extends TestCase {
+
+    private static final int REPORT_SIZE = 50 * 1024 * 1024;
+
+    public XmlOutputParserTest(String testName) {
+        super(testName);
+    }
+
+    public void testLargeSystemOut() throws Exception {
+        System.out.println("largeSystemOut");
+
+        Runtime runtime = Runtime.getRuntime();
+        System.gc();
+        long usedBefore = runtime.totalMemory() - runtime.freeMemory();
+        long start = System.nanoTime();
+
+        JUnitTestSuite suite = XmlOutputParser.parseXmlOutput(
+                                new ReportReader(10, REPORT_SIZE), null);
+
+        long time = (System.nanoTime() - start) / 1000000;
+        long usedAfter = runtime.totalMemory() - runtime.freeMemory();
+        System.out.println("  parsed " + (REPORT_SIZE >> 20) + " MB in "
+                           + time + " ms, heap grew by "
+                           + ((usedAfter - usedBefore) >> 10) + " kB");
+
+        assertEquals("foo.BarTest", suite.getName());
+        assertEquals(10, suite.getTestcases().size());
+        Testcase last = suite.getTestcases().get(9);
+        assertEquals("test9", last.getName());
+        assertNotNull(last.getTrouble());
+    }
+
+    /**
+     * Generates a report on the fly so that the test itself does not need
+     * to hold the whole report in memory.
+     */
+    private static final class ReportReader extends Reader {
+
+        private static final String OUTPUT_LINE
+                = "DEBUG [main] some chatty integration test &amp; its log\n";
+
+        private final int testCount;
+        private final int size;
+        private String chunk;
+        private int chunkPos;
+        private int produced;
+        private int stage;
+
+        ReportReader(int testCount, int size) {
+            this.testCount = testCount;
+            this.size = size;
+        }
+
+        private String nextChunk() {
+            switch (stage) {
+                case 0:
+                    stage++;
+                    return "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n"
+                           + "<testsuite name=\"foo.BarTest\" tests=\""
+                           + testCount + "\" failures=\"1\" errors=\"0\" time=\"1.5\">\n";
+                case 1:
+                    stage++;
+                    StringBuilder buf = new StringBuilder();
+                    for (int i = 0; i < testCount; i++) {
+                        buf.append("<testcase classname=\"foo.BarTest\" name=\"test")
+                           .append(i).append("\" time=\"0.1\"");
+                        if (i == testCount - 1) {
+                            buf.append("><failure message=\"boom\" type=\"junit.framework.AssertionFailedError\">")
+                               .append("junit.framework.AssertionFailedError: boom\n")
+                               .append("\tat foo.BarTest.test").append(i).append("(BarTest.java:42)\n")
+                               .append("</failure></testcase>\n");
+                        } else {
+                            buf.append("/>\n");
+                        }
+                    }
+                    return buf.append("<system-out><![CDATA[").toString();
+                case 2:
+                    if (produced < size) {
+                        StringBuilder out = new StringBuilder(64 * 1024);
+                        while (out.length() < 64 * 1024) {
+                            out.append(OUTPUT_LINE);
+                        }
+                        return out.toString();
+                    }
+                    stage++;
+                    return "]]></system-out>\n<system-err><![CDATA[]]></system-err>\n</testsuite>\n";
+                default:
+                    return null;
+            }
+        }
+
+        @Override
+        public int read(char[] cbuf, int off, int len) throws IOException {
+            if ((chunk == null) || (chunkPos == chunk.length())) {
+                chunk = nextChunk();
+                chunkPos = 0;
+                if (chunk == null) {
+                    return -1;
+                }
+            }
+            int count = Math.min(len, chunk.length() - chunkPos);
+            chunk.getChars(chunkPos, chunkPos + count, cbuf, off);
+            chunkPos += count;
+            produced += count;
+            return count;
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+
+}